@@ -68,6 +68,10 @@ ALTER TABLE picture
     -- 添加新列
     ADD COLUMN thumbnailUrl varchar(512) NULL COMMENT '缩略图 url';
 
+-- 删除对象前按 url、缩略图 url 检查是否仍被引用
+CREATE INDEX idx_url ON picture (url);
+CREATE INDEX idx_thumbnailUrl ON picture (thumbnailUrl);
+
 
 -- 空间表
 create table if not exists space
@@ -101,6 +105,23 @@ CREATE INDEX idx_spaceId ON picture (spaceId);
 ALTER TABLE picture
     ADD COLUMN picColor varchar(16) null comment '图片主色调';
 
+-- 添加内容哈希列（秒传去重）
+ALTER TABLE picture
+    ADD COLUMN contentHash char(64) null comment '图片内容哈希（SHA-256）';
+
+CREATE INDEX idx_contentHash ON picture (contentHash);
+
+-- 添加色板列（占比最高的几种颜色及其 Lab 值，二进制编码，最多 51 字节）
+ALTER TABLE picture
+    ADD COLUMN picPalette varbinary(64) null comment '图片色板';
+
+-- 添加感知哈希列（相似图片搜索、重复检测）
+ALTER TABLE picture
+    ADD COLUMN perceptualHash bigint null comment '图片感知哈希（dHash）';
+
+-- 内存索引按 updateTime 增量拉取图片变更
+CREATE INDEX idx_updateTime ON picture (updateTime);
+
 -- 支持空间类型，添加新列
 ALTER TABLE space
     ADD COLUMN spaceType int default 0 not null comment '空间类型：0-私有 1-团队';
@@ -131,4 +152,52 @@ create table if not exists space_user
 # ALTER TABLE user
 #     ADD COLUMN phone varchar(20) NULL COMMENT '手机号码';
 # -- 创建索引
-# CREATE INDEX idx_phone ON user (phone);
\ No newline at end of file
+# CREATE INDEX idx_phone ON user (phone);
+-- 对象存储删除任务表（删除发件箱）：与图片记录在同一事务中写入，由后台任务批量删除对象
+create table if not exists storage_delete_task
+(
+    id            bigint auto_increment comment 'id' primary key,
+    objectKey     varchar(512)                       not null comment '待删除对象的唯一键',
+    retryCount    int      default 0                 not null comment '已重试次数',
+    nextRetryTime datetime default CURRENT_TIMESTAMP not null comment '下次执行时间',
+    lastError     varchar(512)                       null comment '最近一次失败原因',
+    createTime    datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    index idx_nextRetryTime (nextRetryTime)
+) comment '对象存储删除任务' collate = utf8mb4_unicode_ci;
+
+-- 图片批量导入任务表
+create table if not exists import_job
+(
+    id           bigint auto_increment comment 'id' primary key,
+    userId       bigint                             not null comment '创建用户 id',
+    searchText   varchar(256)                       null comment '搜索词',
+    namePrefix   varchar(128)                       null comment '图片名称前缀',
+    requestCount int      default 0                 not null comment '请求导入的数量',
+    status       int      default 0                 not null comment '任务状态：0-抓取中 1-导入中 2-已完成 3-失败 4-已取消',
+    totalCount   int      default 0                 not null comment '抓取到的图片数',
+    successCount int      default 0                 not null comment '导入成功数',
+    failCount    int      default 0                 not null comment '导入失败数',
+    errorMessage varchar(512)                       null comment '失败原因',
+    createTime   datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    updateTime   datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    index idx_userId (userId),
+    index idx_status (status)
+) comment '图片批量导入任务' collate = utf8mb4_unicode_ci;
+
+-- 图片批量导入任务项表（每张图片一条）
+create table if not exists import_job_item
+(
+    id            bigint auto_increment comment 'id' primary key,
+    jobId         bigint                             not null comment '任务 id',
+    sourceUrl     varchar(2048)                      not null comment '图片来源地址',
+    picName       varchar(128)                       null comment '图片名称',
+    status        int      default 0                 not null comment '状态：0-等待 1-导入中 2-成功 3-失败 4-已取消',
+    retryCount    int      default 0                 not null comment '已重试次数',
+    nextRetryTime datetime default CURRENT_TIMESTAMP not null comment '下次执行时间',
+    pictureId     bigint                             null comment '导入成功的图片 id',
+    errorMessage  varchar(512)                       null comment '失败原因',
+    createTime    datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    updateTime    datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    index idx_jobId (jobId),
+    index idx_status_nextRetryTime (status, nextRetryTime)
+) comment '图片批量导入任务项' collate = utf8mb4_unicode_ci;
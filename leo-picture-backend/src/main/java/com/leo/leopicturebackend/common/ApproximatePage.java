@@ -0,0 +1,42 @@
+package com.leo.leopicturebackend.common;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 总数为估算值的分页结果
+ * 总数来自缓存的旧计数（作用域内有过写操作），与实际值可能有少量偏差，前端可据此显示“约 N 条”
+ *
+ * @param <T>
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class ApproximatePage<T> extends Page<T> {
+
+    /**
+     * 总数是否为估算值
+     */
+    private boolean approximate = true;
+
+    public ApproximatePage() {
+    }
+
+    public ApproximatePage(long current, long size) {
+        super(current, size, false);
+    }
+
+    /**
+     * 基于已有估算分页结果创建新分页（复制分页信息，不复制记录）
+     *
+     * @param source 源分页
+     * @param <T>    新分页的数据类型
+     * @return
+     */
+    public static <T> ApproximatePage<T> copyOf(ApproximatePage<?> source) {
+        ApproximatePage<T> approximatePage = new ApproximatePage<>(source.getCurrent(), source.getSize());
+        approximatePage.setTotal(source.getTotal());
+        approximatePage.setApproximate(source.isApproximate());
+        return approximatePage;
+    }
+}
@@ -0,0 +1,47 @@
+package com.leo.leopicturebackend.common;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 游标分页结果
+ * 不执行 count 查询（total 恒为 0），前端通过 nextCursor 继续加载下一页
+ *
+ * @param <T>
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class CursorPage<T> extends Page<T> {
+
+    /**
+     * 下一页游标，没有更多数据时为 null
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有更多数据
+     */
+    private boolean hasMore;
+
+    public CursorPage() {
+    }
+
+    public CursorPage(long size) {
+        super(1, size, false);
+    }
+
+    /**
+     * 基于已有游标分页结果创建新分页（复制游标信息，不复制记录）
+     *
+     * @param source 源分页
+     * @param <T>    新分页的数据类型
+     * @return
+     */
+    public static <T> CursorPage<T> copyOf(CursorPage<?> source) {
+        CursorPage<T> cursorPage = new CursorPage<>(source.getSize());
+        cursorPage.setNextCursor(source.getNextCursor());
+        cursorPage.setHasMore(source.isHasMore());
+        return cursorPage;
+    }
+}
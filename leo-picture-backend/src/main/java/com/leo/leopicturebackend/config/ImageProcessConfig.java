@@ -0,0 +1,40 @@
+package com.leo.leopicturebackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本地图片处理配置
+ * 开启后上传时在本地解析宽高、格式、主色调并生成缩略图，不再依赖对象存储的数据万象处理
+ */
+@Component
+@Data
+@ConfigurationProperties(prefix = "picture.local-process")
+public class ImageProcessConfig {
+
+    /**
+     * 是否开启本地图片处理
+     */
+    private boolean enabled = false;
+
+    /**
+     * 处理线程数（CPU 密集型，默认为 CPU 核数）
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 等待处理的任务队列长度，队列满时由上传线程自己处理
+     */
+    private int queueCapacity = 100;
+
+    /**
+     * 缩略图最大边长
+     */
+    private int thumbnailSize = 256;
+
+    /**
+     * 大于该字节数的图片才生成缩略图
+     */
+    private long thumbnailMinBytes = 20 * 1024;
+}
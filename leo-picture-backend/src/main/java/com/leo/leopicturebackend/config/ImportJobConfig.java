@@ -0,0 +1,49 @@
+package com.leo.leopicturebackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 图片批量导入任务配置
+ */
+@Component
+@Data
+@ConfigurationProperties(prefix = "picture.import-job")
+public class ImportJobConfig {
+
+    /**
+     * 每个实例同时导入的图片数（在 pictureUploadExecutor 中执行）
+     */
+    private int maxConcurrency = 8;
+
+    /**
+     * 同一来源站点同时导入的图片数
+     */
+    private int perHostConcurrency = 2;
+
+    /**
+     * 同一来源站点两次请求之间的最小间隔（毫秒）
+     */
+    private long perHostIntervalMs = 500;
+
+    /**
+     * 单张图片的最大重试次数
+     */
+    private int maxRetries = 3;
+
+    /**
+     * 重试退避的初始间隔（毫秒），每次翻倍
+     */
+    private long retryBaseDelayMs = 2000;
+
+    /**
+     * 单个任务最多导入的图片数
+     */
+    private int maxItemsPerJob = 300;
+
+    /**
+     * 导入中的图片超过该时间未完成视为实例异常退出，重新排队（毫秒）
+     */
+    private long staleTimeoutMs = 600_000;
+}
@@ -30,6 +30,9 @@ public class RabbitConfig {
     public static final String PICTURE_REVIEW_QUEUE = "picture.review.queue";
     public static final String PICTURE_REVIEW_ROUTING_KEY = "picture.review.routingkey";
 
+    // 本地缓存失效广播：fanout 交换机，每个节点绑定一个独立的自动删除队列，保证所有节点都能收到
+    public static final String CACHE_INVALIDATE_EXCHANGE = "cache.invalidate.exchange";
+
     // 死信交换机和队列配置
     public static final String DLX_EXCHANGE = "dlx.exchange";
     public static final String DLX_QUEUE = "dlx.queue";
@@ -73,6 +76,23 @@ public class RabbitConfig {
                 .with(PICTURE_REVIEW_ROUTING_KEY);
     }
 
+    @Bean
+    public FanoutExchange cacheInvalidateExchange() {
+        return new FanoutExchange(CACHE_INVALIDATE_EXCHANGE);
+    }
+
+    @Bean
+    public Queue cacheInvalidateQueue() {
+        // 匿名队列：名称随机、非持久、独占、节点下线后自动删除
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding cacheInvalidateBinding() {
+        return BindingBuilder.bind(cacheInvalidateQueue())
+                .to(cacheInvalidateExchange());
+    }
+
     @Bean
     public DirectExchange dlxExchange() {
         return new DirectExchange(DLX_EXCHANGE);
@@ -0,0 +1,29 @@
+package com.leo.leopicturebackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 文件存储配置
+ */
+@Component
+@Data
+@ConfigurationProperties(prefix = "storage")
+public class StorageConfig {
+
+    /**
+     * 存储类型：cos-腾讯云对象存储；local-本地磁盘（私有化部署、集成测试）
+     */
+    private String type = "cos";
+
+    /**
+     * 本地存储根目录
+     */
+    private String localRootDir = "data/storage";
+
+    /**
+     * 本地存储的访问地址前缀（指向 LocalFileController）
+     */
+    private String localBaseUrl = "http://localhost:8123/api/file/local";
+}
@@ -9,6 +9,7 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /*基于配置文件的动态调整动态调整线程池*/
 @Component
@@ -20,6 +21,9 @@ public class ThreadPoolConfig {
     private int maximumPoolSize = 20;     // 默认值
     private int keepAliveTime = 60;       // 默认值
     private int queueCapacity = 100;      // 默认值
+    private int fileUploadCorePoolSize = 4;     // 多文件批量上传线程池
+    private int fileUploadMaximumPoolSize = 8;
+    private int fileUploadQueueCapacity = 200;
 
     @Bean("pictureUploadExecutor")
     public ThreadPoolExecutor pictureUploadExecutor(){
@@ -29,12 +33,35 @@ public class ThreadPoolConfig {
             maximumPoolSize,
              keepAliveTime,
                 TimeUnit.SECONDS, new LinkedBlockingQueue<>(queueCapacity), new ThreadFactory() {
+            private final AtomicInteger threadNumber = new AtomicInteger(1);
+
             @Override
             public Thread newThread(Runnable r) {
-                Thread thread = new Thread(r,"upload-thread-");
+                Thread thread = new Thread(r,"upload-thread-" + threadNumber.getAndIncrement());
                 thread.setDaemon(false);
                 return thread;
             }
         }, new ThreadPoolExecutor.CallerRunsPolicy());
     }
+
+    /**
+     * 多文件批量上传的线程池，队列满时由请求线程自己上传
+     */
+    @Bean("fileUploadExecutor")
+    public ThreadPoolExecutor fileUploadExecutor() {
+        return new ThreadPoolExecutor(
+                fileUploadCorePoolSize,
+                fileUploadMaximumPoolSize,
+                keepAliveTime,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(fileUploadQueueCapacity), new ThreadFactory() {
+            private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "picture-files-upload-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
 }
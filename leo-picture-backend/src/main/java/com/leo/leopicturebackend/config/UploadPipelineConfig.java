@@ -0,0 +1,41 @@
+package com.leo.leopicturebackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 异步上传流水线配置
+ * 每个阶段使用独立的有界线程池，上传（IO 密集）和入库（占用数据库连接）分别限流
+ */
+@Component
+@Data
+@ConfigurationProperties(prefix = "picture.async-upload")
+public class UploadPipelineConfig {
+
+    /**
+     * 上传阶段线程数（上传原图并生成压缩图、缩略图）
+     */
+    private int storeThreads = 4;
+
+    /**
+     * 入库阶段线程数（写入图片记录、扣减空间额度）
+     */
+    private int persistThreads = 2;
+
+    /**
+     * 收尾阶段线程数（更新索引、清理缓存、清理旧文件）
+     */
+    private int finishThreads = 1;
+
+    /**
+     * 每个阶段的等待队列长度
+     * 上传阶段队列满时直接拒绝新任务，后续阶段队列满时由上一阶段的线程执行（反压）
+     */
+    private int queueCapacity = 50;
+
+    /**
+     * 任务状态保留时间（秒）
+     */
+    private long jobExpireSeconds = 3600;
+}
@@ -0,0 +1,192 @@
+package com.leo.leopicturebackend.controller;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import com.leo.leopicturebackend.manager.storage.LocalStorageBackend;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 本地存储文件访问（仅本地存储模式下启用）
+ * 1. 支持 ETag / Last-Modified 条件请求，未修改时返回 304
+ * 2. 支持单区间 Range 请求，返回 206；多区间和格式错误的 Range 忽略，返回完整文件（RFC 7233 允许）
+ * 3. 容器支持 sendfile 时交给 Tomcat 直接发送文件，否则使用 FileChannel.transferTo，都不经过用户态缓冲区
+ */
+@Slf4j
+@RestController
+@RequestMapping("/file/local")
+@ConditionalOnProperty(name = "storage.type", havingValue = "local")
+@Tag(name = "本地文件访问模块")
+public class LocalFileController {
+
+    private static final String PATH_PREFIX = "/file/local/";
+
+    // 图片文件名带有随机串，内容不会变化，可以长期缓存
+    private static final String CACHE_CONTROL = "public, max-age=2592000";
+
+    // 忽略 Range，返回完整文件
+    private static final long[] IGNORE_RANGE = new long[0];
+
+    @Resource
+    private LocalStorageBackend localStorageBackend;
+
+    @GetMapping("/**")
+    public void getFile(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // 1. 解析 key
+        String requestPath = request.getRequestURI().substring(request.getContextPath().length());
+        String key = URLDecoder.decode(StrUtil.subAfter(requestPath, PATH_PREFIX, false), StandardCharsets.UTF_8);
+        Path path = localStorageBackend.resolvePath(key);
+        if (!Files.isRegularFile(path)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        long fileLength = Files.size(path);
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        String etag = String.format("\"%x-%x\"", fileLength, lastModified);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(MediaTypeFactory.getMediaType(FileUtil.getName(key))
+                .map(Object::toString).orElse("application/octet-stream"));
+        // 2. 条件请求
+        if (isNotModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        // 3. Range 请求（If-Range 不匹配、多区间或格式错误时返回完整文件）
+        long start = 0;
+        long end = fileLength - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (StrUtil.isNotBlank(range) && (StrUtil.isBlank(ifRange) || ifRange.equals(etag))) {
+            long[] parsedRange = parseRange(range, fileLength);
+            if (parsedRange == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileLength);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (parsedRange != IGNORE_RANGE) {
+                start = parsedRange[0];
+                end = parsedRange[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, String.format("bytes %d-%d/%d", start, end, fileLength));
+            }
+        }
+        long contentLength = end - start + 1;
+        response.setContentLengthLong(contentLength);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+        // 4. 零拷贝发送
+        if (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            request.setAttribute("org.apache.tomcat.sendfile.filename", path.toString());
+            request.setAttribute("org.apache.tomcat.sendfile.start", start);
+            request.setAttribute("org.apache.tomcat.sendfile.end", end + 1);
+            return;
+        }
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel outputChannel = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = contentLength;
+            while (remaining > 0) {
+                long transferred = fileChannel.transferTo(position, remaining, outputChannel);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    /**
+     * 判断资源是否未修改，If-None-Match 优先于 If-Modified-Since
+     */
+    private static boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (StrUtil.isNotBlank(ifNoneMatch)) {
+            for (String tag : ifNoneMatch.split(",")) {
+                String trimmedTag = StrUtil.removePrefix(tag.trim(), "W/");
+                if ("*".equals(trimmedTag) || etag.equals(trimmedTag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        // HTTP 日期精确到秒
+        return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * 解析单区间 Range：bytes=start-end、bytes=start-、bytes=-suffixLength
+     *
+     * @return [start, end]；不支持的多区间或格式错误时返回 IGNORE_RANGE；起始位置超出文件长度等无法满足时返回 null
+     */
+    private static long[] parseRange(String range, long fileLength) {
+        if (!range.startsWith("bytes=") || range.contains(",")) {
+            return IGNORE_RANGE;
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int index = spec.indexOf('-');
+        if (index < 0) {
+            return IGNORE_RANGE;
+        }
+        try {
+            String startText = spec.substring(0, index).trim();
+            String endText = spec.substring(index + 1).trim();
+            long start;
+            long end;
+            if (startText.isEmpty()) {
+                // 最后 N 个字节
+                long suffixLength = Long.parseLong(endText);
+                if (suffixLength < 0) {
+                    return IGNORE_RANGE;
+                }
+                if (suffixLength == 0 || fileLength == 0) {
+                    return null;
+                }
+                start = Math.max(0, fileLength - suffixLength);
+                end = fileLength - 1;
+            } else {
+                start = Long.parseLong(startText);
+                long lastPosition = endText.isEmpty() ? Long.MAX_VALUE : Long.parseLong(endText);
+                if (start < 0 || lastPosition < start) {
+                    return IGNORE_RANGE;
+                }
+                if (start >= fileLength) {
+                    return null;
+                }
+                end = Math.min(lastPosition, fileLength - 1);
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return IGNORE_RANGE;
+        }
+    }
+}
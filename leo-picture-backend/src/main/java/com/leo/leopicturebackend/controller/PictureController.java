@@ -1,10 +1,7 @@
 package com.leo.leopicturebackend.controller;
 
-import cn.hutool.core.lang.TypeReference;
-import cn.hutool.core.util.RandomUtil;
 import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
-import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.leo.leopicturebackend.annotation.AuthCheck;
 import com.leo.leopicturebackend.api.aliyunai.AliYunAiApi;
@@ -21,7 +18,8 @@ import com.leo.leopicturebackend.constant.UserConstant;
 import com.leo.leopicturebackend.exception.BusinessException;
 import com.leo.leopicturebackend.exception.ErrorCode;
 import com.leo.leopicturebackend.exception.ThrowUtils;
-import com.leo.leopicturebackend.manager.LocalCacheManager;
+import com.leo.leopicturebackend.manager.PageCacheLoader;
+import com.leo.leopicturebackend.manager.PageCacheVersionManager;
 import com.leo.leopicturebackend.manager.auth.SpaceUserAuthManager;
 import com.leo.leopicturebackend.manager.auth.StpKit;
 import com.leo.leopicturebackend.manager.auth.annotation.SaSpaceCheckPermission;
@@ -32,31 +30,32 @@ import com.leo.leopicturebackend.model.entity.Space;
 import com.leo.leopicturebackend.model.entity.User;
 import com.leo.leopicturebackend.manager.auth.model.SpaceUserPermissionConstant;
 import com.leo.leopicturebackend.model.enums.PictureReviewStatusEnum;
+import com.leo.leopicturebackend.model.vo.ChunkUploadVO;
+import com.leo.leopicturebackend.model.vo.ImportJobVO;
 import com.leo.leopicturebackend.model.vo.PictureTagCategory;
+import com.leo.leopicturebackend.model.vo.PictureUploadFileResultVO;
 import com.leo.leopicturebackend.model.vo.PictureVO;
+import com.leo.leopicturebackend.model.vo.UploadJobVO;
 import com.leo.leopicturebackend.service.PictureService;
 import com.leo.leopicturebackend.service.SpaceService;
 import com.leo.leopicturebackend.service.UserService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
-import org.redisson.api.RLock;
-import org.redisson.api.RedissonClient;
 import org.springframework.beans.BeanUtils;
-import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
 
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 import cn.hutool.core.util.StrUtil;
 
 
@@ -75,8 +74,6 @@ public class PictureController {
     @Resource
     private SpaceService spaceService;
 
-    @Resource
-    private StringRedisTemplate stringRedisTemplate;
 
     @Resource
     private AliYunAiApi aliYunAiApi;
@@ -84,17 +81,9 @@ public class PictureController {
     @Resource
     private SpaceUserAuthManager spaceUserAuthManager;
     @Resource
-    private RedissonClient redissonClient;
-
-    /**
-     * 本地缓存
-     */
-
-    private final Cache<String, String> LOCAL_CACHE;
-
-    public PictureController(LocalCacheManager localCacheManager) {
-        this.LOCAL_CACHE = localCacheManager.getLocalCache();
-    }
+    private PageCacheVersionManager pageCacheVersionManager;
+    @Resource
+    private PageCacheLoader pageCacheLoader;
 
     /**
      * 上传图片（可重新上传）
@@ -107,10 +96,109 @@ public class PictureController {
             PictureUploadRequest pictureUploadRequest,
             HttpServletRequest request) throws InterruptedException {
         User loginUser = userService.getLoginUser(request);
+        pictureUploadRequest.setIdempotencyKey(getIdempotencyKey(pictureUploadRequest.getIdempotencyKey(), request));
         PictureVO pictureVO = pictureService.uploadPicture(multipartFile, pictureUploadRequest, loginUser);
         return ResultUtils.success(pictureVO);
     }
 
+    /**
+     * 异步上传图片（可重新上传），立即返回任务 id，通过 /upload/job/get 查询上传结果
+     */
+    @PostMapping("/upload/async")
+    @SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_UPLOAD)
+    public BaseResponse<String> uploadPictureAsync(
+            @RequestPart("file") MultipartFile multipartFile,
+            PictureUploadRequest pictureUploadRequest,
+            HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        pictureUploadRequest.setIdempotencyKey(getIdempotencyKey(pictureUploadRequest.getIdempotencyKey(), request));
+        String jobId = pictureService.submitUploadJob(multipartFile, pictureUploadRequest, loginUser);
+        return ResultUtils.success(jobId);
+    }
+
+    /**
+     * 查询异步上传任务状态
+     */
+    @GetMapping("/upload/job/get")
+    public BaseResponse<UploadJobVO> getUploadJob(String jobId, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.getUploadJob(jobId, loginUser));
+    }
+
+    /**
+     * 多文件批量上传，返回每个文件的上传结果
+     */
+    @PostMapping("/upload/files")
+    @SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_UPLOAD)
+    public BaseResponse<List<PictureUploadFileResultVO>> uploadPictureByFiles(
+            @RequestPart("files") List<MultipartFile> multipartFiles,
+            PictureUploadByFilesRequest pictureUploadByFilesRequest,
+            HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        pictureUploadByFilesRequest.setIdempotencyKey(getIdempotencyKey(pictureUploadByFilesRequest.getIdempotencyKey(), request));
+        return ResultUtils.success(pictureService.uploadPictureByFiles(multipartFiles, pictureUploadByFilesRequest, loginUser));
+    }
+
+    /**
+     * 创建分块上传（断点续传，可重新上传），返回分块大小
+     */
+    @PostMapping("/upload/chunk/create")
+    @SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_UPLOAD)
+    public BaseResponse<ChunkUploadVO> createChunkUpload(
+            @RequestBody PictureChunkUploadCreateRequest pictureChunkUploadCreateRequest,
+            HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.createChunkUpload(pictureChunkUploadCreateRequest, loginUser));
+    }
+
+    /**
+     * 上传分块，请求体为分块的原始内容
+     */
+    @PutMapping("/upload/chunk")
+    public BaseResponse<ChunkUploadVO> uploadChunk(@RequestParam String uploadId, @RequestParam long offset,
+                                                   HttpServletRequest request) throws IOException {
+        User loginUser = userService.getLoginUser(request);
+        long contentLength = request.getContentLengthLong();
+        ThrowUtils.throwIf(contentLength <= 0, ErrorCode.PARAMS_ERROR, "缺少 Content-Length");
+        return ResultUtils.success(pictureService.uploadChunk(uploadId, offset, request.getInputStream(),
+                contentLength, loginUser));
+    }
+
+    /**
+     * 查询分块上传进度
+     */
+    @GetMapping("/upload/chunk/get")
+    public BaseResponse<ChunkUploadVO> getChunkUpload(String uploadId, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.getChunkUpload(uploadId, loginUser));
+    }
+
+    /**
+     * 完成分块上传
+     */
+    @PostMapping("/upload/chunk/complete")
+    public BaseResponse<PictureVO> completeChunkUpload(
+            @RequestBody PictureChunkUploadCompleteRequest pictureChunkUploadCompleteRequest,
+            HttpServletRequest request) throws InterruptedException {
+        ThrowUtils.throwIf(pictureChunkUploadCompleteRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.completeChunkUpload(pictureChunkUploadCompleteRequest.getUploadId(),
+                loginUser));
+    }
+
+    /**
+     * 取消分块上传
+     */
+    @PostMapping("/upload/chunk/cancel")
+    public BaseResponse<Boolean> cancelChunkUpload(
+            @RequestBody PictureChunkUploadCompleteRequest pictureChunkUploadCompleteRequest,
+            HttpServletRequest request) {
+        ThrowUtils.throwIf(pictureChunkUploadCompleteRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        pictureService.cancelChunkUpload(pictureChunkUploadCompleteRequest.getUploadId(), loginUser);
+        return ResultUtils.success(true);
+    }
+
     /**
      * 通过 URL 上传图片（可重新上传）
      */
@@ -121,6 +209,7 @@ public class PictureController {
             HttpServletRequest request) throws InterruptedException {
         User loginUser = userService.getLoginUser(request);
         String fileUrl = pictureUploadRequest.getFileUrl();
+        pictureUploadRequest.setIdempotencyKey(getIdempotencyKey(pictureUploadRequest.getIdempotencyKey(), request));
         PictureVO pictureVO = pictureService.uploadPicture(fileUrl, pictureUploadRequest, loginUser);
         return ResultUtils.success(pictureVO);
     }
@@ -167,6 +256,7 @@ public class PictureController {
         // 操作数据库
         boolean result = pictureService.updateById(picture);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        pictureService.refreshPictureIndex(Collections.singletonList(id));
         return ResultUtils.success(true);
     }
 
@@ -220,11 +310,8 @@ public class PictureController {
     @PostMapping("/list/page")
     @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
     public BaseResponse<Page<Picture>> listPictureByPage(@RequestBody PictureQueryRequest pictureQueryRequest) {
-        long current = pictureQueryRequest.getCurrent();
-        long size = pictureQueryRequest.getPageSize();
         // 查询数据库
-        Page<Picture> picturePage = pictureService.page(new Page<>(current, size),
-                pictureService.getQueryWrapper(pictureQueryRequest));
+        Page<Picture> picturePage = pictureService.listPictureByPage(pictureQueryRequest);
         return ResultUtils.success(picturePage);
     }
 
@@ -234,7 +321,6 @@ public class PictureController {
     @PostMapping("/list/page/vo")
     public BaseResponse<Page<PictureVO>> listPictureVOByPage(@RequestBody PictureQueryRequest pictureQueryRequest,
                                                              HttpServletRequest request) {
-        long current = pictureQueryRequest.getCurrent();
         long size = pictureQueryRequest.getPageSize();
         // 限制爬虫
         ThrowUtils.throwIf(size > 20, ErrorCode.PARAMS_ERROR);
@@ -258,8 +344,7 @@ public class PictureController {
 //            }
         }
         // 查询数据库
-        Page<Picture> picturePage = pictureService.page(new Page<>(current, size),
-                pictureService.getQueryWrapper(pictureQueryRequest));
+        Page<Picture> picturePage = pictureService.listPictureByPage(pictureQueryRequest);
         // 获取封装类
         return ResultUtils.success(pictureService.getPictureVOPage(picturePage, request));
     }
@@ -268,95 +353,39 @@ public class PictureController {
      * 分页获取图片列表（封装类，有缓存）【结合旁路缓存解决数据一致性】
      * 读取时：先查缓存，缓存未命中再查数据库，并将结果写入缓存。写入时：更新数据库后，通过调用方法主动清除相关缓存，
      * newScheduledThreadPool线程池5秒后再删一次
-     * 可结合互斥锁防止缓存击穿（多个并发请求同时查库）
+     * 缓存软过期后继续返回旧数据并在后台刷新，未命中时同一个 key 只有一个请求查库
      */
 //    @Deprecated
     @PostMapping("/list/page/vo/cache")
     public BaseResponse<Page<PictureVO>> listPictureVOByPageWithCache(@RequestBody PictureQueryRequest pictureQueryRequest,
                                                              HttpServletRequest request) {
-        long current = pictureQueryRequest.getCurrent();
         long size = pictureQueryRequest.getPageSize();
         // 限制爬虫
         ThrowUtils.throwIf(size > 20, ErrorCode.PARAMS_ERROR);
         // 普通用户默认只能看到审核通过的数据
         pictureQueryRequest.setReviewStatus(PictureReviewStatusEnum.PASS.getValue());
+        // 不传空间 id 时只查公开图库，与公开图库的缓存版本（失效范围）一致
+        if (pictureQueryRequest.getSpaceId() == null) {
+            pictureQueryRequest.setNullSpaceId(true);
+        }
 
         // 查询缓存，缓存中没有，再查询数据库
         // 构建缓存key
         String queryCondition = JSONUtil.toJsonStr(pictureQueryRequest);
         String hashKey = DigestUtils.md5DigestAsHex(queryCondition.getBytes());
-        String cacheKey = String.format("leopicture:listPictureVOByPage:%s", hashKey);
-
-        // 添加分布式锁，防止缓存击穿
-        String lockKey = "lock:" + cacheKey;
-        RLock lock = redissonClient.getLock(lockKey);
+        String cacheKey = pageCacheVersionManager.buildCacheKey(pictureQueryRequest.getSpaceId(), hashKey);
 
-        //双缓存+随机过期时间防止缓存雪崩
+        //双缓存+随机过期时间防止缓存雪崩，单飞加载防止缓存击穿（多个并发请求同时查库）
         try {
-            // 1. 先从本地缓存中查询
-            String cachedValue = LOCAL_CACHE.getIfPresent(cacheKey);
-            if (cachedValue != null) {
-                // 如果缓存命中，返回结果
-                Page<PictureVO> cachedPage = JSONUtil.toBean(cachedValue, Page.class);
-                return ResultUtils.success(cachedPage);
-            }
-            // 2. 本地缓存未命中，查询 Redis 分布式缓存。操作redis，String类型
-            ValueOperations<String, String> opsForValue = stringRedisTemplate.opsForValue();
-            cachedValue = opsForValue.get(cacheKey);
-            if (cachedValue != null) {
-                // 如果缓存命中，更新本地缓存，返回结果
-                LOCAL_CACHE.put(cacheKey, cachedValue);
-                if ("[]".equals(cachedValue)) { // 处理预缓存的空结果，避免缓存穿透
-                    return ResultUtils.success(new Page<>());
-                }
-                Page<PictureVO> cachedPage = JSONUtil.toBean(cachedValue,
-                        new TypeReference<Page<PictureVO>>() {
-                        }, true);
-                return ResultUtils.success(cachedPage);
-            }
-            // 3.缓存都未命中，尝试获取分布式锁
-            if (lock.tryLock(3, 10, TimeUnit.SECONDS)) { // 等待3秒，持有锁10秒后放开
-                try {
-                    // 双重检查，防止重复查询数据库
-                    cachedValue = opsForValue.get(cacheKey);
-                    if (cachedValue != null) {
-                        LOCAL_CACHE.put(cacheKey, cachedValue);
-                        Page<PictureVO> cachePage = JSONUtil.toBean(cachedValue,
-                                new TypeReference<Page<PictureVO>>() {
-                                }, true);
-                        return ResultUtils.success(cachePage);
-                    }
-
-                    // 3. 查询数据库
-                    Page<Picture> picturePage = pictureService.page(new Page<>(current, size),
-                            pictureService.getQueryWrapper(pictureQueryRequest));
-                    Page<PictureVO> pictureVOPage = pictureService.getPictureVOPage(picturePage, request);
-                    // 4. 更新缓存
-                    // 更新 Redis 缓存【null值也缓存，防止缓存穿透】
-                    String cacheValue = JSONUtil.toJsonStr(pictureVOPage);
-                    // 设置缓存的过期时间,【5 - 10 分钟过期，防止缓存雪崩】
-                    int cacheExpireTime = 300 + RandomUtil.randomInt(0, 300);
-                    opsForValue.set(cacheKey, cacheValue, cacheExpireTime, TimeUnit.SECONDS);
-                    // 写入本地缓存
-                    LOCAL_CACHE.put(cacheKey, cacheValue);
-                    // 获取封装类
-                    return ResultUtils.success(pictureVOPage);
-                } finally {
-                    // 释放锁
-                    if (lock.isHeldByCurrentThread()) {
-                        lock.unlock();
-                    }
-                }
-            } else {
-                // 获取锁失败，返回空页面或重试
-                return ResultUtils.success(new Page<>());
-            }
+            // 加载逻辑可能在后台刷新线程中执行，不传入当前请求
+            Page<PictureVO> pictureVOPage = pageCacheLoader.get(cacheKey,
+                    () -> pictureService.getPictureVOPage(pictureService.listPictureByPage(pictureQueryRequest), null));
+            return ResultUtils.success(pictureVOPage);
         } catch (Exception e) {
             log.error("缓存查询失败", e);
             // 发生异常时，尝试直接查询数据库（降级处理）
             try {
-                Page<Picture> picturePage = pictureService.page(new Page<>(current, size),
-                        pictureService.getQueryWrapper(pictureQueryRequest));
+                Page<Picture> picturePage = pictureService.listPictureByPage(pictureQueryRequest);
                 return ResultUtils.success(pictureService.getPictureVOPage(picturePage, request));
             } catch (Exception ex) {
                 log.error("数据库查询也失败", ex);
@@ -403,16 +432,40 @@ public class PictureController {
     }
 
     /**
-     * 批量抓取并创建图片
+     * 批量抓取并创建图片，立即返回导入任务 id，通过 /import/job/get 查询进度
      */
     @PostMapping("/upload/batch")
     @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
-    public BaseResponse<Integer> uploadPictureByBatch(@RequestBody PictureUploadByBatchRequest pictureUploadByBatchRequest,
-                                                      HttpServletRequest request) {
+    public BaseResponse<Long> uploadPictureByBatch(@RequestBody PictureUploadByBatchRequest pictureUploadByBatchRequest,
+                                                   HttpServletRequest request) {
         ThrowUtils.throwIf(pictureUploadByBatchRequest == null, ErrorCode.PARAMS_ERROR);
         User loginUser = userService.getLoginUser(request);
-        int uploadCount = pictureService.uploadPictureByBatch(pictureUploadByBatchRequest, loginUser);
-        return ResultUtils.success(uploadCount);
+        pictureUploadByBatchRequest.setIdempotencyKey(getIdempotencyKey(pictureUploadByBatchRequest.getIdempotencyKey(), request));
+        Long jobId = pictureService.uploadPictureByBatch(pictureUploadByBatchRequest, loginUser);
+        return ResultUtils.success(jobId);
+    }
+
+    /**
+     * 查询批量导入任务进度
+     */
+    @GetMapping("/import/job/get")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<ImportJobVO> getImportJob(Long id, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.getImportJob(id, loginUser));
+    }
+
+    /**
+     * 取消批量导入任务
+     */
+    @PostMapping("/import/job/cancel")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<Boolean> cancelImportJob(@RequestBody ImportJobCancelRequest importJobCancelRequest,
+                                                 HttpServletRequest request) {
+        ThrowUtils.throwIf(importJobCancelRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        pictureService.cancelImportJob(importJobCancelRequest.getId(), loginUser);
+        return ResultUtils.success(true);
     }
 
 
@@ -454,6 +507,19 @@ public class PictureController {
         return ResultUtils.success(resultList);
     }
 
+    /**
+     * 搜索空间（或公共图库）内的相似图片
+     */
+    @PostMapping("/search/picture/similar")
+    @SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_VIEW)
+    public BaseResponse<List<PictureVO>> searchSimilarPicture(@RequestBody SearchPictureByPictureRequest searchPictureByPictureRequest,
+                                                              HttpServletRequest request) {
+        ThrowUtils.throwIf(searchPictureByPictureRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        List<PictureVO> pictureVOList = pictureService.searchSimilarPicture(searchPictureByPictureRequest.getPictureId(), loginUser);
+        return ResultUtils.success(pictureVOList);
+    }
+
     /**
      * 按照颜色搜索
      */
@@ -520,4 +586,11 @@ public class PictureController {
         String result = pictureService.generateImageByText(generateImageRequest, loginUser);
         return ResultUtils.success(result);
     }
+
+    /**
+     * 获取上传幂等键：优先使用请求参数，其次使用请求头 Idempotency-Key
+     */
+    private static String getIdempotencyKey(String idempotencyKey, HttpServletRequest request) {
+        return StrUtil.blankToDefault(idempotencyKey, request.getHeader("Idempotency-Key"));
+    }
 }
@@ -0,0 +1,12 @@
+package com.leo.leopicturebackend.exception;
+
+/**
+ * 可重试的业务异常
+ * 网络超时、连接重置、云存储服务异常等临时错误，稍后重试可能成功；格式、大小、额度等校验失败仍使用 BusinessException
+ */
+public class RetryableException extends BusinessException {
+
+    public RetryableException(ErrorCode errorCode, String message) {
+        super(errorCode, message);
+    }
+}
@@ -4,17 +4,24 @@ import cn.hutool.core.io.FileUtil;
 import com.qcloud.cos.COSClient;
 import com.qcloud.cos.model.COSObject;
 import com.qcloud.cos.model.GetObjectRequest;
+import com.qcloud.cos.model.ObjectMetadata;
 import com.qcloud.cos.model.PutObjectRequest;
 import com.qcloud.cos.model.PutObjectResult;
 import com.qcloud.cos.model.ciModel.persistence.PicOperations;
 import com.leo.leopicturebackend.config.CosClientConfig;
+import com.leo.leopicturebackend.manager.storage.StorageBackend;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.Resource;
 import java.io.File;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * 文件存储管理
+ * 通用的上传、删除、地址转换委托给 StorageBackend（对象存储或本地磁盘），附带图片处理的上传仅对象存储支持
+ */
 @Component
 public class CosManager {
 
@@ -24,16 +31,98 @@ public class CosManager {
     @Resource
     private COSClient cosClient;
 
+    @Resource
+    private StorageBackend storageBackend;
+
     /**
      * 上传对象
      *
      * @param key  唯一键
      * @param file 文件
      */
-    public PutObjectResult putObject(String key, File file) {
-        PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key,
-                file);
-        return cosClient.putObject(putObjectRequest);
+    public void putObject(String key, File file) {
+        storageBackend.putObject(key, file);
+    }
+
+    /**
+     * 流式上传对象
+     *
+     * @param key           唯一键
+     * @param inputStream   输入流
+     * @param contentLength 内容长度
+     */
+    public void putObject(String key, InputStream inputStream, long contentLength) {
+        storageBackend.putObject(key, inputStream, contentLength);
+    }
+
+    /**
+     * 读取对象内容，由调用方关闭输入流
+     *
+     * @param key 唯一键
+     */
+    public InputStream openObject(String key) {
+        return storageBackend.getObject(key);
+    }
+
+    /**
+     * 初始化分块上传
+     *
+     * @param key 唯一键
+     * @return 分块上传 id
+     */
+    public String initMultipartUpload(String key) {
+        return storageBackend.initMultipartUpload(key);
+    }
+
+    /**
+     * 上传分块
+     *
+     * @param key           唯一键
+     * @param uploadId      分块上传 id
+     * @param partNumber    分块编号，从 1 开始
+     * @param inputStream   输入流
+     * @param contentLength 分块长度
+     * @return 分块的 ETag
+     */
+    public String uploadPart(String key, String uploadId, int partNumber, InputStream inputStream, long contentLength) {
+        return storageBackend.uploadPart(key, uploadId, partNumber, inputStream, contentLength);
+    }
+
+    /**
+     * 合并分块
+     *
+     * @param key      唯一键
+     * @param uploadId 分块上传 id
+     * @param etags    各分块的 ETag，按分块编号排列
+     */
+    public void completeMultipartUpload(String key, String uploadId, List<String> etags) {
+        storageBackend.completeMultipartUpload(key, uploadId, etags);
+    }
+
+    /**
+     * 取消分块上传
+     *
+     * @param key      唯一键
+     * @param uploadId 分块上传 id
+     */
+    public void abortMultipartUpload(String key, String uploadId) {
+        storageBackend.abortMultipartUpload(key, uploadId);
+    }
+
+    /**
+     * 获取对象的访问地址
+     *
+     * @param key 唯一键
+     */
+    public String getUrl(String key) {
+        return storageBackend.getUrl(key);
+    }
+
+    /**
+     * 当前存储是否支持上传时的图片处理（数据万象）
+     */
+    public boolean supportsPictureProcess() {
+        return storageBackend.supportsPictureProcess();
     }
 
     /**
@@ -55,6 +144,33 @@ public class CosManager {
     public PutObjectResult putPictureObject(String key, File file) {
         PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key,
                 file);
+        putObjectRequest.setPicOperations(buildPicOperations(key, file.length()));
+        return cosClient.putObject(putObjectRequest);
+    }
+
+    /**
+     * 流式上传对象（附带图片信息），不落本地磁盘
+     *
+     * @param key           唯一键
+     * @param inputStream   输入流
+     * @param contentLength 内容长度（必须准确，SDK 按长度边读边传）
+     */
+    public PutObjectResult putPictureObject(String key, InputStream inputStream, long contentLength) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(contentLength);
+        PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key,
+                inputStream, objectMetadata);
+        putObjectRequest.setPicOperations(buildPicOperations(key, contentLength));
+        return cosClient.putObject(putObjectRequest);
+    }
+
+    /**
+     * 构造图片处理参数
+     *
+     * @param key      唯一键
+     * @param fileSize 文件大小
+     */
+    private PicOperations buildPicOperations(String key, long fileSize) {
         // 对图片进行处理（获取基本信息也被视作为一种图片的处理）
         PicOperations picOperations = new PicOperations();
         // 1 表示返回原图信息
@@ -69,7 +185,7 @@ public class CosManager {
         compressRule.setRule("imageMogr2/format/webp");
         rules.add(compressRule);
         // 2. 缩略图处理，仅对 > 20 KB 的图片生成缩略图
-        if (file.length() > 2 * 1024) {
+        if (fileSize > 2 * 1024) {
             PicOperations.Rule thumbnailRule = new PicOperations.Rule();
             // 拼接缩略图的路径 todo 后缀丢失处理
             String thumbnailKey = FileUtil.mainName(key) + "_thumbnail." + FileUtil.getSuffix(key);
@@ -81,16 +197,43 @@ public class CosManager {
         }
         // 构造处理参数
         picOperations.setRules(rules);
-        putObjectRequest.setPicOperations(picOperations);
-        return cosClient.putObject(putObjectRequest);
+        return picOperations;
+    }
+
+    /**
+     * 判断对象是否存在
+     *
+     * @param keyOrUrl 唯一键或访问地址
+     */
+    public boolean doesObjectExist(String keyOrUrl) {
+        return storageBackend.doesObjectExist(storageBackend.resolveKey(keyOrUrl));
     }
 
     /**
      * 删除对象
      *
-     * @param key 唯一键
+     * @param keyOrUrl 唯一键或访问地址（图片记录中保存的是访问地址）
+     */
+    public void deleteObject(String keyOrUrl) {
+        storageBackend.deleteObject(storageBackend.resolveKey(keyOrUrl));
+    }
+
+    /**
+     * 批量删除对象
+     *
+     * @param keys 唯一键列表
+     * @return 删除失败的唯一键
+     */
+    public List<String> deleteObjects(List<String> keys) {
+        return storageBackend.deleteObjects(keys);
+    }
+
+    /**
+     * 将访问地址转换为唯一键
+     *
+     * @param keyOrUrl 唯一键或访问地址
      */
-    public void deleteObject(String key) {
-        cosClient.deleteObject(cosClientConfig.getBucket(), key);
+    public String resolveKey(String keyOrUrl) {
+        return storageBackend.resolveKey(keyOrUrl);
     }
 }
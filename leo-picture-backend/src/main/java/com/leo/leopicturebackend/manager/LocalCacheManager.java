@@ -1,33 +1,151 @@
 package com.leo.leopicturebackend.manager;
 
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.leo.leopicturebackend.model.vo.PictureVO;
+import com.leo.leopicturebackend.model.vo.UserVO;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
 
+/**
+ * 本地缓存（近端缓存）
+ * 直接保存反序列化后的分页对象，命中时无需再解析 JSON；JSON 只在 Redis 这一层使用
+ */
 @Component
 public class LocalCacheManager {
+
+    // 本地缓存最大占用（按估算的字节数），64 MB
+    private static final long MAX_WEIGHT_BYTES = 64L * 1024 * 1024;
+
     /**
      * 本地缓存
      */
-    private final Cache<String, String> LOCAL_CACHE = Caffeine.newBuilder()
+    private final Cache<String, PageSnapshot> LOCAL_CACHE = Caffeine.newBuilder()
             .initialCapacity(1024)
-            .maximumSize(10_000L) // 最大 10000 条
-            // 缓存 5 分钟后移除
+            // 按估算的内存大小淘汰，而不是按条数
+            .maximumWeight(MAX_WEIGHT_BYTES)
+            .weigher(LocalCacheManager::estimateWeight)
+            // 缓存 5 分钟后移除（硬过期）
             .expireAfterWrite(Duration.ofMinutes(5))
             .build();
 
-    public Cache<String, String> getLocalCache() {
-        return LOCAL_CACHE;
+    /**
+     * 读取缓存的分页快照
+     *
+     * @param key
+     * @return 未命中返回 null
+     */
+    public PageSnapshot getPage(String key) {
+        return LOCAL_CACHE.getIfPresent(key);
+    }
+
+    /**
+     * 写入分页快照，记录列表会被包装为只读列表
+     *
+     * @param key
+     * @param page         写入后不应再被修改
+     * @param softExpireAt 软过期时间（毫秒时间戳），超过后仍可返回，但需要后台刷新
+     */
+    public void putPage(String key, Page<PictureVO> page, long softExpireAt) {
+        page.setRecords(Collections.unmodifiableList(page.getRecords()));
+        LOCAL_CACHE.put(key, new PageSnapshot(page, softExpireAt));
     }
 
     /**
      * 清除匹配的本地缓存
+     * 只支持前缀匹配（如 prefix:*），遍历 key 删除匹配项，不影响其它作用域的缓存
+     *
+     * @param pattern
+     * @return 删除的条数
      */
-    public void clearCacheByPattern(String pattern) {
-        // Caffeine 不直接支持 pattern 删除，可以通过维护 key 集合的方式实现
-        // 或者直接清除所有缓存
-        LOCAL_CACHE.invalidateAll();
+    public int clearCacheByPattern(String pattern) {
+        if (!pattern.endsWith("*")) {
+            LOCAL_CACHE.invalidate(pattern);
+            return 1;
+        }
+        String prefix = pattern.substring(0, pattern.length() - 1);
+        int removed = 0;
+        for (String key : LOCAL_CACHE.asMap().keySet()) {
+            if (key.startsWith(prefix) && LOCAL_CACHE.asMap().remove(key) != null) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * 分页快照（在多个请求间共享，只能读取，不能修改）
+     */
+    public static class PageSnapshot {
+
+        private final Page<PictureVO> page;
+
+        private final long softExpireAt;
+
+        public PageSnapshot(Page<PictureVO> page, long softExpireAt) {
+            this.page = page;
+            this.softExpireAt = softExpireAt;
+        }
+
+        public Page<PictureVO> getPage() {
+            return page;
+        }
+
+        /**
+         * 是否已超过软过期时间
+         */
+        public boolean isStale() {
+            return System.currentTimeMillis() > softExpireAt;
+        }
+    }
+
+    /**
+     * 估算缓存条目占用的字节数（对象头、包装类型按固定开销计算，字符串按 2 字节/字符计算）
+     */
+    private static int estimateWeight(String key, PageSnapshot snapshot) {
+        long bytes = 128 + stringBytes(key);
+        List<PictureVO> records = snapshot.getPage().getRecords();
+        if (records != null) {
+            for (PictureVO pictureVO : records) {
+                bytes += estimatePictureVO(pictureVO);
+            }
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private static long estimatePictureVO(PictureVO pictureVO) {
+        long bytes = 320;
+        bytes += stringBytes(pictureVO.getUrl()) + stringBytes(pictureVO.getThumbnailUrl())
+                + stringBytes(pictureVO.getName()) + stringBytes(pictureVO.getIntroduction())
+                + stringBytes(pictureVO.getCategory()) + stringBytes(pictureVO.getPicFormat())
+                + stringBytes(pictureVO.getPicColor());
+        bytes += stringListBytes(pictureVO.getTags()) + stringListBytes(pictureVO.getPermissionList());
+        UserVO user = pictureVO.getUser();
+        if (user != null) {
+            bytes += 160 + stringBytes(user.getUserAccount()) + stringBytes(user.getUserName())
+                    + stringBytes(user.getUserAvatar()) + stringBytes(user.getUserProfile())
+                    + stringBytes(user.getUserRole()) + stringBytes(user.getVipCode())
+                    + stringBytes(user.getPhone());
+        }
+        return bytes;
+    }
+
+    private static long stringListBytes(List<String> list) {
+        if (list == null) {
+            return 0;
+        }
+        long bytes = 40;
+        for (String value : list) {
+            bytes += 8 + stringBytes(value);
+        }
+        return bytes;
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : 40 + 2L * value.length();
     }
 }
@@ -0,0 +1,248 @@
+package com.leo.leopicturebackend.manager;
+
+import cn.hutool.core.util.RandomUtil;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.leo.leopicturebackend.exception.BusinessException;
+import com.leo.leopicturebackend.exception.ErrorCode;
+import com.leo.leopicturebackend.manager.cache.PictureVOPageCodec;
+import com.leo.leopicturebackend.model.vo.PictureVO;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * 图片分页缓存加载器（本地缓存 + Redis 两级缓存）
+ * 1. 单飞（single-flight）：同一节点内同一个 key 只有一个线程查库，其它线程等待同一个 Future，不再返回空页面
+ * 2. 软/硬过期：超过软过期时间的缓存仍然直接返回，同时由后台线程刷新一次；超过硬过期（TTL）才真正失效
+ * 3. 分布式锁只用于跨节点的兜底，减少多个节点同时查库，拿不到锁也不会阻塞太久
+ * Redis 中的值格式：8 字节软过期时间戳 + PictureVOPageCodec 编码的分页数据（二进制，不再使用 JSON）
+ */
+@Slf4j
+@Component
+public class PageCacheLoader {
+
+    @Resource
+    private LocalCacheManager localCacheManager;
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private RedissonClient redissonClient;
+    @Resource
+    private PictureVOPageCodec pictureVOPageCodec;
+
+    // 软过期时间：1 分钟
+    private static final long SOFT_TTL_MS = 60_000;
+    // 等待其它线程加载的最长时间，超时后自己查库
+    private static final long WAIT_TIMEOUT_MS = 3000;
+    // 未命中时等待分布式锁的时间，等不到就直接查库
+    private static final long LOCK_WAIT_MS = 500;
+    // 分布式锁持有时间
+    private static final long LOCK_LEASE_MS = 10_000;
+    // 软过期时间戳占用的字节数
+    private static final int SOFT_EXPIRE_BYTES = Long.BYTES;
+
+    // 正在加载中的 key
+    private final ConcurrentHashMap<String, CompletableFuture<Page<PictureVO>>> inFlightMap = new ConcurrentHashMap<>();
+
+    // 后台刷新线程池，队列满时放弃本次刷新（继续返回旧数据）
+    private final ThreadPoolExecutor refreshExecutor = new ThreadPoolExecutor(2, 4,
+            60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(200),
+            runnable -> {
+                Thread thread = new Thread(runnable, "page-cache-refresh");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+
+    /**
+     * 读取分页缓存，未命中时加载并写入缓存
+     *
+     * @param cacheKey 缓存 key
+     * @param loader   查库并组装分页结果（可能在后台线程执行，不能依赖请求上下文）
+     * @return
+     */
+    public Page<PictureVO> get(String cacheKey, Supplier<Page<PictureVO>> loader) {
+        // 1. 先从本地缓存中查询
+        LocalCacheManager.PageSnapshot snapshot = localCacheManager.getPage(cacheKey);
+        if (snapshot != null) {
+            if (snapshot.isStale()) {
+                refreshAsync(cacheKey, loader);
+            }
+            return snapshot.getPage();
+        }
+        // 2. 查询 Redis，命中后解码一次写入本地缓存
+        snapshot = getFromRedis(cacheKey);
+        if (snapshot != null) {
+            if (snapshot.isStale()) {
+                refreshAsync(cacheKey, loader);
+            }
+            return snapshot.getPage();
+        }
+        // 3. 都未命中，同一个 key 只有一个线程加载
+        CompletableFuture<Page<PictureVO>> future = new CompletableFuture<>();
+        CompletableFuture<Page<PictureVO>> existing = inFlightMap.putIfAbsent(cacheKey, future);
+        if (existing != null) {
+            return awaitLoading(existing, loader);
+        }
+        try {
+            Page<PictureVO> page = loadWithLock(cacheKey, loader);
+            future.complete(page);
+            return page;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightMap.remove(cacheKey, future);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        refreshExecutor.shutdown();
+    }
+
+    /**
+     * 等待其它线程的加载结果，超时后自己查库
+     */
+    private Page<PictureVO> awaitLoading(CompletableFuture<Page<PictureVO>> future, Supplier<Page<PictureVO>> loader) {
+        try {
+            Page<PictureVO> page = future.get(WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            // 后台刷新被其它节点抢先时没有结果
+            return page != null ? page : loader.get();
+        } catch (TimeoutException e) {
+            log.warn("等待分页缓存加载超时，直接查询数据库");
+            return loader.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "查询失败");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "查询被中断");
+        }
+    }
+
+    /**
+     * 未命中时加载：先尝试获取分布式锁，拿到锁或等待超时后再检查一次 Redis，仍未命中则查库
+     */
+    private Page<PictureVO> loadWithLock(String cacheKey, Supplier<Page<PictureVO>> loader) {
+        RLock lock = redissonClient.getLock("lock:" + cacheKey);
+        boolean locked = false;
+        try {
+            locked = lock.tryLock(LOCK_WAIT_MS, LOCK_LEASE_MS, TimeUnit.MILLISECONDS);
+            // 双重检查，其它节点可能已经写入缓存
+            LocalCacheManager.PageSnapshot snapshot = getFromRedis(cacheKey);
+            if (snapshot != null) {
+                return snapshot.getPage();
+            }
+            return loadAndStore(cacheKey, loader);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "查询被中断");
+        } finally {
+            if (locked && lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 后台刷新软过期的缓存，同一个 key 同时只刷新一次；其它节点正在刷新时跳过
+     */
+    private void refreshAsync(String cacheKey, Supplier<Page<PictureVO>> loader) {
+        CompletableFuture<Page<PictureVO>> future = new CompletableFuture<>();
+        if (inFlightMap.putIfAbsent(cacheKey, future) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                RLock lock = redissonClient.getLock("lock:" + cacheKey);
+                boolean locked = false;
+                try {
+                    locked = lock.tryLock(0, LOCK_LEASE_MS, TimeUnit.MILLISECONDS);
+                    if (locked) {
+                        future.complete(loadAndStore(cacheKey, loader));
+                    } else {
+                        future.complete(null);
+                    }
+                } catch (Exception e) {
+                    log.warn("后台刷新分页缓存失败, key: {}", cacheKey, e);
+                    future.completeExceptionally(e);
+                } finally {
+                    if (locked && lock.isHeldByCurrentThread()) {
+                        lock.unlock();
+                    }
+                    inFlightMap.remove(cacheKey, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlightMap.remove(cacheKey, future);
+            future.completeExceptionally(e);
+            log.debug("分页缓存刷新队列已满，跳过本次刷新, key: {}", cacheKey);
+        }
+    }
+
+    /**
+     * 查库并写入两级缓存
+     */
+    private Page<PictureVO> loadAndStore(String cacheKey, Supplier<Page<PictureVO>> loader) {
+        Page<PictureVO> page = loader.get();
+        long softExpireAt = System.currentTimeMillis() + SOFT_TTL_MS;
+        // 硬过期时间,【5 - 10 分钟过期，防止缓存雪崩】
+        int cacheExpireTime = 300 + RandomUtil.randomInt(0, 300);
+        byte[] encoded = pictureVOPageCodec.encode(page);
+        byte[] cacheValue = ByteBuffer.allocate(SOFT_EXPIRE_BYTES + encoded.length)
+                .putLong(softExpireAt)
+                .put(encoded)
+                .array();
+        stringRedisTemplate.execute((RedisCallback<Boolean>) connection -> connection.stringCommands()
+                .setEx(toBytes(cacheKey), cacheExpireTime, cacheValue));
+        localCacheManager.putPage(cacheKey, page, softExpireAt);
+        return page;
+    }
+
+    /**
+     * 从 Redis 读取并写入本地缓存
+     *
+     * @return 未命中（或格式无法识别）返回 null
+     */
+    private LocalCacheManager.PageSnapshot getFromRedis(String cacheKey) {
+        byte[] cachedValue = stringRedisTemplate.execute(
+                (RedisCallback<byte[]>) connection -> getBytes(connection, cacheKey));
+        if (cachedValue == null || cachedValue.length <= SOFT_EXPIRE_BYTES) {
+            return null;
+        }
+        long softExpireAt = ByteBuffer.wrap(cachedValue).getLong();
+        Page<PictureVO> page;
+        try {
+            page = pictureVOPageCodec.decode(Arrays.copyOfRange(cachedValue, SOFT_EXPIRE_BYTES, cachedValue.length));
+        } catch (Exception e) {
+            // 旧格式或损坏的数据按未命中处理，重新加载后会被覆盖
+            log.warn("分页缓存解码失败，按未命中处理, key: {}", cacheKey, e);
+            return null;
+        }
+        localCacheManager.putPage(cacheKey, page, softExpireAt);
+        return new LocalCacheManager.PageSnapshot(page, softExpireAt);
+    }
+
+    private static byte[] getBytes(RedisConnection connection, String key) {
+        return connection.stringCommands().get(toBytes(key));
+    }
+
+    private static byte[] toBytes(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,101 @@
+package com.leo.leopicturebackend.manager;
+
+import cn.hutool.core.util.StrUtil;
+import com.leo.leopicturebackend.config.RabbitConfig;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 图片分页缓存的版本号管理
+ * 每个作用域（公共图库、每个空间）维护一个版本号并拼接到缓存 key 中，
+ * 写操作只需 INCR 版本号即可让该作用域的旧缓存失效（旧 key 不再被访问，等待 TTL 自然过期），代替 KEYS 扫描删除；
+ * 同时向所有节点广播，各节点删除本地缓存中该作用域的旧条目，释放内存
+ */
+@Slf4j
+@Component
+public class PageCacheVersionManager {
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private RabbitTemplate rabbitTemplate;
+
+    /**
+     * 分页缓存 key 前缀
+     */
+    public static final String PAGE_CACHE_KEY_PREFIX = "leopicture:listPictureVOByPage:";
+
+    private static final String VERSION_KEY_PREFIX = "leopicture:listPictureVOByPage:version:";
+
+    private static final String PUBLIC_SCOPE = "public";
+
+    /**
+     * 构建分页缓存 key：前缀 + 作用域 + 版本号 + 查询条件哈希
+     *
+     * @param spaceId 空间 id，为 null 表示公共图库
+     * @param hashKey 查询条件哈希
+     * @return
+     */
+    public String buildCacheKey(Long spaceId, String hashKey) {
+        String scope = getScope(spaceId);
+        return String.format("%s%s:v%d:%s", PAGE_CACHE_KEY_PREFIX, scope, getVersion(scope), hashKey);
+    }
+
+    /**
+     * 使作用域下的分页缓存失效
+     *
+     * @param spaceId 空间 id，为 null 表示公共图库
+     */
+    public void bumpVersion(Long spaceId) {
+        String scope = getScope(spaceId);
+        stringRedisTemplate.opsForValue().increment(VERSION_KEY_PREFIX + scope);
+        // 广播失败不影响正确性（本地缓存 key 也带版本号），只记录日志
+        try {
+            Map<String, Object> message = new HashMap<>();
+            message.put("pattern", PAGE_CACHE_KEY_PREFIX + scope + ":*");
+            message.put("publishTime", System.currentTimeMillis());
+            rabbitTemplate.convertAndSend(RabbitConfig.CACHE_INVALIDATE_EXCHANGE, "", message);
+        } catch (Exception e) {
+            log.error("广播本地缓存失效消息失败，scope: {}", scope, e);
+        }
+    }
+
+    /**
+     * 获取作用域当前的版本号
+     *
+     * @param spaceId 空间 id，为 null 表示公共图库
+     * @return
+     */
+    public long getVersion(Long spaceId) {
+        return getVersion(getScope(spaceId));
+    }
+
+    /**
+     * 获取作用域名称
+     *
+     * @param spaceId 空间 id，为 null 表示公共图库
+     * @return
+     */
+    public static String getScope(Long spaceId) {
+        return spaceId == null ? PUBLIC_SCOPE : String.valueOf(spaceId);
+    }
+
+    private long getVersion(String scope) {
+        String version = stringRedisTemplate.opsForValue().get(VERSION_KEY_PREFIX + scope);
+        if (StrUtil.isBlank(version)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(version);
+        } catch (NumberFormatException e) {
+            log.warn("分页缓存版本号格式错误，scope: {}, version: {}", scope, version);
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.leo.leopicturebackend.manager;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.json.JSONUtil;
+import com.leo.leopicturebackend.model.dto.picture.PictureQueryRequest;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * 图片分页总数管理
+ * 按作用域（公共图库、每个空间）+ 过滤条件（分类、标签等，不含页码和排序）缓存 COUNT 结果，同一条件翻页时不再重复 COUNT
+ * 1. 缓存的计数记录了计算时作用域的版本号（与分页缓存共用 PageCacheVersionManager），版本号未变化说明没有写操作，计数是准确的
+ * 2. 版本号已变化但计数还不太旧时，先作为估算值返回（approximate），同时在后台重新 COUNT
+ * 3. 不限定作用域的查询（如管理员跨空间查询）无法判断数据是否变化，每次都实时 COUNT
+ */
+@Slf4j
+@Component
+public class PictureCountManager {
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private PageCacheVersionManager pageCacheVersionManager;
+
+    private static final String COUNT_KEY_PREFIX = "leopicture:pictureCount:";
+    // 计数缓存过期时间：10 分钟（每次写入时续期）
+    private static final long COUNT_TTL_SECONDS = 600;
+    // 旧版本的计数最多作为估算值使用 2 分钟
+    private static final long MAX_ESTIMATE_AGE_MS = 120_000;
+    // 不参与过滤的字段，计算条件哈希时排除
+    private static final Set<String> NON_FILTER_FIELDS = Set.of("current", "pageSize", "sortField", "sortOrder", "cursor");
+
+    // 正在后台重新计数的 key
+    private final Set<String> recountingKeys = ConcurrentHashMap.newKeySet();
+
+    // 后台计数线程池，队列满时放弃本次计数（继续使用估算值）
+    private final ThreadPoolExecutor recountExecutor = new ThreadPoolExecutor(1, 2,
+            60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(100),
+            runnable -> {
+                Thread thread = new Thread(runnable, "picture-recount");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+
+    /**
+     * 获取查询条件对应的总数
+     *
+     * @param pictureQueryRequest 查询条件
+     * @param counter             实时 COUNT（可能在后台线程执行，不能依赖请求上下文）
+     * @return
+     */
+    public CountResult count(PictureQueryRequest pictureQueryRequest, Supplier<Long> counter) {
+        // 不限定作用域，直接实时计数
+        if (pictureQueryRequest.getSpaceId() == null && !pictureQueryRequest.isNullSpaceId()) {
+            return new CountResult(counter.get(), false);
+        }
+        Long spaceId = pictureQueryRequest.getSpaceId();
+        String countKey = COUNT_KEY_PREFIX + PageCacheVersionManager.getScope(spaceId);
+        String filterHash = buildFilterHash(pictureQueryRequest);
+        long version;
+        CachedCount cachedCount;
+        try {
+            version = pageCacheVersionManager.getVersion(spaceId);
+            cachedCount = CachedCount.parse(stringRedisTemplate.<String, String>opsForHash().get(countKey, filterHash));
+        } catch (Exception e) {
+            log.error("读取图片计数缓存失败，直接查询数据库", e);
+            return new CountResult(counter.get(), false);
+        }
+        if (cachedCount != null) {
+            // 1. 版本号未变化，计数准确
+            if (cachedCount.version == version) {
+                return new CountResult(cachedCount.total, false);
+            }
+            // 2. 版本号已变化，旧计数作为估算值返回，后台重新计数
+            if (System.currentTimeMillis() - cachedCount.computedAt < MAX_ESTIMATE_AGE_MS) {
+                recountAsync(countKey, filterHash, version, counter);
+                return new CountResult(cachedCount.total, true);
+            }
+        }
+        // 3. 未命中或估算值太旧，实时计数（先记录版本号，计数期间有写操作时下次不会被当作准确值）
+        long total = counter.get();
+        store(countKey, filterHash, version, total);
+        return new CountResult(total, false);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        recountExecutor.shutdown();
+    }
+
+    private void recountAsync(String countKey, String filterHash, long version, Supplier<Long> counter) {
+        String recountKey = countKey + ":" + filterHash;
+        if (!recountingKeys.add(recountKey)) {
+            return;
+        }
+        try {
+            recountExecutor.execute(() -> {
+                try {
+                    store(countKey, filterHash, version, counter.get());
+                } catch (Exception e) {
+                    log.warn("后台重新计数失败, key: {}", recountKey, e);
+                } finally {
+                    recountingKeys.remove(recountKey);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            recountingKeys.remove(recountKey);
+            log.debug("图片计数队列已满，跳过本次计数, key: {}", recountKey);
+        }
+    }
+
+    private void store(String countKey, String filterHash, long version, long total) {
+        try {
+            String value = version + ":" + total + ":" + System.currentTimeMillis();
+            stringRedisTemplate.opsForHash().put(countKey, filterHash, value);
+            stringRedisTemplate.expire(countKey, COUNT_TTL_SECONDS, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.error("写入图片计数缓存失败", e);
+        }
+    }
+
+    /**
+     * 过滤条件哈希（字段按名称排序，忽略 null 值和分页、排序字段）
+     */
+    private static String buildFilterHash(PictureQueryRequest pictureQueryRequest) {
+        Map<String, Object> filterMap = new TreeMap<>(BeanUtil.beanToMap(pictureQueryRequest, false, true));
+        filterMap.keySet().removeAll(NON_FILTER_FIELDS);
+        return DigestUtils.md5DigestAsHex(JSONUtil.toJsonStr(filterMap).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 计数结果
+     */
+    public static class CountResult {
+
+        private final long total;
+
+        private final boolean approximate;
+
+        public CountResult(long total, boolean approximate) {
+            this.total = total;
+            this.approximate = approximate;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        /**
+         * 是否为估算值
+         */
+        public boolean isApproximate() {
+            return approximate;
+        }
+    }
+
+    /**
+     * Redis 中缓存的计数，格式：版本号:总数:计算时间
+     */
+    private static class CachedCount {
+
+        private long version;
+
+        private long total;
+
+        private long computedAt;
+
+        private static CachedCount parse(Object value) {
+            if (value == null) {
+                return null;
+            }
+            String[] parts = value.toString().split(":");
+            if (parts.length != 3) {
+                return null;
+            }
+            try {
+                CachedCount cachedCount = new CachedCount();
+                cachedCount.version = Long.parseLong(parts[0]);
+                cachedCount.total = Long.parseLong(parts[1]);
+                cachedCount.computedAt = Long.parseLong(parts[2]);
+                return cachedCount;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
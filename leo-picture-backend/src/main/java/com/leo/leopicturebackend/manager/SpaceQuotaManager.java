@@ -0,0 +1,229 @@
+package com.leo.leopicturebackend.manager;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.IdUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.leo.leopicturebackend.exception.BusinessException;
+import com.leo.leopicturebackend.exception.ErrorCode;
+import com.leo.leopicturebackend.exception.ThrowUtils;
+import com.leo.leopicturebackend.manager.cache.EntityCacheManager;
+import com.leo.leopicturebackend.mapper.PictureMapper;
+import com.leo.leopicturebackend.mapper.SpaceMapper;
+import com.leo.leopicturebackend.model.entity.Picture;
+import com.leo.leopicturebackend.model.entity.Space;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 空间额度预留
+ * 1. 上传前通过 Lua 脚本原子地预留额度（已用额度 + 进行中的预留 + 本次预留不超过上限），不加锁，同一空间的上传可以并行
+ * 2. 入库成功后提交预留（额度已计入数据库，删除预留避免重复计算），失败时释放；进程崩溃等情况下未提交的预留到期后自动失效
+ * 3. 入库时的条件更新（小于上限才累加）仍然是最终保证，预留只负责在上传前拦截超额的请求：
+ *    并发预留可能读到提交前的已用额度而少算，由条件更新拦截
+ * 4. 每天对账一次，按图片记录修正空间的已用额度
+ */
+@Slf4j
+@Component
+public class SpaceQuotaManager {
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    @Resource
+    private SpaceMapper spaceMapper;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private EntityCacheManager entityCacheManager;
+
+    private static final String RESERVATION_KEY_PREFIX = "leopicture:spaceQuota:";
+    // 预留的有效期：5 分钟，覆盖一次上传的最长耗时
+    private static final long RESERVATION_TTL_MS = 300_000;
+    // 对账每批处理的空间数
+    private static final int RECONCILE_BATCH_SIZE = 500;
+
+    /**
+     * 预留额度
+     * KEYS[1]：空间的预留 hash（预留 id -> 条数:大小:过期时间）
+     * ARGV：预留 id、条数、大小、条数上限、大小上限、已用条数、已用大小、当前时间、过期时间、key 过期时间
+     * 返回 0 成功，1 条数不足，2 大小不足
+     * 大小与原有规则一致：已用（含进行中的预留）未达到上限即可上传
+     */
+    private static final DefaultRedisScript<Long> RESERVE_SCRIPT = new DefaultRedisScript<>(
+            "local now = tonumber(ARGV[8]) " +
+                    "local reservedCount = 0 " +
+                    "local reservedSize = 0 " +
+                    "local entries = redis.call('HGETALL', KEYS[1]) " +
+                    "for i = 1, #entries, 2 do " +
+                    "  local count, size, expireAt = string.match(entries[i + 1], '^(%d+):(%d+):(%d+)$') " +
+                    "  if count == nil or tonumber(expireAt) <= now then " +
+                    "    redis.call('HDEL', KEYS[1], entries[i]) " +
+                    "  else " +
+                    "    reservedCount = reservedCount + tonumber(count) " +
+                    "    reservedSize = reservedSize + tonumber(size) " +
+                    "  end " +
+                    "end " +
+                    "if tonumber(ARGV[6]) + reservedCount + tonumber(ARGV[2]) > tonumber(ARGV[4]) then return 1 end " +
+                    "if tonumber(ARGV[7]) + reservedSize >= tonumber(ARGV[5]) then return 2 end " +
+                    "redis.call('HSET', KEYS[1], ARGV[1], ARGV[2] .. ':' .. ARGV[3] .. ':' .. ARGV[9]) " +
+                    "redis.call('PEXPIRE', KEYS[1], ARGV[10]) " +
+                    "return 0", Long.class);
+
+    /**
+     * 预留额度
+     *
+     * @param spaceId 空间 id
+     * @param count   预留条数
+     * @param size    预留大小（上传前无法确定实际大小时传入上限）
+     * @return 预留 id，Redis 不可用时退化为只按数据库校验，返回 null
+     */
+    public String reserve(Long spaceId, long count, long size) {
+        // 读取数据库中的最新额度，不走缓存
+        Space space = spaceMapper.selectById(spaceId);
+        ThrowUtils.throwIf(space == null, ErrorCode.NOT_FOUND_ERROR, "空间不存在");
+        String reservationId = IdUtil.fastSimpleUUID();
+        long now = System.currentTimeMillis();
+        Long result;
+        try {
+            result = stringRedisTemplate.execute(RESERVE_SCRIPT,
+                    Collections.singletonList(RESERVATION_KEY_PREFIX + spaceId),
+                    reservationId, String.valueOf(count), String.valueOf(size),
+                    String.valueOf(space.getMaxCount()), String.valueOf(space.getMaxSize()),
+                    String.valueOf(space.getTotalCount()), String.valueOf(space.getTotalSize()),
+                    String.valueOf(now), String.valueOf(now + RESERVATION_TTL_MS),
+                    String.valueOf(RESERVATION_TTL_MS));
+        } catch (Exception e) {
+            log.error("预留空间额度失败，只按数据库校验, spaceId = {}", spaceId, e);
+            ThrowUtils.throwIf(space.getTotalCount() + count > space.getMaxCount(), ErrorCode.OPERATION_ERROR, "空间条数不足");
+            ThrowUtils.throwIf(space.getTotalSize() >= space.getMaxSize(), ErrorCode.OPERATION_ERROR, "空间大小不足");
+            return null;
+        }
+        if (result != null && result == 1) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间条数不足");
+        }
+        if (result != null && result == 2) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间大小不足");
+        }
+        return reservationId;
+    }
+
+    /**
+     * 提交预留（额度已写入数据库）：删除预留，之后的预留按数据库中的已用额度计算，不再重复计入
+     *
+     * @param spaceId       空间 id
+     * @param reservationId 预留 id，为 null 时忽略
+     */
+    public void commit(Long spaceId, String reservationId) {
+        if (reservationId == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.opsForHash().delete(RESERVATION_KEY_PREFIX + spaceId, reservationId);
+        } catch (Exception e) {
+            // 预留到期后自动失效
+            log.error("提交空间额度预留失败, spaceId = {}", spaceId, e);
+        }
+    }
+
+    /**
+     * 释放预留（上传或入库失败）
+     *
+     * @param spaceId       空间 id
+     * @param reservationId 预留 id，为 null 时忽略
+     */
+    public void release(Long spaceId, String reservationId) {
+        if (reservationId == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.opsForHash().delete(RESERVATION_KEY_PREFIX + spaceId, reservationId);
+        } catch (Exception e) {
+            // 预留到期后自动失效
+            log.error("释放空间额度预留失败, spaceId = {}", spaceId, e);
+        }
+    }
+
+    /**
+     * 对账：按图片记录修正空间的已用条数和大小
+     * 使用条件更新（已用额度与读取时一致才修改），对账期间有上传或删除的空间跳过，下次再修正
+     */
+    @Scheduled(cron = "0 30 3 * * ?")
+    public void reconcile() {
+        RLock lock = redissonClient.getLock("spaceQuota:reconcile");
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            long lastId = 0;
+            int fixedCount = 0;
+            while (true) {
+                List<Space> spaceList = spaceMapper.selectList(new QueryWrapper<Space>()
+                        .select("id", "totalCount", "totalSize")
+                        .gt("id", lastId)
+                        .orderByAsc("id")
+                        .last("limit " + RECONCILE_BATCH_SIZE));
+                if (CollUtil.isEmpty(spaceList)) {
+                    break;
+                }
+                lastId = spaceList.get(spaceList.size() - 1).getId();
+                fixedCount += reconcileBatch(spaceList);
+            }
+            log.info("空间额度对账完成，修正空间数: {}", fixedCount);
+        } catch (Exception e) {
+            log.error("空间额度对账失败", e);
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    private int reconcileBatch(List<Space> spaceList) {
+        List<Long> spaceIds = spaceList.stream().map(Space::getId).collect(Collectors.toList());
+        Map<Long, Map<String, Object>> usageMap = pictureMapper.selectMaps(new QueryWrapper<Picture>()
+                        .select("spaceId", "count(*) as totalCount", "sum(picSize) as totalSize")
+                        .in("spaceId", spaceIds)
+                        .groupBy("spaceId"))
+                .stream()
+                .collect(Collectors.toMap(row -> ((Number) row.get("spaceId")).longValue(), row -> row));
+        int fixedCount = 0;
+        for (Space space : spaceList) {
+            Map<String, Object> usage = usageMap.get(space.getId());
+            long actualCount = usage == null ? 0 : ((Number) usage.get("totalCount")).longValue();
+            long actualSize = usage == null || usage.get("totalSize") == null ? 0 : ((Number) usage.get("totalSize")).longValue();
+            if (actualCount == space.getTotalCount() && actualSize == space.getTotalSize()) {
+                continue;
+            }
+            int updated = spaceMapper.update(null, new UpdateWrapper<Space>()
+                    .eq("id", space.getId())
+                    .eq("totalCount", space.getTotalCount())
+                    .eq("totalSize", space.getTotalSize())
+                    .set("totalCount", actualCount)
+                    .set("totalSize", actualSize));
+            if (updated > 0) {
+                log.warn("修正空间额度, spaceId = {}, totalCount: {} -> {}, totalSize: {} -> {}", space.getId(),
+                        space.getTotalCount(), actualCount, space.getTotalSize(), actualSize);
+                entityCacheManager.getSpaceCache().evict(space.getId());
+                fixedCount++;
+            }
+        }
+        return fixedCount;
+    }
+}
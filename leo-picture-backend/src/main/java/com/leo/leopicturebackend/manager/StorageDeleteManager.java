@@ -0,0 +1,248 @@
+package com.leo.leopicturebackend.manager;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.leo.leopicturebackend.mapper.PictureMapper;
+import com.leo.leopicturebackend.mapper.StorageDeleteTaskMapper;
+import com.leo.leopicturebackend.model.entity.Picture;
+import com.leo.leopicturebackend.model.entity.StorageDeleteTask;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 对象存储删除（发件箱）
+ * 1. 删除图片时在同一事务中写入待删除的对象（原图、压缩图、缩略图），事务提交即保证文件最终会被删除，接口不再等待存储
+ * 2. 后台任务按批读取到期的任务，使用批量删除接口删除，失败的任务按指数退避重试
+ * 3. 删除前再次确认没有图片记录引用该文件（秒传会复用同一文件）；任务登记后至少等待一段时间才会执行，
+ *    确保并发的秒传在复用该文件后插入的图片记录已经提交，确认引用时能够查到
+ */
+@Slf4j
+@Component
+public class StorageDeleteManager {
+
+    @Resource
+    private StorageDeleteTaskMapper storageDeleteTaskMapper;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private CosManager cosManager;
+
+    @Resource
+    private RedissonClient redissonClient;
+
+    // 删除任务的最短延迟：5 分钟，覆盖秒传命中到图片记录入库的最长耗时
+    private static final long DELETE_GRACE_MS = 300_000;
+    // 每批处理的任务数
+    private static final int BATCH_SIZE = 500;
+    // 每次调度最多处理的批数，积压较多时分多次处理，避免长时间占用调度线程
+    private static final int MAX_BATCHES_PER_RUN = 20;
+    // 重试退避：10 秒起，每次翻倍，最长 1 小时
+    private static final long RETRY_BASE_DELAY_MS = 10_000;
+    private static final long RETRY_MAX_DELAY_MS = 3600_000;
+    // 重试次数超过该值后每次失败输出错误日志
+    private static final int RETRY_WARN_THRESHOLD = 10;
+
+    /**
+     * 登记图片的所有文件待删除：访问地址对应的对象、压缩图（webp）、缩略图以及对象存储处理前的原图
+     * 应在删除或替换图片记录的事务中调用
+     *
+     * @param picture 图片
+     */
+    public void enqueuePictureFiles(Picture picture) {
+        if (StrUtil.isBlank(picture.getUrl())) {
+            return;
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        String key = cosManager.resolveKey(picture.getUrl());
+        keys.add(key);
+        // 对象存储处理时，原图、压缩图、缩略图位于同一目录，文件名相同（缩略图加 _thumbnail 后缀）
+        String basePath = StrUtil.subBefore(key, ".", true);
+        keys.add(basePath + ".webp");
+        if (StrUtil.isNotBlank(picture.getThumbnailUrl())) {
+            String thumbnailKey = cosManager.resolveKey(picture.getThumbnailUrl());
+            keys.add(thumbnailKey);
+            // 原图后缀与缩略图相同
+            keys.add(basePath + "." + FileUtil.getSuffix(thumbnailKey));
+        }
+        enqueue(keys);
+    }
+
+    /**
+     * 登记待删除的对象
+     *
+     * @param keysOrUrls 唯一键或访问地址
+     */
+    public void enqueue(Collection<String> keysOrUrls) {
+        enqueue(keysOrUrls, DELETE_GRACE_MS);
+    }
+
+    /**
+     * 登记待删除的对象，延迟一段时间后再删除
+     *
+     * @param keysOrUrls 唯一键或访问地址
+     * @param delayMs    延迟时间（毫秒），不足最短延迟时按最短延迟
+     */
+    public void enqueue(Collection<String> keysOrUrls, long delayMs) {
+        delayMs = Math.max(delayMs, DELETE_GRACE_MS);
+        for (String keyOrUrl : keysOrUrls) {
+            StorageDeleteTask task = new StorageDeleteTask();
+            task.setObjectKey(cosManager.resolveKey(keyOrUrl));
+            task.setRetryCount(0);
+            task.setNextRetryTime(new Date(System.currentTimeMillis() + delayMs));
+            storageDeleteTaskMapper.insert(task);
+        }
+    }
+
+    /**
+     * 待删除的对象数
+     */
+    public long getPendingCount() {
+        return storageDeleteTaskMapper.selectCount(null);
+    }
+
+    /**
+     * 批量处理到期的删除任务，多实例部署时只有一个实例执行
+     */
+    @Scheduled(initialDelay = 10_000, fixedDelay = 5_000)
+    public void drain() {
+        RLock lock = redissonClient.getLock("storageDelete:drain");
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+                List<StorageDeleteTask> taskList = storageDeleteTaskMapper.selectList(new QueryWrapper<StorageDeleteTask>()
+                        .le("nextRetryTime", new Date())
+                        .orderByAsc("id")
+                        .last("limit " + BATCH_SIZE));
+                if (CollUtil.isEmpty(taskList)) {
+                    break;
+                }
+                drainBatch(taskList);
+                if (taskList.size() < BATCH_SIZE) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("处理对象删除任务失败", e);
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 每分钟输出一次待删除的对象数
+     */
+    @Scheduled(initialDelay = 60_000, fixedRate = 60_000)
+    public void reportPending() {
+        try {
+            long pendingCount = getPendingCount();
+            if (pendingCount > 0) {
+                log.info("对象删除统计: 待删除 {} 个", pendingCount);
+            }
+        } catch (Exception e) {
+            log.error("统计待删除对象失败", e);
+        }
+    }
+
+    private void drainBatch(List<StorageDeleteTask> taskList) {
+        // 1. 跳过仍被图片记录引用的对象，同一对象的重复任务只删除一次
+        Set<String> referencedKeys = getReferencedKeys(taskList);
+        List<Long> doneIds = new ArrayList<>();
+        Map<String, List<StorageDeleteTask>> keyTaskMap = new HashMap<>();
+        for (StorageDeleteTask task : taskList) {
+            if (referencedKeys.contains(task.getObjectKey())) {
+                doneIds.add(task.getId());
+            } else {
+                keyTaskMap.computeIfAbsent(task.getObjectKey(), k -> new ArrayList<>()).add(task);
+            }
+        }
+        // 2. 批量删除
+        Set<String> failedKeys = new HashSet<>();
+        String error = null;
+        if (!keyTaskMap.isEmpty()) {
+            try {
+                failedKeys.addAll(cosManager.deleteObjects(new ArrayList<>(keyTaskMap.keySet())));
+                if (!failedKeys.isEmpty()) {
+                    error = "批量删除部分对象失败";
+                }
+            } catch (Exception e) {
+                log.error("批量删除对象失败", e);
+                failedKeys.addAll(keyTaskMap.keySet());
+                error = StrUtil.maxLength(e.getMessage(), 500);
+            }
+        }
+        // 3. 删除成功的任务移出发件箱，失败的任务退避后重试
+        keyTaskMap.forEach((key, tasks) -> {
+            if (failedKeys.contains(key)) {
+                return;
+            }
+            tasks.forEach(task -> doneIds.add(task.getId()));
+        });
+        if (!doneIds.isEmpty()) {
+            storageDeleteTaskMapper.deleteBatchIds(doneIds);
+        }
+        for (String failedKey : failedKeys) {
+            for (StorageDeleteTask task : keyTaskMap.getOrDefault(failedKey, Collections.emptyList())) {
+                scheduleRetry(task, error);
+            }
+        }
+    }
+
+    /**
+     * 查询仍被图片记录（原图或缩略图）引用的对象
+     */
+    private Set<String> getReferencedKeys(List<StorageDeleteTask> taskList) {
+        Map<String, String> urlKeyMap = taskList.stream()
+                .map(StorageDeleteTask::getObjectKey)
+                .distinct()
+                .collect(Collectors.toMap(cosManager::getUrl, key -> key));
+        // 分两次查询，分别走 url、thumbnailUrl 的索引
+        Set<String> referencedKeys = new HashSet<>();
+        pictureMapper.selectObjs(new QueryWrapper<Picture>()
+                        .select("url")
+                        .in("url", urlKeyMap.keySet()))
+                .forEach(url -> referencedKeys.add(urlKeyMap.get(String.valueOf(url))));
+        pictureMapper.selectObjs(new QueryWrapper<Picture>()
+                        .select("thumbnailUrl")
+                        .in("thumbnailUrl", urlKeyMap.keySet()))
+                .forEach(url -> referencedKeys.add(urlKeyMap.get(String.valueOf(url))));
+        return referencedKeys;
+    }
+
+    private void scheduleRetry(StorageDeleteTask task, String error) {
+        int retryCount = task.getRetryCount() + 1;
+        long delay = Math.min(RETRY_BASE_DELAY_MS << Math.min(retryCount - 1, 20), RETRY_MAX_DELAY_MS);
+        StorageDeleteTask update = new StorageDeleteTask();
+        update.setId(task.getId());
+        update.setRetryCount(retryCount);
+        update.setNextRetryTime(new Date(System.currentTimeMillis() + delay));
+        update.setLastError(error);
+        storageDeleteTaskMapper.updateById(update);
+        if (retryCount >= RETRY_WARN_THRESHOLD) {
+            log.error("删除对象多次失败, key = {}, 重试次数: {}, 原因: {}", task.getObjectKey(), retryCount, error);
+        }
+    }
+}
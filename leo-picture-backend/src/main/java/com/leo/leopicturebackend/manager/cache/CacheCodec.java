@@ -0,0 +1,243 @@
+package com.leo.leopicturebackend.manager.cache;
+
+import com.leo.leopicturebackend.exception.BusinessException;
+import com.leo.leopicturebackend.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 缓存值二进制编解码器
+ * 格式：1 字节格式版本 + 1 字节标记位 + 数据体，数据体超过阈值时使用 Deflate 压缩（压缩后更小才保留）
+ * 升级格式时递增版本号，readBody 需要兼容读取旧版本，无法识别的版本视为缓存未命中
+ * 同时统计编解码耗时和每条缓存的字节数
+ *
+ * @param <T> 缓存值类型
+ */
+@Slf4j
+public abstract class CacheCodec<T> {
+
+    // 标记位：数据体已压缩
+    private static final int FLAG_COMPRESSED = 1;
+    // 超过 1 KB 才尝试压缩
+    private static final int COMPRESS_THRESHOLD_BYTES = 1024;
+    private static final int HEADER_BYTES = 2;
+
+    private final LongAdder encodeCount = new LongAdder();
+    private final LongAdder encodeNanos = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder encodedBytes = new LongAdder();
+    private final LongAdder compressedCount = new LongAdder();
+    private final LongAdder decodeCount = new LongAdder();
+    private final LongAdder decodeNanos = new LongAdder();
+
+    /**
+     * 当前写入的格式版本，不能为 0
+     */
+    protected abstract byte getVersion();
+
+    protected abstract void writeBody(T value, DataOutputStream out) throws IOException;
+
+    /**
+     * @param version 写入时的格式版本
+     */
+    protected abstract T readBody(byte version, DataInputStream in) throws IOException;
+
+    /**
+     * 编码
+     *
+     * @param value
+     * @return
+     */
+    public byte[] encode(T value) {
+        long start = System.nanoTime();
+        try {
+            ByteArrayOutputStream bodyStream = new ByteArrayOutputStream(256);
+            try (DataOutputStream out = new DataOutputStream(bodyStream)) {
+                writeBody(value, out);
+            }
+            byte[] body = bodyStream.toByteArray();
+            int flags = 0;
+            if (body.length > COMPRESS_THRESHOLD_BYTES) {
+                byte[] compressed = compress(body);
+                if (compressed.length < body.length) {
+                    body = compressed;
+                    flags |= FLAG_COMPRESSED;
+                    compressedCount.increment();
+                }
+            }
+            byte[] result = new byte[HEADER_BYTES + body.length];
+            result[0] = getVersion();
+            result[1] = (byte) flags;
+            System.arraycopy(body, 0, result, HEADER_BYTES, body.length);
+            rawBytes.add(bodyStream.size());
+            encodedBytes.add(result.length);
+            return result;
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "缓存编码失败");
+        } finally {
+            encodeCount.increment();
+            encodeNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 解码
+     *
+     * @param bytes
+     * @return
+     */
+    public T decode(byte[] bytes) {
+        long start = System.nanoTime();
+        try {
+            if (bytes == null || bytes.length < HEADER_BYTES) {
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "缓存数据不完整");
+            }
+            byte version = bytes[0];
+            if (version <= 0 || version > getVersion()) {
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的缓存格式版本: " + version);
+            }
+            InputStream bodyStream = new ByteArrayInputStream(bytes, HEADER_BYTES, bytes.length - HEADER_BYTES);
+            if ((bytes[1] & FLAG_COMPRESSED) != 0) {
+                bodyStream = new InflaterInputStream(bodyStream);
+            }
+            try (DataInputStream in = new DataInputStream(bodyStream)) {
+                return readBody(version, in);
+            }
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "缓存解码失败");
+        } finally {
+            decodeCount.increment();
+            decodeNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 输出并重置统计信息
+     *
+     * @param name 编解码器名称
+     */
+    protected void reportStats(String name) {
+        long encodes = encodeCount.sumThenReset();
+        long decodes = decodeCount.sumThenReset();
+        long encodeTime = encodeNanos.sumThenReset();
+        long decodeTime = decodeNanos.sumThenReset();
+        long raw = rawBytes.sumThenReset();
+        long encoded = encodedBytes.sumThenReset();
+        long compressed = compressedCount.sumThenReset();
+        if (encodes == 0 && decodes == 0) {
+            return;
+        }
+        log.info("缓存编解码统计 [{}]：编码 {} 次，平均 {} 字节/条（压缩前 {} 字节），压缩 {} 次，平均编码 {} us；解码 {} 次，平均解码 {} us",
+                name, encodes, encodes == 0 ? 0 : encoded / encodes, encodes == 0 ? 0 : raw / encodes, compressed,
+                encodes == 0 ? 0 : encodeTime / encodes / 1000, decodes, decodes == 0 ? 0 : decodeTime / decodes / 1000);
+    }
+
+    private static byte[] compress(byte[] body) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(body.length / 2);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(outputStream, deflater)) {
+            out.write(body);
+        } finally {
+            deflater.end();
+        }
+        return outputStream.toByteArray();
+    }
+
+    // region 字段读写工具，均支持 null
+
+    protected static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    protected static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    protected static void writeStringList(DataOutputStream out, List<String> list) throws IOException {
+        if (list == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(list.size());
+        for (String value : list) {
+            writeString(out, value);
+        }
+    }
+
+    protected static List<String> readStringList(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readString(in));
+        }
+        return list;
+    }
+
+    protected static void writeLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    protected static Long readLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    protected static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeInt(value);
+        }
+    }
+
+    protected static Integer readInteger(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    protected static void writeDouble(DataOutputStream out, Double value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeDouble(value);
+        }
+    }
+
+    protected static Double readDouble(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readDouble() : null;
+    }
+
+    protected static void writeDate(DataOutputStream out, Date value) throws IOException {
+        writeLong(out, value == null ? null : value.getTime());
+    }
+
+    protected static Date readDate(DataInputStream in) throws IOException {
+        Long time = readLong(in);
+        return time == null ? null : new Date(time);
+    }
+
+    // endregion
+}
@@ -0,0 +1,296 @@
+package com.leo.leopicturebackend.manager.cache;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.RandomUtil;
+import cn.hutool.json.JSONUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.leo.leopicturebackend.config.RabbitConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 实体两级缓存（Caffeine + Redis），按 id 读穿
+ * 1. 每个 id 在 Redis 中维护一个版本号，写操作 INCR 版本号并删除缓存；读到数据库后只有版本号未变化才回填缓存，
+ * 避免“读旧数据 -> 写操作删缓存 -> 回填旧数据”导致的脏缓存
+ * 2. 不存在的 id 也会缓存一个空标记（短 TTL），防止缓存穿透
+ * 3. 写操作在事务提交后会再失效一次，并广播给所有节点删除本地缓存
+ * 4. 返回的是缓存对象的副本，调用方可以随意修改
+ *
+ * @param <T> 实体类型
+ */
+@Slf4j
+public class EntityCache<T> {
+
+    // 本地缓存过期时间，其它节点的修改最晚在这个时间后可见（正常情况下由广播立即失效）
+    private static final Duration LOCAL_TTL = Duration.ofSeconds(60);
+    // Redis 缓存过期时间：30 - 40 分钟，防止缓存雪崩
+    private static final int REDIS_TTL_SECONDS = 1800;
+    // 空标记的过期时间
+    private static final int NULL_TTL_SECONDS = 60;
+    // 版本号的过期时间，需要远大于缓存的过期时间
+    private static final int VERSION_TTL_SECONDS = 86400;
+    // 空标记
+    private static final String NULL_VALUE = "";
+
+    /**
+     * 版本号未变化时才写入缓存
+     */
+    private static final DefaultRedisScript<Long> SET_IF_VERSION_SCRIPT = new DefaultRedisScript<>(
+            "local version = redis.call('GET', KEYS[1]) or '0' " +
+                    "if version == ARGV[1] then redis.call('SET', KEYS[2], ARGV[2], 'EX', ARGV[3]) return 1 end " +
+                    "return 0", Long.class);
+
+    /**
+     * 递增版本号并删除缓存
+     */
+    private static final DefaultRedisScript<Long> INVALIDATE_SCRIPT = new DefaultRedisScript<>(
+            "local version = redis.call('INCR', KEYS[1]) " +
+                    "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+                    "redis.call('DEL', KEYS[2]) " +
+                    "return version", Long.class);
+
+    private final String name;
+
+    private final Class<T> entityClass;
+
+    private final Function<Collection<Long>, List<T>> loader;
+
+    private final Function<T, Long> idGetter;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final RabbitTemplate rabbitTemplate;
+
+    // Optional.empty() 表示数据库中不存在
+    private final Cache<Long, Optional<T>> localCache = Caffeine.newBuilder()
+            .maximumSize(10_000L)
+            .expireAfterWrite(LOCAL_TTL)
+            .build();
+
+    /**
+     * @param name                缓存名称，用于拼接 key 和广播
+     * @param entityClass         实体类型
+     * @param loader              按 id 批量查询数据库
+     * @param idGetter            获取实体 id
+     * @param stringRedisTemplate
+     * @param rabbitTemplate      用于广播本地缓存失效
+     */
+    public EntityCache(String name, Class<T> entityClass, Function<Collection<Long>, List<T>> loader,
+                       Function<T, Long> idGetter, StringRedisTemplate stringRedisTemplate,
+                       RabbitTemplate rabbitTemplate) {
+        this.name = name;
+        this.entityClass = entityClass;
+        this.loader = loader;
+        this.idGetter = idGetter;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.rabbitTemplate = rabbitTemplate;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 按 id 查询
+     *
+     * @param id
+     * @return 不存在返回 null
+     */
+    public T get(Long id) {
+        if (id == null) {
+            return null;
+        }
+        return getAll(Collections.singletonList(id)).get(id);
+    }
+
+    /**
+     * 按 id 批量查询
+     *
+     * @param ids
+     * @return id -> 实体，不存在的 id 不包含在结果中
+     */
+    public Map<Long, T> getAll(Collection<Long> ids) {
+        Map<Long, T> resultMap = new LinkedHashMap<>();
+        if (CollUtil.isEmpty(ids)) {
+            return resultMap;
+        }
+        // 1. 本地缓存
+        List<Long> missIdList = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            Optional<T> cached = localCache.getIfPresent(id);
+            if (cached == null) {
+                missIdList.add(id);
+            } else {
+                cached.ifPresent(entity -> resultMap.put(id, copy(entity)));
+            }
+        }
+        if (missIdList.isEmpty()) {
+            return resultMap;
+        }
+        // 2. Redis
+        try {
+            missIdList = getFromRedis(missIdList, resultMap);
+        } catch (Exception e) {
+            log.error("读取{}缓存失败，直接查询数据库", name, e);
+        }
+        if (missIdList.isEmpty()) {
+            return resultMap;
+        }
+        // 3. 数据库（查询前先记录版本号，回填时校验）
+        List<String> versionList = null;
+        try {
+            versionList = stringRedisTemplate.opsForValue().multiGet(
+                    missIdList.stream().map(this::versionKey).collect(Collectors.toList()));
+        } catch (Exception e) {
+            log.error("读取{}缓存版本号失败", name, e);
+        }
+        Map<Long, T> loadedMap = new HashMap<>();
+        for (T entity : loader.apply(missIdList)) {
+            loadedMap.put(idGetter.apply(entity), entity);
+        }
+        for (int i = 0; i < missIdList.size(); i++) {
+            Long id = missIdList.get(i);
+            T entity = loadedMap.get(id);
+            if (entity != null) {
+                resultMap.put(id, copy(entity));
+            }
+            if (versionList != null) {
+                String version = versionList.get(i) == null ? "0" : versionList.get(i);
+                fill(id, entity, version);
+            }
+        }
+        return resultMap;
+    }
+
+    /**
+     * 使缓存失效，在事务中调用时提交后会再失效一次
+     *
+     * @param id
+     */
+    public void evict(Long id) {
+        if (id == null) {
+            return;
+        }
+        evictAll(Collections.singletonList(id));
+    }
+
+    /**
+     * 批量使缓存失效，在事务中调用时提交后会再失效一次
+     *
+     * @param ids
+     */
+    public void evictAll(Collection<Long> ids) {
+        if (CollUtil.isEmpty(ids)) {
+            return;
+        }
+        List<Long> idList = new ArrayList<>(ids);
+        doEvict(idList);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doEvict(idList);
+                }
+            });
+        }
+    }
+
+    /**
+     * 只删除本节点的本地缓存（处理其它节点的失效广播）
+     *
+     * @param ids
+     */
+    public void evictLocal(Collection<Long> ids) {
+        localCache.invalidateAll(ids);
+    }
+
+    private void doEvict(List<Long> idList) {
+        localCache.invalidateAll(idList);
+        try {
+            for (Long id : idList) {
+                stringRedisTemplate.execute(INVALIDATE_SCRIPT, Arrays.asList(versionKey(id), valueKey(id)),
+                        String.valueOf(VERSION_TTL_SECONDS));
+            }
+        } catch (Exception e) {
+            log.error("删除{}缓存失败, ids: {}", name, idList, e);
+        }
+        // 广播失败不影响 Redis 中的数据，其它节点的本地缓存最晚在过期后更新
+        try {
+            Map<String, Object> message = new HashMap<>();
+            message.put("entity", name);
+            message.put("ids", new ArrayList<>(idList));
+            message.put("publishTime", System.currentTimeMillis());
+            rabbitTemplate.convertAndSend(RabbitConfig.CACHE_INVALIDATE_EXCHANGE, "", message);
+        } catch (Exception e) {
+            log.error("广播{}缓存失效消息失败, ids: {}", name, idList, e);
+        }
+    }
+
+    /**
+     * 从 Redis 批量读取，命中的放入结果并回填本地缓存
+     *
+     * @return 未命中的 id
+     */
+    private List<Long> getFromRedis(List<Long> idList, Map<Long, T> resultMap) {
+        List<String> valueList = stringRedisTemplate.opsForValue().multiGet(
+                idList.stream().map(this::valueKey).collect(Collectors.toList()));
+        if (valueList == null) {
+            return idList;
+        }
+        List<Long> missIdList = new ArrayList<>();
+        for (int i = 0; i < idList.size(); i++) {
+            Long id = idList.get(i);
+            String value = valueList.get(i);
+            if (value == null) {
+                missIdList.add(id);
+            } else if (NULL_VALUE.equals(value)) {
+                localCache.put(id, Optional.empty());
+            } else {
+                T entity = JSONUtil.toBean(value, entityClass);
+                localCache.put(id, Optional.of(entity));
+                resultMap.put(id, copy(entity));
+            }
+        }
+        return missIdList;
+    }
+
+    /**
+     * 版本号未变化时回填两级缓存
+     */
+    private void fill(Long id, T entity, String version) {
+        try {
+            String value = entity == null ? NULL_VALUE : JSONUtil.toJsonStr(entity);
+            int ttl = entity == null ? NULL_TTL_SECONDS : REDIS_TTL_SECONDS + RandomUtil.randomInt(0, 600);
+            Long result = stringRedisTemplate.execute(SET_IF_VERSION_SCRIPT, Arrays.asList(versionKey(id), valueKey(id)),
+                    version, value, String.valueOf(ttl));
+            if (result != null && result == 1) {
+                localCache.put(id, Optional.ofNullable(entity));
+            }
+        } catch (Exception e) {
+            log.error("回填{}缓存失败, id: {}", name, id, e);
+        }
+    }
+
+    private T copy(T entity) {
+        return BeanUtil.copyProperties(entity, entityClass);
+    }
+
+    private String valueKey(Long id) {
+        return "leopicture:entity:" + name + ":" + id;
+    }
+
+    private String versionKey(Long id) {
+        return "leopicture:entity:" + name + ":version:" + id;
+    }
+}
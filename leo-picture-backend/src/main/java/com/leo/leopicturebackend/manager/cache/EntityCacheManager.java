@@ -0,0 +1,81 @@
+package com.leo.leopicturebackend.manager.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.leo.leopicturebackend.mapper.PictureMapper;
+import com.leo.leopicturebackend.mapper.SpaceMapper;
+import com.leo.leopicturebackend.mapper.UserMapper;
+import com.leo.leopicturebackend.model.entity.Picture;
+import com.leo.leopicturebackend.model.entity.Space;
+import com.leo.leopicturebackend.model.entity.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * 实体缓存管理，直接基于 Mapper 加载，避免与 Service 循环依赖
+ */
+@Component
+public class EntityCacheManager {
+
+    @Resource
+    private PictureMapper pictureMapper;
+    @Resource
+    private SpaceMapper spaceMapper;
+    @Resource
+    private UserMapper userMapper;
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private RabbitTemplate rabbitTemplate;
+
+    private EntityCache<Picture> pictureCache;
+
+    private EntityCache<Space> spaceCache;
+
+    private EntityCache<User> userCache;
+
+    @PostConstruct
+    public void init() {
+        pictureCache = new EntityCache<>("picture", Picture.class, pictureMapper::selectBatchIds,
+                Picture::getId, stringRedisTemplate, rabbitTemplate);
+        spaceCache = new EntityCache<>("space", Space.class, spaceMapper::selectBatchIds,
+                Space::getId, stringRedisTemplate, rabbitTemplate);
+        // 用户缓存不保存密码
+        userCache = new EntityCache<>("user", User.class, ids -> userMapper.selectList(new QueryWrapper<User>()
+                .select(User.class, field -> !"userPassword".equals(field.getColumn()))
+                .in("id", ids)),
+                User::getId, stringRedisTemplate, rabbitTemplate);
+    }
+
+    public EntityCache<Picture> getPictureCache() {
+        return pictureCache;
+    }
+
+    public EntityCache<Space> getSpaceCache() {
+        return spaceCache;
+    }
+
+    public EntityCache<User> getUserCache() {
+        return userCache;
+    }
+
+    /**
+     * 处理其它节点的失效广播，只删除本地缓存
+     *
+     * @param name 缓存名称
+     * @param ids
+     */
+    public void evictLocal(String name, Collection<Long> ids) {
+        if (pictureCache.getName().equals(name)) {
+            pictureCache.evictLocal(ids);
+        } else if (spaceCache.getName().equals(name)) {
+            spaceCache.evictLocal(ids);
+        } else if (userCache.getName().equals(name)) {
+            userCache.evictLocal(ids);
+        }
+    }
+}
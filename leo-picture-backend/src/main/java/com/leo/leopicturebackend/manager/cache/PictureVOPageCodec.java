@@ -0,0 +1,220 @@
+package com.leo.leopicturebackend.manager.cache;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.leo.leopicturebackend.common.ApproximatePage;
+import com.leo.leopicturebackend.common.CursorPage;
+import com.leo.leopicturebackend.model.vo.PictureVO;
+import com.leo.leopicturebackend.model.vo.UserVO;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 图片分页缓存编解码器
+ * 按固定字段顺序写入，不保存字段名；同一页中重复的创建用户只写一次，记录中保存用户下标
+ * 版本 1：分页信息 + 用户表 + 图片记录
+ * 版本 2：增加估算总数分页类型（ApproximatePage）
+ */
+@Component
+public class PictureVOPageCodec extends CacheCodec<Page<PictureVO>> {
+
+    private static final byte VERSION = 2;
+
+    private static final byte TYPE_PAGE = 0;
+
+    private static final byte TYPE_CURSOR_PAGE = 1;
+
+    private static final byte TYPE_APPROXIMATE_PAGE = 2;
+
+    @Override
+    protected byte getVersion() {
+        return VERSION;
+    }
+
+    @Override
+    protected void writeBody(Page<PictureVO> page, DataOutputStream out) throws IOException {
+        // 1. 分页信息
+        boolean cursorPage = page instanceof CursorPage;
+        if (cursorPage) {
+            out.writeByte(TYPE_CURSOR_PAGE);
+        } else {
+            out.writeByte(page instanceof ApproximatePage ? TYPE_APPROXIMATE_PAGE : TYPE_PAGE);
+        }
+        out.writeLong(page.getCurrent());
+        out.writeLong(page.getSize());
+        out.writeLong(page.getTotal());
+        out.writeBoolean(page.searchCount());
+        if (cursorPage) {
+            CursorPage<PictureVO> pictureCursorPage = (CursorPage<PictureVO>) page;
+            writeString(out, pictureCursorPage.getNextCursor());
+            out.writeBoolean(pictureCursorPage.isHasMore());
+        }
+        List<PictureVO> records = page.getRecords() == null ? new ArrayList<>() : page.getRecords();
+        // 2. 用户表，按用户 id 去重
+        List<UserVO> userList = new ArrayList<>();
+        Map<Long, Integer> userIndexMap = new HashMap<>();
+        int[] recordUserIndexes = new int[records.size()];
+        for (int i = 0; i < records.size(); i++) {
+            UserVO user = records.get(i).getUser();
+            if (user == null) {
+                recordUserIndexes[i] = -1;
+                continue;
+            }
+            Integer index = user.getId() == null ? null : userIndexMap.get(user.getId());
+            if (index == null) {
+                index = userList.size();
+                userList.add(user);
+                if (user.getId() != null) {
+                    userIndexMap.put(user.getId(), index);
+                }
+            }
+            recordUserIndexes[i] = index;
+        }
+        out.writeInt(userList.size());
+        for (UserVO user : userList) {
+            writeUser(user, out);
+        }
+        // 3. 图片记录
+        out.writeInt(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            writePicture(records.get(i), out);
+            out.writeInt(recordUserIndexes[i]);
+        }
+    }
+
+    @Override
+    protected Page<PictureVO> readBody(byte version, DataInputStream in) throws IOException {
+        // 1. 分页信息
+        byte type = in.readByte();
+        long current = in.readLong();
+        long size = in.readLong();
+        long total = in.readLong();
+        boolean searchCount = in.readBoolean();
+        Page<PictureVO> page;
+        if (type == TYPE_CURSOR_PAGE) {
+            CursorPage<PictureVO> cursorPage = new CursorPage<>(size);
+            cursorPage.setNextCursor(readString(in));
+            cursorPage.setHasMore(in.readBoolean());
+            cursorPage.setCurrent(current);
+            cursorPage.setTotal(total);
+            cursorPage.setSearchCount(searchCount);
+            page = cursorPage;
+        } else if (type == TYPE_APPROXIMATE_PAGE) {
+            page = new ApproximatePage<>(current, size);
+            page.setTotal(total);
+        } else {
+            page = new Page<>(current, size, total, searchCount);
+        }
+        // 2. 用户表
+        int userCount = in.readInt();
+        List<UserVO> userList = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++) {
+            userList.add(readUser(in));
+        }
+        // 3. 图片记录
+        int recordCount = in.readInt();
+        List<PictureVO> records = new ArrayList<>(recordCount);
+        for (int i = 0; i < recordCount; i++) {
+            PictureVO pictureVO = readPicture(in);
+            int userIndex = in.readInt();
+            if (userIndex >= 0) {
+                pictureVO.setUser(userList.get(userIndex));
+            }
+            records.add(pictureVO);
+        }
+        page.setRecords(records);
+        return page;
+    }
+
+    /**
+     * 定期输出编解码统计
+     */
+    @Scheduled(initialDelay = 60_000, fixedRate = 60_000)
+    public void reportStats() {
+        reportStats("pictureVOPage");
+    }
+
+    private static void writePicture(PictureVO pictureVO, DataOutputStream out) throws IOException {
+        writeLong(out, pictureVO.getId());
+        writeString(out, pictureVO.getUrl());
+        writeString(out, pictureVO.getThumbnailUrl());
+        writeString(out, pictureVO.getName());
+        writeString(out, pictureVO.getIntroduction());
+        writeStringList(out, pictureVO.getTags());
+        writeString(out, pictureVO.getCategory());
+        writeLong(out, pictureVO.getPicSize());
+        writeInteger(out, pictureVO.getPicWidth());
+        writeInteger(out, pictureVO.getPicHeight());
+        writeDouble(out, pictureVO.getPicScale());
+        writeString(out, pictureVO.getPicFormat());
+        writeString(out, pictureVO.getPicColor());
+        writeLong(out, pictureVO.getUserId());
+        writeLong(out, pictureVO.getSpaceId());
+        writeDate(out, pictureVO.getCreateTime());
+        writeDate(out, pictureVO.getEditTime());
+        writeDate(out, pictureVO.getUpdateTime());
+        writeStringList(out, pictureVO.getPermissionList());
+    }
+
+    private static PictureVO readPicture(DataInputStream in) throws IOException {
+        PictureVO pictureVO = new PictureVO();
+        pictureVO.setId(readLong(in));
+        pictureVO.setUrl(readString(in));
+        pictureVO.setThumbnailUrl(readString(in));
+        pictureVO.setName(readString(in));
+        pictureVO.setIntroduction(readString(in));
+        pictureVO.setTags(readStringList(in));
+        pictureVO.setCategory(readString(in));
+        pictureVO.setPicSize(readLong(in));
+        pictureVO.setPicWidth(readInteger(in));
+        pictureVO.setPicHeight(readInteger(in));
+        pictureVO.setPicScale(readDouble(in));
+        pictureVO.setPicFormat(readString(in));
+        pictureVO.setPicColor(readString(in));
+        pictureVO.setUserId(readLong(in));
+        pictureVO.setSpaceId(readLong(in));
+        pictureVO.setCreateTime(readDate(in));
+        pictureVO.setEditTime(readDate(in));
+        pictureVO.setUpdateTime(readDate(in));
+        List<String> permissionList = readStringList(in);
+        pictureVO.setPermissionList(permissionList == null ? new ArrayList<>() : permissionList);
+        return pictureVO;
+    }
+
+    private static void writeUser(UserVO user, DataOutputStream out) throws IOException {
+        writeLong(out, user.getId());
+        writeString(out, user.getUserAccount());
+        writeString(out, user.getUserName());
+        writeString(out, user.getUserAvatar());
+        writeString(out, user.getUserProfile());
+        writeString(out, user.getUserRole());
+        writeDate(out, user.getVipExpireTime());
+        writeString(out, user.getVipCode());
+        writeLong(out, user.getVipNumber());
+        writeDate(out, user.getCreateTime());
+        writeString(out, user.getPhone());
+    }
+
+    private static UserVO readUser(DataInputStream in) throws IOException {
+        UserVO user = new UserVO();
+        user.setId(readLong(in));
+        user.setUserAccount(readString(in));
+        user.setUserName(readString(in));
+        user.setUserAvatar(readString(in));
+        user.setUserProfile(readString(in));
+        user.setUserRole(readString(in));
+        user.setVipExpireTime(readDate(in));
+        user.setVipCode(readString(in));
+        user.setVipNumber(readLong(in));
+        user.setCreateTime(readDate(in));
+        user.setPhone(readString(in));
+        return user;
+    }
+}
@@ -0,0 +1,20 @@
+package com.leo.leopicturebackend.manager.image;
+
+import lombok.Data;
+
+/**
+ * 本地提取的图片特征（图片由数据万象处理时使用）
+ */
+@Data
+public class ImageFeatures {
+
+    /**
+     * 色板，格式见 ColorPaletteUtils
+     */
+    private byte[] palette;
+
+    /**
+     * 感知哈希（dHash）
+     */
+    private Long perceptualHash;
+}
@@ -0,0 +1,50 @@
+package com.leo.leopicturebackend.manager.image;
+
+import lombok.Data;
+
+/**
+ * 本地图片处理结果
+ */
+@Data
+public class ImageProcessResult {
+
+    /**
+     * 图片宽度
+     */
+    private int width;
+
+    /**
+     * 图片高度
+     */
+    private int height;
+
+    /**
+     * 图片格式
+     */
+    private String format;
+
+    /**
+     * 主色调（0xrrggbb）
+     */
+    private String color;
+
+    /**
+     * 色板，格式见 ColorPaletteUtils
+     */
+    private byte[] palette;
+
+    /**
+     * 感知哈希（dHash）
+     */
+    private Long perceptualHash;
+
+    /**
+     * 缩略图内容，不需要缩略图时为 null
+     */
+    private byte[] thumbnail;
+
+    /**
+     * 缩略图格式
+     */
+    private String thumbnailFormat;
+}
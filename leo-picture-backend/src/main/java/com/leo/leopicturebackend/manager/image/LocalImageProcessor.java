@@ -0,0 +1,382 @@
+package com.leo.leopicturebackend.manager.image;
+
+import com.leo.leopicturebackend.config.ImageProcessConfig;
+import com.leo.leopicturebackend.exception.BusinessException;
+import com.leo.leopicturebackend.exception.ErrorCode;
+import com.leo.leopicturebackend.utils.ColorPaletteUtils;
+import com.leo.leopicturebackend.utils.ColorSimilarUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地图片处理（代替数据万象）
+ * 1. 只读取文件头获取宽高和格式，不完整解码
+ * 2. 按缩略图尺寸降采样解码一次，同时用于计算主色调、色板、感知哈希和生成缩略图，大图也不会占用太多内存
+ * 3. 在固定大小的线程池中执行，限制同时处理的图片数量，队列满时由上传线程自己处理（反压）
+ * JDK 自带的 ImageIO 不支持 webp，无法解码的图片返回 null，由调用方回退到数据万象处理
+ */
+@Slf4j
+@Component
+public class LocalImageProcessor {
+
+    @Resource
+    private ImageProcessConfig imageProcessConfig;
+
+    // 单张图片处理超时时间
+    private static final long PROCESS_TIMEOUT_SECONDS = 30;
+    // 计算主色调时最多采样的像素数
+    private static final int MAX_COLOR_SAMPLES = 4096;
+    // 只提取色板时，解码后的最长边
+    private static final int PALETTE_DECODE_SIZE = 256;
+    // 色板中两种颜色的最小色差（ΔE），更接近的颜色区间合并为一种颜色
+    private static final double PALETTE_MERGE_DELTA_E = 12;
+    // 占比低于该值的颜色不进入色板
+    private static final double PALETTE_MIN_WEIGHT = 0.02;
+    // 计算感知哈希时最多采样的像素数
+    private static final int MAX_HASH_SAMPLES = 65536;
+
+    private ThreadPoolExecutor processExecutor;
+
+    @PostConstruct
+    public void init() {
+        int threads = Math.max(1, imageProcessConfig.getThreads());
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        processExecutor = new ThreadPoolExecutor(threads, threads,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(imageProcessConfig.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-process-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        processExecutor.shutdown();
+    }
+
+    /**
+     * 是否开启本地图片处理
+     */
+    public boolean isEnabled() {
+        return imageProcessConfig.isEnabled();
+    }
+
+    /**
+     * 处理图片：解析宽高、格式、主色调，按需生成缩略图
+     *
+     * @param content 图片内容
+     * @return 无法解码的格式返回 null
+     */
+    public ImageProcessResult process(byte[] content) {
+        Future<ImageProcessResult> future = processExecutor.submit(() -> doProcess(content));
+        try {
+            return future.get(PROCESS_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "图片处理超时");
+        } catch (ExecutionException e) {
+            log.error("本地图片处理失败", e.getCause());
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "图片处理失败");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "图片处理被中断");
+        }
+    }
+
+    /**
+     * 只提取色板和感知哈希（图片由数据万象处理时使用），失败不影响上传
+     *
+     * @param content 图片内容
+     * @return 无法解码或处理失败时返回 null
+     */
+    public ImageFeatures extractFeatures(byte[] content) {
+        Future<ImageFeatures> future = processExecutor.submit(() -> doExtractFeatures(content));
+        try {
+            return future.get(PROCESS_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("提取图片特征超时");
+        } catch (ExecutionException e) {
+            log.warn("提取图片特征失败", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private ImageFeatures doExtractFeatures(byte[] content) {
+        try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInputStream, true, true);
+                int subsampling = Math.max(1, Math.max(reader.getWidth(0), reader.getHeight(0)) / PALETTE_DECODE_SIZE);
+                ImageReadParam readParam = reader.getDefaultReadParam();
+                readParam.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage image = reader.read(0, readParam);
+                ImageFeatures features = new ImageFeatures();
+                features.setPalette(computePalette(image));
+                features.setPerceptualHash(computePerceptualHash(image));
+                return features;
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            log.warn("本地无法解析图片，跳过特征提取: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private ImageProcessResult doProcess(byte[] content) {
+        try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInputStream, true, true);
+                // 1. 只读取文件头
+                ImageProcessResult result = new ImageProcessResult();
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                result.setWidth(width);
+                result.setHeight(height);
+                result.setFormat(reader.getFormatName().toLowerCase());
+                // 2. 降采样解码，保证解码后的最长边不小于缩略图边长的 2 倍，缩放后仍然清晰
+                int thumbnailSize = imageProcessConfig.getThumbnailSize();
+                int subsampling = Math.max(1, Math.max(width, height) / (thumbnailSize * 2));
+                ImageReadParam readParam = reader.getDefaultReadParam();
+                readParam.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage image = reader.read(0, readParam);
+                // 3. 主色调、色板和感知哈希
+                result.setColor(computeDominantColor(image));
+                result.setPalette(computePalette(image));
+                result.setPerceptualHash(computePerceptualHash(image));
+                // 4. 缩略图（仅缩小，不放大）
+                if (content.length > imageProcessConfig.getThumbnailMinBytes()
+                        && Math.max(width, height) > thumbnailSize) {
+                    boolean hasAlpha = image.getColorModel().hasAlpha();
+                    String thumbnailFormat = hasAlpha ? "png" : "jpg";
+                    result.setThumbnail(createThumbnail(image, thumbnailSize, hasAlpha, thumbnailFormat));
+                    result.setThumbnailFormat(thumbnailFormat);
+                }
+                return result;
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            // 如 CMYK 的 JPEG 等 ImageIO 不支持的编码
+            log.warn("本地无法解析图片，回退到数据万象处理: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 计算主色调：按每通道 4 位量化后取出现次数最多的颜色区间，返回区间内像素的平均色
+     */
+    private static String computeDominantColor(BufferedImage image) {
+        int[] counts = new int[4096];
+        long[] sums = new long[4096 * 3];
+        sampleColors(image, counts, sums);
+        int maxBucket = -1;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0 && (maxBucket < 0 || counts[i] > counts[maxBucket])) {
+                maxBucket = i;
+            }
+        }
+        if (maxBucket < 0) {
+            // 全透明
+            return "0xffffff";
+        }
+        int count = counts[maxBucket];
+        return String.format("0x%02x%02x%02x", sums[maxBucket * 3] / count, sums[maxBucket * 3 + 1] / count,
+                sums[maxBucket * 3 + 2] / count);
+    }
+
+    /**
+     * 计算色板：颜色区间按像素数从多到少依次处理，与已选颜色的色差小于 PALETTE_MERGE_DELTA_E 时并入该颜色，
+     * 否则作为新的颜色，最多 MAX_COLORS 种，占比为颜色的像素数 / 采样的像素数
+     *
+     * @return 全透明时返回 null
+     */
+    private static byte[] computePalette(BufferedImage image) {
+        int[] counts = new int[4096];
+        long[] sums = new long[4096 * 3];
+        int total = sampleColors(image, counts, sums);
+        if (total == 0) {
+            return null;
+        }
+        Integer[] buckets = new Integer[counts.length];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = i;
+        }
+        Arrays.sort(buckets, (a, b) -> Integer.compare(counts[b], counts[a]));
+        int maxColors = ColorPaletteUtils.MAX_COLORS;
+        int[] rgbs = new int[maxColors];
+        double[][] labs = new double[maxColors][];
+        long[] colorCounts = new long[maxColors];
+        int size = 0;
+        for (int bucket : buckets) {
+            int count = counts[bucket];
+            if (count == 0) {
+                break;
+            }
+            int rgb = (int) (sums[bucket * 3] / count) << 16 | (int) (sums[bucket * 3 + 1] / count) << 8
+                    | (int) (sums[bucket * 3 + 2] / count);
+            double[] lab = ColorSimilarUtils.rgbToLab(rgb);
+            int nearest = -1;
+            double nearestDistance = PALETTE_MERGE_DELTA_E;
+            for (int i = 0; i < size; i++) {
+                double distance = deltaE(lab, labs[i]);
+                if (distance < nearestDistance) {
+                    nearest = i;
+                    nearestDistance = distance;
+                }
+            }
+            if (nearest >= 0) {
+                colorCounts[nearest] += count;
+            } else if (size < maxColors) {
+                rgbs[size] = rgb;
+                labs[size] = lab;
+                colorCounts[size] = count;
+                size++;
+            }
+        }
+        // 合并后按占比重新排序，过滤占比过低的颜色（至少保留一种）
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(colorCounts[b], colorCounts[a]));
+        int[] sortedRgbs = new int[size];
+        double[] weights = new double[size];
+        int paletteSize = 0;
+        for (int i : order) {
+            double weight = (double) colorCounts[i] / total;
+            if (paletteSize > 0 && weight < PALETTE_MIN_WEIGHT) {
+                break;
+            }
+            sortedRgbs[paletteSize] = rgbs[i];
+            weights[paletteSize] = weight;
+            paletteSize++;
+        }
+        return ColorPaletteUtils.encode(sortedRgbs, weights, paletteSize);
+    }
+
+    /**
+     * 计算感知哈希（dHash）：按区域平均缩小为 9 x 8 的灰度图，每行相邻像素比较亮度得到 64 位
+     * 对缩放、压缩、轻微调色不敏感，汉明距离越小越相似；半透明像素按白色背景混合
+     */
+    static long computePerceptualHash(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int step = Math.max(1, (int) Math.sqrt((double) width * height / MAX_HASH_SAMPLES));
+        double[] sums = new double[9 * 8];
+        int[] counts = new int[9 * 8];
+        for (int y = 0; y < height; y += step) {
+            int row = y * 8 / height;
+            for (int x = 0; x < width; x += step) {
+                int argb = image.getRGB(x, y);
+                double alpha = (argb >>> 24) / 255.0;
+                double luminance = 0.299 * ((argb >> 16) & 0xFF) + 0.587 * ((argb >> 8) & 0xFF) + 0.114 * (argb & 0xFF);
+                int cell = row * 9 + x * 9 / width;
+                sums[cell] += luminance * alpha + 255 * (1 - alpha);
+                counts[cell]++;
+            }
+        }
+        long hash = 0;
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                int cell = row * 9 + col;
+                double left = sums[cell] / Math.max(1, counts[cell]);
+                double right = sums[cell + 1] / Math.max(1, counts[cell + 1]);
+                hash = (hash << 1) | (left > right ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    private static double deltaE(double[] lab1, double[] lab2) {
+        double dl = lab1[0] - lab2[0];
+        double da = lab1[1] - lab2[1];
+        double db = lab1[2] - lab2[2];
+        return Math.sqrt(dl * dl + da * da + db * db);
+    }
+
+    /**
+     * 采样像素并按每通道 4 位量化统计：跳过半透明像素，按步长采样，最多采样 MAX_COLOR_SAMPLES 个像素
+     *
+     * @param counts 区间 -> 像素数
+     * @param sums   区间 -> 像素 RGB 分量之和
+     * @return 采样的像素数
+     */
+    private static int sampleColors(BufferedImage image, int[] counts, long[] sums) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int step = Math.max(1, (int) Math.sqrt((double) width * height / MAX_COLOR_SAMPLES));
+        int total = 0;
+        for (int y = 0; y < height; y += step) {
+            for (int x = 0; x < width; x += step) {
+                int argb = image.getRGB(x, y);
+                if ((argb >>> 24) < 128) {
+                    continue;
+                }
+                int r = (argb >> 16) & 0xFF;
+                int g = (argb >> 8) & 0xFF;
+                int b = argb & 0xFF;
+                int bucket = ((r >> 4) << 8) | ((g >> 4) << 4) | (b >> 4);
+                counts[bucket]++;
+                sums[bucket * 3] += r;
+                sums[bucket * 3 + 1] += g;
+                sums[bucket * 3 + 2] += b;
+                total++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 等比缩放到不超过 size x size
+     */
+    private static byte[] createThumbnail(BufferedImage image, int size, boolean hasAlpha, String format) throws IOException {
+        double scale = Math.min(1.0, Math.min((double) size / image.getWidth(), (double) size / image.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage thumbnail = new BufferedImage(targetWidth, targetHeight,
+                hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(thumbnail, format, outputStream);
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,116 @@
+package com.leo.leopicturebackend.manager.importjob;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.URLUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.leo.leopicturebackend.exception.BusinessException;
+import com.leo.leopicturebackend.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 图片搜索抓取（必应图片）
+ * 按页抓取搜索结果，解析原图地址，直到凑够需要的数量或没有更多结果
+ */
+@Slf4j
+@Component
+public class ImageSearchFetcher {
+
+    private static final String FETCH_URL = "https://cn.bing.com/images/async?q=%s&mmasync=1&first=%d&count=%d";
+
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36";
+
+    // 每页请求的结果数
+    private static final int PAGE_SIZE = 35;
+
+    // 两页之间的间隔，避免请求过快
+    private static final long PAGE_INTERVAL_MS = 500;
+
+    /**
+     * 抓取图片地址
+     *
+     * @param searchText 搜索词
+     * @param count      需要的数量
+     * @return 去重后的图片地址，数量不超过 count
+     */
+    public List<String> fetch(String searchText, int count) {
+        Set<String> urlSet = new LinkedHashSet<>();
+        // 最多多翻几页，跳过解析失败和重复的结果
+        int maxPages = count / PAGE_SIZE + 3;
+        for (int page = 0; page < maxPages && urlSet.size() < count; page++) {
+            if (page > 0) {
+                try {
+                    Thread.sleep(PAGE_INTERVAL_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            List<String> pageUrls = fetchPage(searchText, page * PAGE_SIZE);
+            if (pageUrls.isEmpty()) {
+                break;
+            }
+            for (String url : pageUrls) {
+                urlSet.add(url);
+                if (urlSet.size() >= count) {
+                    break;
+                }
+            }
+        }
+        return new ArrayList<>(urlSet);
+    }
+
+    private List<String> fetchPage(String searchText, int offset) {
+        String fetchUrl = String.format(FETCH_URL, URLUtil.encodeAll(searchText), offset, PAGE_SIZE);
+        Document document;
+        try {
+            document = Jsoup.connect(fetchUrl)
+                    .userAgent(USER_AGENT)
+                    .referrer("https://cn.bing.com")
+                    .timeout(10000)
+                    .maxBodySize(0)
+                    .get();
+        } catch (IOException e) {
+            log.error("图片抓取失败, url = {}", fetchUrl, e);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "图片抓取失败");
+        }
+        // 从 dgControl 元素中选择所有 iusc 元素，原图地址在 m 属性的 murl 中
+        Element div = document.getElementsByClass("dgControl").first();
+        if (div == null) {
+            return new ArrayList<>();
+        }
+        Elements imgElementList = div.select(".iusc");
+        List<String> urlList = new ArrayList<>(imgElementList.size());
+        for (Element element : imgElementList) {
+            String fileUrl;
+            try {
+                JSONObject jsonObject = JSONUtil.parseObj(element.attr("m"));
+                fileUrl = jsonObject.getStr("murl");
+            } catch (Exception e) {
+                log.warn("图片解析失败：{}", e.getMessage());
+                continue;
+            }
+            if (StrUtil.isBlank(fileUrl)) {
+                continue;
+            }
+            // 处理图片地址，防止转义或者和对象存储冲突
+            int questionMarkIndex = fileUrl.indexOf("?");
+            if (questionMarkIndex > -1) {
+                fileUrl = fileUrl.substring(0, questionMarkIndex);
+            }
+            urlList.add(fileUrl);
+        }
+        return urlList;
+    }
+}
@@ -0,0 +1,454 @@
+package com.leo.leopicturebackend.manager.importjob;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.URLUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.leo.leopicturebackend.config.ImportJobConfig;
+import com.leo.leopicturebackend.exception.BusinessException;
+import com.leo.leopicturebackend.exception.ErrorCode;
+import com.leo.leopicturebackend.exception.RetryableException;
+import com.leo.leopicturebackend.exception.ThrowUtils;
+import com.leo.leopicturebackend.mapper.ImportJobItemMapper;
+import com.leo.leopicturebackend.mapper.ImportJobMapper;
+import com.leo.leopicturebackend.model.dto.picture.PictureUploadRequest;
+import com.leo.leopicturebackend.model.entity.ImportJob;
+import com.leo.leopicturebackend.model.entity.ImportJobItem;
+import com.leo.leopicturebackend.model.entity.User;
+import com.leo.leopicturebackend.model.enums.ImportJobItemStatusEnum;
+import com.leo.leopicturebackend.model.enums.ImportJobStatusEnum;
+import com.leo.leopicturebackend.model.vo.ImportJobVO;
+import com.leo.leopicturebackend.model.vo.PictureVO;
+import com.leo.leopicturebackend.service.PictureService;
+import com.leo.leopicturebackend.service.UserService;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 图片批量导入任务
+ * 1. 创建任务后立即返回任务 id，在后台抓取搜索结果，每张图片保存为一条任务项
+ * 2. 调度器定期领取到期的任务项（条件更新，多实例不会重复领取），在常驻的 pictureUploadExecutor 中导入：
+ *    每个实例同时导入的数量有上限，同一来源站点限制并发数和请求间隔
+ * 3. 网络、云存储等临时错误（RetryableException 及其它非业务异常）按指数退避重试，业务校验失败（格式、大小、额度等）直接失败
+ * 4. 任务状态和每张图片的结果都保存在数据库中，实例重启后未完成的任务项会重新排队
+ */
+@Slf4j
+@Component
+public class ImportJobManager {
+
+    @Resource
+    private ImportJobMapper importJobMapper;
+
+    @Resource
+    private ImportJobItemMapper importJobItemMapper;
+
+    @Resource
+    private ImportJobConfig importJobConfig;
+
+    @Resource
+    private ImageSearchFetcher imageSearchFetcher;
+
+    @Resource
+    @Lazy
+    private PictureService pictureService;
+
+    @Resource
+    private UserService userService;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    @Resource(name = "pictureUploadExecutor")
+    private ThreadPoolExecutor pictureUploadExecutor;
+
+    // 导入中的任务，只有这些任务的任务项可以重新排队
+    private static final String RUNNING_JOB_SQL = "select id from import_job where status = "
+            + ImportJobStatusEnum.RUNNING.getValue();
+    // 已取消的任务
+    private static final String CANCELLED_JOB_SQL = "select id from import_job where status = "
+            + ImportJobStatusEnum.CANCELLED.getValue();
+
+    // 本实例正在导入的图片数
+    private final AtomicInteger inFlightCount = new AtomicInteger();
+
+    // 每个来源站点的并发数和下次允许请求的时间
+    private final Map<String, HostPermit> hostPermitMap = new ConcurrentHashMap<>();
+
+    // 导入统计，定期输出后重新统计
+    private final LongAdder succeededCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder retriedCount = new LongAdder();
+
+    /**
+     * 创建导入任务，抓取在后台执行
+     *
+     * @param userId     创建用户 id
+     * @param searchText 搜索词
+     * @param namePrefix 图片名称前缀
+     * @param count      导入数量
+     * @return 任务 id
+     */
+    public Long createJob(Long userId, String searchText, String namePrefix, int count) {
+        ThrowUtils.throwIf(count <= 0 || count > importJobConfig.getMaxItemsPerJob(), ErrorCode.PARAMS_ERROR,
+                String.format("最多%d条", importJobConfig.getMaxItemsPerJob()));
+        ImportJob importJob = new ImportJob();
+        importJob.setUserId(userId);
+        importJob.setSearchText(searchText);
+        importJob.setNamePrefix(namePrefix);
+        importJob.setRequestCount(count);
+        importJob.setStatus(ImportJobStatusEnum.FETCHING.getValue());
+        importJob.setTotalCount(0);
+        importJob.setSuccessCount(0);
+        importJob.setFailCount(0);
+        importJobMapper.insert(importJob);
+        pictureUploadExecutor.execute(() -> fetchJob(importJob));
+        return importJob.getId();
+    }
+
+    /**
+     * 获取任务进度
+     *
+     * @param jobId  任务 id
+     * @param userId 查询用户 id，只能查询自己的任务
+     */
+    public ImportJobVO getJob(Long jobId, Long userId) {
+        ImportJob importJob = getOwnJob(jobId, userId);
+        ImportJobVO importJobVO = new ImportJobVO();
+        BeanUtils.copyProperties(importJob, importJobVO);
+        ImportJobStatusEnum statusEnum = ImportJobStatusEnum.getEnumByValue(importJob.getStatus());
+        importJobVO.setFinished(statusEnum != null && statusEnum.isFinished());
+        return importJobVO;
+    }
+
+    /**
+     * 取消任务：未开始的图片不再导入，正在导入的图片继续完成
+     *
+     * @param jobId  任务 id
+     * @param userId 操作用户 id，只能取消自己的任务
+     */
+    public void cancelJob(Long jobId, Long userId) {
+        getOwnJob(jobId, userId);
+        transactionTemplate.execute(status -> {
+            int updated = importJobMapper.update(null, new LambdaUpdateWrapper<ImportJob>()
+                    .eq(ImportJob::getId, jobId)
+                    .in(ImportJob::getStatus, ImportJobStatusEnum.FETCHING.getValue(), ImportJobStatusEnum.RUNNING.getValue())
+                    .set(ImportJob::getStatus, ImportJobStatusEnum.CANCELLED.getValue()));
+            ThrowUtils.throwIf(updated == 0, ErrorCode.OPERATION_ERROR, "任务已结束");
+            importJobItemMapper.update(null, new LambdaUpdateWrapper<ImportJobItem>()
+                    .eq(ImportJobItem::getJobId, jobId)
+                    .eq(ImportJobItem::getStatus, ImportJobItemStatusEnum.WAITING.getValue())
+                    .set(ImportJobItem::getStatus, ImportJobItemStatusEnum.CANCELLED.getValue()));
+            return true;
+        });
+    }
+
+    /**
+     * 领取到期的任务项并提交导入，每次最多领取空闲的并发数
+     */
+    @Scheduled(initialDelay = 10_000, fixedDelay = 1_000)
+    public void dispatch() {
+        int available = importJobConfig.getMaxConcurrency() - inFlightCount.get();
+        if (available <= 0) {
+            return;
+        }
+        try {
+            // 多取一些候选，跳过来源站点已达上限的任务项
+            List<ImportJobItem> candidateList = importJobItemMapper.selectList(new LambdaQueryWrapper<ImportJobItem>()
+                    .eq(ImportJobItem::getStatus, ImportJobItemStatusEnum.WAITING.getValue())
+                    .le(ImportJobItem::getNextRetryTime, new Date())
+                    .orderByAsc(ImportJobItem::getId)
+                    .last("limit " + available * 4));
+            Map<Long, User> userMap = new HashMap<>();
+            for (ImportJobItem item : candidateList) {
+                if (available <= 0) {
+                    break;
+                }
+                String host = getHost(item.getSourceUrl());
+                HostPermit hostPermit = hostPermitMap.computeIfAbsent(host, key -> new HostPermit());
+                if (!hostPermit.tryAcquire(importJobConfig.getPerHostConcurrency(), importJobConfig.getPerHostIntervalMs())) {
+                    continue;
+                }
+                if (!claimItem(item)) {
+                    hostPermit.release();
+                    continue;
+                }
+                User user = userMap.computeIfAbsent(item.getJobId(), this::getJobUser);
+                inFlightCount.incrementAndGet();
+                available--;
+                try {
+                    pictureUploadExecutor.execute(() -> runItem(item, user, hostPermit));
+                } catch (Exception e) {
+                    // 线程池已关闭（实例停止中），任务项由超时恢复重新排队
+                    inFlightCount.decrementAndGet();
+                    hostPermit.release();
+                    log.warn("提交导入任务项失败, itemId = {}", item.getId(), e);
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("调度导入任务失败", e);
+        }
+    }
+
+    /**
+     * 每分钟恢复异常中断的任务，并输出导入统计和线程池状态
+     */
+    @Scheduled(initialDelay = 60_000, fixedRate = 60_000)
+    public void recoverAndReport() {
+        try {
+            Date staleTime = new Date(System.currentTimeMillis() - importJobConfig.getStaleTimeoutMs());
+            // 导入中的任务项长时间未完成（实例异常退出），重新排队；所属任务已取消的直接取消
+            int requeued = importJobItemMapper.update(null, new LambdaUpdateWrapper<ImportJobItem>()
+                    .eq(ImportJobItem::getStatus, ImportJobItemStatusEnum.RUNNING.getValue())
+                    .lt(ImportJobItem::getUpdateTime, staleTime)
+                    .inSql(ImportJobItem::getJobId, RUNNING_JOB_SQL)
+                    .set(ImportJobItem::getStatus, ImportJobItemStatusEnum.WAITING.getValue())
+                    .set(ImportJobItem::getNextRetryTime, new Date())
+                    .setSql("retryCount = retryCount + 1"));
+            importJobItemMapper.update(null, new LambdaUpdateWrapper<ImportJobItem>()
+                    .eq(ImportJobItem::getStatus, ImportJobItemStatusEnum.RUNNING.getValue())
+                    .lt(ImportJobItem::getUpdateTime, staleTime)
+                    .inSql(ImportJobItem::getJobId, CANCELLED_JOB_SQL)
+                    .set(ImportJobItem::getStatus, ImportJobItemStatusEnum.CANCELLED.getValue()));
+            // 抓取中的任务长时间未完成，标记失败
+            int failedJobs = importJobMapper.update(null, new LambdaUpdateWrapper<ImportJob>()
+                    .eq(ImportJob::getStatus, ImportJobStatusEnum.FETCHING.getValue())
+                    .lt(ImportJob::getUpdateTime, staleTime)
+                    .set(ImportJob::getStatus, ImportJobStatusEnum.FAILED.getValue())
+                    .set(ImportJob::getErrorMessage, "抓取中断"));
+            if (requeued > 0 || failedJobs > 0) {
+                log.warn("恢复中断的导入任务: 重新排队 {} 张图片, 标记失败 {} 个任务", requeued, failedJobs);
+            }
+        } catch (Exception e) {
+            log.error("恢复导入任务失败", e);
+        }
+        long succeeded = succeededCount.sumThenReset();
+        long failed = failedCount.sumThenReset();
+        long retried = retriedCount.sumThenReset();
+        if (succeeded > 0 || failed > 0 || retried > 0 || inFlightCount.get() > 0) {
+            log.info("图片导入统计（近 1 分钟）: 成功 {} 张, 失败 {} 张, 重试 {} 次, 导入中 {} 张 | 线程池 活跃线程数: {}, 队列大小: {}, 已完成任务数: {}",
+                    succeeded, failed, retried, inFlightCount.get(), pictureUploadExecutor.getActiveCount(),
+                    pictureUploadExecutor.getQueue().size(), pictureUploadExecutor.getCompletedTaskCount());
+        }
+        // 清理空闲的来源站点记录
+        hostPermitMap.entrySet().removeIf(entry -> entry.getValue().isIdle());
+    }
+
+    private void fetchJob(ImportJob importJob) {
+        Long jobId = importJob.getId();
+        List<String> urlList;
+        try {
+            urlList = imageSearchFetcher.fetch(importJob.getSearchText(), importJob.getRequestCount());
+        } catch (Exception e) {
+            String errorMessage = e instanceof BusinessException ? e.getMessage() : "图片抓取失败";
+            log.error("导入任务抓取失败, jobId = {}", jobId, e);
+            importJobMapper.update(null, new LambdaUpdateWrapper<ImportJob>()
+                    .eq(ImportJob::getId, jobId)
+                    .eq(ImportJob::getStatus, ImportJobStatusEnum.FETCHING.getValue())
+                    .set(ImportJob::getStatus, ImportJobStatusEnum.FAILED.getValue())
+                    .set(ImportJob::getErrorMessage, errorMessage));
+            return;
+        }
+        // 任务状态和任务项在同一事务中写入，与取消操作互斥
+        transactionTemplate.execute(status -> {
+            ImportJobStatusEnum nextStatus = urlList.isEmpty() ? ImportJobStatusEnum.SUCCEEDED : ImportJobStatusEnum.RUNNING;
+            int updated = importJobMapper.update(null, new LambdaUpdateWrapper<ImportJob>()
+                    .eq(ImportJob::getId, jobId)
+                    .eq(ImportJob::getStatus, ImportJobStatusEnum.FETCHING.getValue())
+                    .set(ImportJob::getStatus, nextStatus.getValue())
+                    .set(ImportJob::getTotalCount, urlList.size()));
+            if (updated == 0 || urlList.isEmpty()) {
+                // 抓取期间任务已取消
+                return false;
+            }
+            List<ImportJobItem> itemList = new ArrayList<>(urlList.size());
+            Date now = new Date();
+            for (int i = 0; i < urlList.size(); i++) {
+                ImportJobItem item = new ImportJobItem();
+                item.setJobId(jobId);
+                item.setSourceUrl(urlList.get(i));
+                item.setPicName(importJob.getNamePrefix() + (i + 1));
+                item.setStatus(ImportJobItemStatusEnum.WAITING.getValue());
+                item.setRetryCount(0);
+                item.setNextRetryTime(now);
+                itemList.add(item);
+            }
+            importJobItemMapper.insert(itemList);
+            return true;
+        });
+    }
+
+    void runItem(ImportJobItem item, User user, HostPermit hostPermit) {
+        try {
+            ThrowUtils.throwIf(user == null, ErrorCode.NOT_FOUND_ERROR, "任务创建用户不存在");
+            PictureUploadRequest pictureUploadRequest = new PictureUploadRequest();
+            pictureUploadRequest.setFileUrl(item.getSourceUrl());
+            pictureUploadRequest.setPicName(item.getPicName());
+            // 入库成功但之后失败（如超时）时，重试直接返回第一次的结果，不会重复导入
+            pictureUploadRequest.setIdempotencyKey("import-" + item.getId());
+            PictureVO pictureVO = pictureService.uploadPicture(item.getSourceUrl(), pictureUploadRequest, user);
+            markSucceeded(item, pictureVO.getId());
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (e instanceof BusinessException && !(e instanceof RetryableException)) {
+                // 业务校验失败（格式、大小、额度等），重试也不会成功
+                markFailed(item, e.getMessage());
+            } else if (item.getRetryCount() < importJobConfig.getMaxRetries()) {
+                log.warn("图片导入失败，稍后重试, itemId = {}, url = {}, 原因: {}", item.getId(), item.getSourceUrl(), e.getMessage());
+                markRetry(item, e.getMessage());
+            } else {
+                log.error("图片导入最终失败, itemId = {}, url = {}", item.getId(), item.getSourceUrl(), e);
+                markFailed(item, "图片导入失败");
+            }
+        } finally {
+            hostPermit.release();
+            inFlightCount.decrementAndGet();
+            tryFinishJob(item.getJobId());
+        }
+    }
+
+    private boolean claimItem(ImportJobItem item) {
+        return importJobItemMapper.update(null, new LambdaUpdateWrapper<ImportJobItem>()
+                .eq(ImportJobItem::getId, item.getId())
+                .eq(ImportJobItem::getStatus, ImportJobItemStatusEnum.WAITING.getValue())
+                .set(ImportJobItem::getStatus, ImportJobItemStatusEnum.RUNNING.getValue())) > 0;
+    }
+
+    private void markSucceeded(ImportJobItem item, Long pictureId) {
+        succeededCount.increment();
+        int updated = importJobItemMapper.update(null, new LambdaUpdateWrapper<ImportJobItem>()
+                .eq(ImportJobItem::getId, item.getId())
+                .eq(ImportJobItem::getStatus, ImportJobItemStatusEnum.RUNNING.getValue())
+                .set(ImportJobItem::getStatus, ImportJobItemStatusEnum.SUCCEEDED.getValue())
+                .set(ImportJobItem::getPictureId, pictureId)
+                .set(ImportJobItem::getErrorMessage, null));
+        if (updated > 0) {
+            importJobMapper.update(null, new LambdaUpdateWrapper<ImportJob>()
+                    .eq(ImportJob::getId, item.getJobId())
+                    .setSql("successCount = successCount + 1"));
+        }
+    }
+
+    private void markFailed(ImportJobItem item, String errorMessage) {
+        failedCount.increment();
+        int updated = importJobItemMapper.update(null, new LambdaUpdateWrapper<ImportJobItem>()
+                .eq(ImportJobItem::getId, item.getId())
+                .eq(ImportJobItem::getStatus, ImportJobItemStatusEnum.RUNNING.getValue())
+                .set(ImportJobItem::getStatus, ImportJobItemStatusEnum.FAILED.getValue())
+                .set(ImportJobItem::getErrorMessage, StrUtil.maxLength(errorMessage, 500)));
+        if (updated > 0) {
+            importJobMapper.update(null, new LambdaUpdateWrapper<ImportJob>()
+                    .eq(ImportJob::getId, item.getJobId())
+                    .setSql("failCount = failCount + 1"));
+        }
+    }
+
+    private void markRetry(ImportJobItem item, String errorMessage) {
+        retriedCount.increment();
+        int retryCount = item.getRetryCount() + 1;
+        long delay = importJobConfig.getRetryBaseDelayMs() << Math.min(retryCount - 1, 10);
+        int updated = importJobItemMapper.update(null, new LambdaUpdateWrapper<ImportJobItem>()
+                .eq(ImportJobItem::getId, item.getId())
+                .eq(ImportJobItem::getStatus, ImportJobItemStatusEnum.RUNNING.getValue())
+                .inSql(ImportJobItem::getJobId, RUNNING_JOB_SQL)
+                .set(ImportJobItem::getStatus, ImportJobItemStatusEnum.WAITING.getValue())
+                .set(ImportJobItem::getRetryCount, retryCount)
+                .set(ImportJobItem::getNextRetryTime, new Date(System.currentTimeMillis() + delay))
+                .set(ImportJobItem::getErrorMessage, StrUtil.maxLength(errorMessage, 500)));
+        if (updated == 0) {
+            // 导入期间任务已取消，不再重试
+            importJobItemMapper.update(null, new LambdaUpdateWrapper<ImportJobItem>()
+                    .eq(ImportJobItem::getId, item.getId())
+                    .eq(ImportJobItem::getStatus, ImportJobItemStatusEnum.RUNNING.getValue())
+                    .set(ImportJobItem::getStatus, ImportJobItemStatusEnum.CANCELLED.getValue())
+                    .set(ImportJobItem::getErrorMessage, StrUtil.maxLength(errorMessage, 500)));
+        }
+    }
+
+    /**
+     * 没有等待和导入中的任务项时结束任务
+     */
+    private void tryFinishJob(Long jobId) {
+        try {
+            Long unfinishedCount = importJobItemMapper.selectCount(new LambdaQueryWrapper<ImportJobItem>()
+                    .eq(ImportJobItem::getJobId, jobId)
+                    .in(ImportJobItem::getStatus, Arrays.asList(ImportJobItemStatusEnum.WAITING.getValue(),
+                            ImportJobItemStatusEnum.RUNNING.getValue())));
+            if (unfinishedCount == 0) {
+                importJobMapper.update(null, new LambdaUpdateWrapper<ImportJob>()
+                        .eq(ImportJob::getId, jobId)
+                        .eq(ImportJob::getStatus, ImportJobStatusEnum.RUNNING.getValue())
+                        .set(ImportJob::getStatus, ImportJobStatusEnum.SUCCEEDED.getValue()));
+            }
+        } catch (Exception e) {
+            log.error("更新导入任务状态失败, jobId = {}", jobId, e);
+        }
+    }
+
+    private ImportJob getOwnJob(Long jobId, Long userId) {
+        ThrowUtils.throwIf(jobId == null || jobId <= 0, ErrorCode.PARAMS_ERROR);
+        ImportJob importJob = importJobMapper.selectById(jobId);
+        ThrowUtils.throwIf(importJob == null, ErrorCode.NOT_FOUND_ERROR, "导入任务不存在");
+        ThrowUtils.throwIf(!importJob.getUserId().equals(userId), ErrorCode.NO_AUTH_ERROR);
+        return importJob;
+    }
+
+    private User getJobUser(Long jobId) {
+        ImportJob importJob = importJobMapper.selectById(jobId);
+        return importJob == null ? null : userService.getById(importJob.getUserId());
+    }
+
+    private static String getHost(String url) {
+        try {
+            return StrUtil.nullToEmpty(URLUtil.url(url).getHost());
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    /**
+     * 来源站点的并发许可
+     */
+    static class HostPermit {
+
+        private int inFlight;
+
+        private long nextStartTime;
+
+        synchronized boolean tryAcquire(int maxConcurrency, long intervalMs) {
+            long now = System.currentTimeMillis();
+            if (inFlight >= maxConcurrency || now < nextStartTime) {
+                return false;
+            }
+            inFlight++;
+            nextStartTime = now + intervalMs;
+            return true;
+        }
+
+        synchronized void release() {
+            inFlight--;
+        }
+
+        synchronized boolean isIdle() {
+            return inFlight == 0 && System.currentTimeMillis() >= nextStartTime;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.leo.leopicturebackend.manager.mq;
+
+import com.leo.leopicturebackend.manager.LocalCacheManager;
+import com.leo.leopicturebackend.manager.cache.EntityCacheManager;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 本地缓存失效广播的消费者
+ * 每个节点监听自己的匿名队列，收到消息后只删除对应作用域的分页缓存或对应 id 的实体缓存，并定时输出失效延迟（发送到处理的耗时）统计
+ */
+@Component
+@Slf4j
+public class LocalCacheInvalidationConsumer {
+
+    @Resource
+    private LocalCacheManager localCacheManager;
+    @Resource
+    private EntityCacheManager entityCacheManager;
+
+    // 失效延迟超过该值时打印告警（毫秒）
+    private static final long LAG_WARN_THRESHOLD_MS = 1000;
+
+    private final LongAdder invalidationCount = new LongAdder();
+
+    private final LongAdder totalLagMillis = new LongAdder();
+
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
+    @RabbitListener(queues = "#{cacheInvalidateQueue.name}")
+    public void handleInvalidation(Map<String, Object> message) {
+        try {
+            long publishTime = Long.parseLong(message.get("publishTime").toString());
+            String pattern;
+            int removed;
+            if (message.get("entity") != null) {
+                // 实体缓存：按 id 删除
+                String entity = (String) message.get("entity");
+                List<Long> idList = ((Collection<?>) message.get("ids")).stream()
+                        .map(id -> Long.valueOf(id.toString()))
+                        .collect(Collectors.toList());
+                entityCacheManager.evictLocal(entity, idList);
+                pattern = entity + ":" + idList;
+                removed = idList.size();
+            } else {
+                // 分页缓存：按前缀删除
+                pattern = (String) message.get("pattern");
+                removed = localCacheManager.clearCacheByPattern(pattern);
+            }
+            // 统计失效延迟
+            long lagMillis = Math.max(System.currentTimeMillis() - publishTime, 0);
+            invalidationCount.increment();
+            totalLagMillis.add(lagMillis);
+            maxLagMillis.accumulateAndGet(lagMillis, Math::max);
+            if (lagMillis > LAG_WARN_THRESHOLD_MS) {
+                log.warn("本地缓存失效延迟过高，pattern: {}, 延迟: {} ms", pattern, lagMillis);
+            } else {
+                log.debug("本地缓存失效完成，pattern: {}, 删除条数: {}, 延迟: {} ms", pattern, removed, lagMillis);
+            }
+        } catch (Exception e) {
+            log.error("处理本地缓存失效消息失败", e);
+        }
+    }
+
+    /**
+     * 每分钟输出一次失效延迟统计（处理条数、平均延迟、最大延迟），输出后重新统计
+     */
+    @Scheduled(fixedRate = 60_000)
+    public void reportLag() {
+        long count = invalidationCount.sumThenReset();
+        long totalLag = totalLagMillis.sumThenReset();
+        long maxLag = maxLagMillis.getAndSet(0);
+        if (count > 0) {
+            log.info("本地缓存失效统计（近 1 分钟）: 处理 {} 条, 平均延迟 {} ms, 最大延迟 {} ms",
+                    count, totalLag / count, maxLag);
+        }
+    }
+}
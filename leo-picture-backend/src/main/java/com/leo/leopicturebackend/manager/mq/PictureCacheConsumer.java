@@ -1,19 +1,17 @@
 package com.leo.leopicturebackend.manager.mq;
 
 import com.leo.leopicturebackend.config.RabbitConfig;
-import com.leo.leopicturebackend.manager.LocalCacheManager;
+import com.leo.leopicturebackend.manager.PageCacheVersionManager;
 import com.rabbitmq.client.Channel;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.support.AmqpHeaders;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.util.Map;
-import java.util.Set;
 /*
 * 通过消息确认机制确保消息不丢失
     手动ACK/NACK机制保证消息被正确处理
@@ -23,9 +21,7 @@ import java.util.Set;
 public class PictureCacheConsumer {
 
     @Resource
-    private StringRedisTemplate stringRedisTemplate;
-    @Resource
-    private LocalCacheManager localCacheManager;
+    private PageCacheVersionManager pageCacheVersionManager;
 
     /*
     Channel
@@ -41,16 +37,12 @@ public class PictureCacheConsumer {
     public void handlePictureUpdate(Map<String, Object> message, Channel channel, @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
         try {
             Long pictureId = Long.valueOf(message.get("pictureId").toString());
+            Object spaceIdValue = message.get("spaceId");
+            Long spaceId = spaceIdValue == null ? null : Long.valueOf(spaceIdValue.toString());
             String operation = (String) message.get("operation");
 
-            // 删除相关缓存
-            String cacheKey = "leopicture:listPictureVOByPage:*";
-            Set<String> keys = stringRedisTemplate.keys(cacheKey);
-            // 清除本地缓存（双缓存一致性）
-            localCacheManager.clearCacheByPattern(cacheKey);
-            if (keys != null && !keys.isEmpty()) {
-                stringRedisTemplate.delete(keys);
-            }
+            // 使图片所在作用域的分页缓存失效（缓存 key 带版本号，本地缓存中的旧 key 也不会再被读取）
+            pageCacheVersionManager.bumpVersion(spaceId);
 
             // 手动确认消息
             channel.basicAck(deliveryTag, false);
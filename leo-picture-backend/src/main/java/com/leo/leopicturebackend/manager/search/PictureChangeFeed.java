@@ -0,0 +1,74 @@
+package com.leo.leopicturebackend.manager.search;
+
+import cn.hutool.core.collection.CollUtil;
+import com.leo.leopicturebackend.mapper.PictureMapper;
+import com.leo.leopicturebackend.model.entity.Picture;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 图片变更拉取
+ * 1. 定时按 updateTime 拉取一次图片变更（包含其它节点的新增、编辑和逻辑删除），分发给所有内存索引，避免每个索引各自查询
+ * 2. 索引就绪后第一次拉取从它的全量构建开始时间算起，构建期间发生的写入由这次拉取补齐
+ */
+@Slf4j
+@Component
+public class PictureChangeFeed {
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private List<PictureChangeListener> listeners;
+
+    // 拉取的时间回溯量（毫秒），容忍应用与数据库的时钟偏差
+    private static final long SYNC_OVERLAP_MS = 5000;
+
+    // 上一次拉取的时间，为 null 表示还没有拉取过
+    private Date lastSyncTime;
+
+    // 已经收到过变更的监听器（只在定时任务线程中访问）
+    private final Set<PictureChangeListener> syncedListeners = new HashSet<>();
+
+    @Scheduled(initialDelay = 10_000, fixedDelay = 10_000)
+    public void poll() {
+        Date now = new Date();
+        Date since = lastSyncTime;
+        List<PictureChangeListener> readyListeners = new ArrayList<>(listeners.size());
+        for (PictureChangeListener listener : listeners) {
+            Date startTime = listener.getSyncStartTime();
+            if (startTime == null) {
+                continue;
+            }
+            readyListeners.add(listener);
+            if (!syncedListeners.contains(listener) && (since == null || startTime.before(since))) {
+                since = startTime;
+            }
+        }
+        if (readyListeners.isEmpty()) {
+            return;
+        }
+        List<Picture> changedList;
+        try {
+            changedList = pictureMapper.listIndexChangedSince(new Date(since.getTime() - SYNC_OVERLAP_MS));
+        } catch (Exception e) {
+            log.error("拉取图片变更失败", e);
+            return;
+        }
+        if (CollUtil.isNotEmpty(changedList)) {
+            for (PictureChangeListener listener : readyListeners) {
+                try {
+                    listener.onPicturesChanged(changedList);
+                } catch (Exception e) {
+                    log.error("图片变更同步失败, listener = {}", listener.getClass().getSimpleName(), e);
+                }
+            }
+        }
+        syncedListeners.addAll(readyListeners);
+        lastSyncTime = now;
+    }
+}
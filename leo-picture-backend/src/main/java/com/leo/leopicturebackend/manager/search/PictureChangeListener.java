@@ -0,0 +1,26 @@
+package com.leo.leopicturebackend.manager.search;
+
+import com.leo.leopicturebackend.model.entity.Picture;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 图片变更监听器，由 PictureChangeFeed 定时推送其它节点写入的图片变更
+ */
+public interface PictureChangeListener {
+
+    /**
+     * 可以接收增量变更的起始时间（全量构建开始的时间）
+     *
+     * @return 尚未就绪时返回 null，不会收到变更
+     */
+    Date getSyncStartTime();
+
+    /**
+     * 应用一批图片变更（包含新增、编辑和逻辑删除，同一张图片可能重复推送）
+     *
+     * @param changedList 至少包含 listIndexChangedSince 查询的字段
+     */
+    void onPicturesChanged(List<Picture> changedList);
+}
@@ -0,0 +1,511 @@
+package com.leo.leopicturebackend.manager.search;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.leo.leopicturebackend.mapper.PictureMapper;
+import com.leo.leopicturebackend.model.entity.Picture;
+import com.leo.leopicturebackend.utils.ColorPaletteUtils;
+import com.leo.leopicturebackend.utils.ColorSimilarUtils;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 图片色板索引（以色搜图）
+ * 1. 按空间分区，首次查询时从数据库加载该空间的 id 和色板，长时间未访问或内存不足时淘汰
+ * 2. 色板中的每种颜色按 Lab 网格分桶，以基本类型数组保存（Lab 在入库时已算好），查询时不解析字符串、不创建对象
+ * 3. 图片与目标颜色的距离 = min(色板颜色与目标的 ΔE + 占比惩罚)，占比越高的颜色惩罚越小，占满整张图时为 0
+ * 4. 查询从目标颜色所在的网格由近及远逐层扫描，用有界堆保留最相似的 k 张，剩余网格不可能更近时提前结束
+ * 5. 上传、编辑、删除时增量维护已加载的分区，其它节点的修改由 PictureChangeFeed 同步
+ */
+@Slf4j
+@Component
+public class PictureColorIndex implements PictureChangeListener {
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    // 网格边长（ΔE）
+    private static final int CELL_SIZE = 10;
+    // a、b 分量的偏移量，保证网格坐标非负
+    private static final int AB_OFFSET = 128;
+    // 各维网格数：L 取值 0-100，a、b 取值 -128-127
+    private static final int L_CELLS = 100 / CELL_SIZE + 1;
+    private static final int AB_CELLS = 256 / CELL_SIZE + 1;
+    // 占比惩罚：占比为 0 的颜色额外增加的距离（ΔE）
+    private static final float WEIGHT_PENALTY = 20f;
+    // 分区颜色数不超过该值时直接全部扫描
+    private static final int LINEAR_SCAN_THRESHOLD = 1024;
+    // 最多缓存的颜色数（每种约 30 字节）
+    private static final long MAX_WEIGHT = 4_000_000L;
+
+    /**
+     * 空间 id -> 分区
+     * 增量修改通过 asMap().computeIfPresent 执行：分区正在加载时会等待加载完成后再修改，不会丢失加载期间的变更
+     */
+    private final Cache<Long, SpaceColors> spaceCache = Caffeine.newBuilder()
+            .maximumWeight(MAX_WEIGHT)
+            .weigher((Long spaceId, SpaceColors spaceColors) -> spaceColors.colorCount() + 1)
+            .expireAfterAccess(Duration.ofMinutes(30))
+            .build();
+
+    // 分区按需从数据库加载，创建后即可接收变更
+    private final Date syncStartTime = new Date();
+
+    /**
+     * 查询空间内与目标颜色最相似的图片
+     *
+     * @param spaceId  空间 id
+     * @param hexColor 目标颜色（如 0xFF0000）
+     * @param limit    返回数量
+     * @return 图片 id，按相似度从高到低排列
+     */
+    public List<Long> searchSimilar(Long spaceId, String hexColor, int limit) {
+        double[] lab = ColorSimilarUtils.rgbToLab(ColorSimilarUtils.parseRgb(hexColor));
+        float[] target = {(float) lab[0], (float) lab[1], (float) lab[2]};
+        SpaceColors spaceColors = spaceCache.get(spaceId, this::load);
+        return spaceColors.search(target, limit);
+    }
+
+    /**
+     * 新增或更新单张图片的索引（只维护已加载的分区）
+     *
+     * @param picture 至少包含 id、spaceId、picColor、picPalette
+     */
+    public void index(Picture picture) {
+        if (picture == null || picture.getId() == null || picture.getSpaceId() == null) {
+            return;
+        }
+        spaceCache.asMap().computeIfPresent(picture.getSpaceId(), (spaceId, spaceColors) -> {
+            spaceColors.remove(picture.getId());
+            spaceColors.add(picture);
+            return spaceColors;
+        });
+    }
+
+    /**
+     * 从数据库重新加载指定图片的索引（已删除的图片会被移出索引）
+     *
+     * @param pictureIds
+     */
+    public void refresh(Collection<Long> pictureIds) {
+        if (CollUtil.isEmpty(pictureIds)) {
+            return;
+        }
+        List<Picture> pictureList = pictureMapper.selectList(new QueryWrapper<Picture>()
+                .select("id", "spaceId", "picColor", "picPalette")
+                .in("id", pictureIds));
+        Set<Long> missingIds = new HashSet<>(pictureIds);
+        for (Picture picture : pictureList) {
+            missingIds.remove(picture.getId());
+            index(picture);
+        }
+        // 已删除的图片无法确定所在空间，从所有已加载的分区中移除
+        if (!missingIds.isEmpty()) {
+            for (Long spaceId : spaceCache.asMap().keySet()) {
+                missingIds.forEach(pictureId -> remove(spaceId, pictureId));
+            }
+        }
+    }
+
+    /**
+     * 移除图片的索引
+     *
+     * @param spaceId   空间 id
+     * @param pictureId 图片 id
+     */
+    public void remove(Long spaceId, Long pictureId) {
+        if (spaceId == null || pictureId == null) {
+            return;
+        }
+        spaceCache.asMap().computeIfPresent(spaceId, (key, spaceColors) -> {
+            spaceColors.remove(pictureId);
+            return spaceColors;
+        });
+    }
+
+    @Override
+    public Date getSyncStartTime() {
+        return syncStartTime;
+    }
+
+    /**
+     * 应用其它节点的新增、编辑和逻辑删除（只维护已加载的分区）
+     */
+    @Override
+    public void onPicturesChanged(List<Picture> changedList) {
+        if (spaceCache.estimatedSize() == 0) {
+            return;
+        }
+        for (Picture picture : changedList) {
+            if (picture.getIsDelete() == null || picture.getIsDelete() == 0) {
+                index(picture);
+            } else {
+                remove(picture.getSpaceId(), picture.getId());
+            }
+        }
+    }
+
+    private SpaceColors load(Long spaceId) {
+        long startMillis = System.currentTimeMillis();
+        List<Picture> pictureList = pictureMapper.selectList(new QueryWrapper<Picture>()
+                .select("id", "spaceId", "picColor", "picPalette")
+                .eq("spaceId", spaceId)
+                .isNotNull("picColor"));
+        SpaceColors spaceColors = new SpaceColors();
+        for (Picture picture : pictureList) {
+            spaceColors.add(picture);
+        }
+        log.info("加载空间色板索引, spaceId = {}, 图片数: {}, 耗时: {} ms",
+                spaceId, spaceColors.pictureCount(), System.currentTimeMillis() - startMillis);
+        return spaceColors;
+    }
+
+    /**
+     * 读取图片的色板，没有色板的历史图片以主色调作为唯一的颜色
+     *
+     * @return 无法解析时返回 null
+     */
+    private static byte[] resolvePalette(Picture picture) {
+        if (ColorPaletteUtils.size(picture.getPicPalette()) > 0) {
+            return picture.getPicPalette();
+        }
+        if (StrUtil.isBlank(picture.getPicColor())) {
+            return null;
+        }
+        try {
+            return ColorPaletteUtils.fromColor(picture.getPicColor());
+        } catch (NumberFormatException e) {
+            log.warn("图片主色调格式错误，跳过索引, pictureId = {}, picColor = {}", picture.getId(), picture.getPicColor());
+            return null;
+        }
+    }
+
+    private static int lCell(float l) {
+        return clamp((int) Math.floor(l / CELL_SIZE), L_CELLS);
+    }
+
+    private static int abCell(float ab) {
+        return clamp((int) Math.floor((ab + AB_OFFSET) / CELL_SIZE), AB_CELLS);
+    }
+
+    private static int clamp(int cell, int cells) {
+        return Math.max(0, Math.min(cells - 1, cell));
+    }
+
+    private static int cellKey(int lc, int ac, int bc) {
+        return (lc * AB_CELLS + ac) * AB_CELLS + bc;
+    }
+
+    /**
+     * 空间分区：网格 -> 桶
+     */
+    private static class SpaceColors {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private final Map<Integer, Bucket> buckets = new HashMap<>();
+
+        // 图片 id -> 色板颜色所在的网格
+        private final Map<Long, int[]> cellsById = new HashMap<>();
+
+        private int colorCount;
+
+        int pictureCount() {
+            return cellsById.size();
+        }
+
+        int colorCount() {
+            return colorCount;
+        }
+
+        void add(Picture picture) {
+            byte[] palette = resolvePalette(picture);
+            int size = ColorPaletteUtils.size(palette);
+            if (size == 0) {
+                return;
+            }
+            long id = picture.getId();
+            lock.writeLock().lock();
+            try {
+                int[] cells = new int[size];
+                for (int i = 0; i < size; i++) {
+                    float l = ColorPaletteUtils.getLab(palette, i, 0);
+                    float a = ColorPaletteUtils.getLab(palette, i, 1);
+                    float b = ColorPaletteUtils.getLab(palette, i, 2);
+                    float penalty = WEIGHT_PENALTY * (1 - ColorPaletteUtils.getWeight(palette, i));
+                    cells[i] = cellKey(lCell(l), abCell(a), abCell(b));
+                    buckets.computeIfAbsent(cells[i], k -> new Bucket()).add(id, l, a, b, penalty);
+                }
+                cellsById.put(id, cells);
+                colorCount += size;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(Long pictureId) {
+            lock.writeLock().lock();
+            try {
+                int[] cells = cellsById.remove(pictureId);
+                if (cells == null) {
+                    return;
+                }
+                // 同一网格可能有多种颜色，第一次处理时已全部移除
+                for (int cell : cells) {
+                    Bucket bucket = buckets.get(cell);
+                    if (bucket == null) {
+                        continue;
+                    }
+                    colorCount -= bucket.remove(pictureId);
+                    if (bucket.size == 0) {
+                        buckets.remove(cell);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        List<Long> search(float[] target, int limit) {
+            TopK topK = new TopK(limit);
+            lock.readLock().lock();
+            try {
+                if (colorCount <= LINEAR_SCAN_THRESHOLD) {
+                    for (Bucket bucket : buckets.values()) {
+                        bucket.scan(target, topK);
+                    }
+                    return topK.sortedIds();
+                }
+                int lc = lCell(target[0]);
+                int ac = abCell(target[1]);
+                int bc = abCell(target[2]);
+                int maxRing = Math.max(AB_CELLS, L_CELLS);
+                for (int ring = 0; ring < maxRing; ring++) {
+                    // 第 ring 层网格中的颜色与目标的 ΔE 至少为 (ring - 1) 个网格边长，加上惩罚后只会更大
+                    if (ring > 0 && topK.isFull() && topK.worst() <= (ring - 1) * CELL_SIZE) {
+                        break;
+                    }
+                    scanRing(lc, ac, bc, ring, target, topK);
+                }
+                return topK.sortedIds();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * 扫描与中心网格的切比雪夫距离恰好为 ring 的所有网格
+         */
+        private void scanRing(int lc, int ac, int bc, int ring, float[] target, TopK topK) {
+            for (int l = Math.max(0, lc - ring); l <= Math.min(L_CELLS - 1, lc + ring); l++) {
+                for (int a = Math.max(0, ac - ring); a <= Math.min(AB_CELLS - 1, ac + ring); a++) {
+                    boolean onShell = Math.abs(l - lc) == ring || Math.abs(a - ac) == ring;
+                    // 不在外壳上时只需要 b 方向的两端
+                    int step = onShell ? 1 : Math.max(1, 2 * ring);
+                    for (int b = bc - ring; b <= bc + ring; b += step) {
+                        if (b < 0 || b >= AB_CELLS) {
+                            continue;
+                        }
+                        Bucket bucket = buckets.get(cellKey(l, a, b));
+                        if (bucket != null) {
+                            bucket.scan(target, topK);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 网格桶：按列保存图片 id、Lab 分量和占比惩罚，打分循环只做连续数组上的浮点运算
+     */
+    private static class Bucket {
+
+        private long[] ids = new long[4];
+
+        private float[] ls = new float[4];
+
+        private float[] as = new float[4];
+
+        private float[] bs = new float[4];
+
+        private float[] penalties = new float[4];
+
+        private int size;
+
+        void add(long id, float l, float a, float b, float penalty) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                ls = Arrays.copyOf(ls, capacity);
+                as = Arrays.copyOf(as, capacity);
+                bs = Arrays.copyOf(bs, capacity);
+                penalties = Arrays.copyOf(penalties, capacity);
+            }
+            ids[size] = id;
+            ls[size] = l;
+            as[size] = a;
+            bs[size] = b;
+            penalties[size] = penalty;
+            size++;
+        }
+
+        /**
+         * 移除图片的所有颜色，被删除的位置用最后一个元素填充
+         *
+         * @return 移除的颜色数
+         */
+        int remove(long id) {
+            int removed = 0;
+            for (int i = size - 1; i >= 0; i--) {
+                if (ids[i] == id) {
+                    size--;
+                    ids[i] = ids[size];
+                    ls[i] = ls[size];
+                    as[i] = as[size];
+                    bs[i] = bs[size];
+                    penalties[i] = penalties[size];
+                    removed++;
+                }
+            }
+            return removed;
+        }
+
+        void scan(float[] target, TopK topK) {
+            float tl = target[0];
+            float ta = target[1];
+            float tb = target[2];
+            float[] scores = topK.scoreBuffer(size);
+            for (int i = 0; i < size; i++) {
+                float dl = ls[i] - tl;
+                float da = as[i] - ta;
+                float db = bs[i] - tb;
+                scores[i] = (float) Math.sqrt(dl * dl + da * da + db * db) + penalties[i];
+            }
+            for (int i = 0; i < size; i++) {
+                topK.offer(ids[i], scores[i]);
+            }
+        }
+    }
+
+    /**
+     * 有界大顶堆，保留距离最小的 k 张图片（同一图片只保留最小的距离）
+     */
+    private static class TopK {
+
+        private final long[] ids;
+
+        private final float[] distances;
+
+        private int size;
+
+        // 桶打分的缓冲区（每次查询一个，读锁下的并发查询互不影响）
+        private float[] scoreBuffer = new float[64];
+
+        TopK(int k) {
+            ids = new long[k];
+            distances = new float[k];
+        }
+
+        float[] scoreBuffer(int minLength) {
+            if (scoreBuffer.length < minLength) {
+                scoreBuffer = new float[Math.max(minLength, scoreBuffer.length * 2)];
+            }
+            return scoreBuffer;
+        }
+
+        boolean isFull() {
+            return size == ids.length;
+        }
+
+        float worst() {
+            return distances[0];
+        }
+
+        void offer(long id, float distance) {
+            if (isFull() && (ids.length == 0 || distance >= distances[0])) {
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    if (distance < distances[i]) {
+                        distances[i] = distance;
+                        siftDown(i);
+                    }
+                    return;
+                }
+            }
+            if (size < ids.length) {
+                ids[size] = id;
+                distances[size] = distance;
+                siftUp(size++);
+            } else {
+                ids[0] = id;
+                distances[0] = distance;
+                siftDown(0);
+            }
+        }
+
+        /**
+         * 按距离从小到大返回（会清空堆）
+         */
+        List<Long> sortedIds() {
+            Long[] result = new Long[size];
+            while (size > 0) {
+                result[size - 1] = ids[0];
+                size--;
+                ids[0] = ids[size];
+                distances[0] = distances[size];
+                siftDown(0);
+            }
+            return Arrays.asList(result);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (distances[parent] >= distances[i]) {
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int largest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && distances[left] > distances[largest]) {
+                    largest = left;
+                }
+                if (right < size && distances[right] > distances[largest]) {
+                    largest = right;
+                }
+                if (largest == i) {
+                    return;
+                }
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            long id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+            float distance = distances[i];
+            distances[i] = distances[j];
+            distances[j] = distance;
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package com.leo.leopicturebackend.manager.search;
+
+import cn.hutool.core.collection.CollUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.leo.leopicturebackend.mapper.PictureMapper;
+import com.leo.leopicturebackend.model.entity.Picture;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 图片感知哈希索引（相似图片搜索、重复检测）
+ * 1. 按空间分区（公共图库为一个分区，每个私有/团队空间各一个分区）
+ * 2. 多索引哈希：64 位哈希分为 4 段 16 位，每段建立 段值 -> 图片 id 的倒排表
+ *    汉明距离不超过 r 的两个哈希至少有一段的距离不超过 r / 4，只需在每段枚举距离不超过 r / 4 的段值，再校验完整距离
+ * 3. 索引未就绪时返回 null，由调用方回退到 SQL 查询
+ */
+@Slf4j
+@Component
+public class PictureHashIndex implements PictureChangeListener {
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    /**
+     * 支持查询的最大汉明距离
+     */
+    public static final int MAX_DISTANCE = 15;
+
+    // 全量构建时每批读取的条数
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    // 公共图库的分区 key（雪花 id 不会为 0）
+    private static final long PUBLIC_PARTITION = 0L;
+    // 哈希分段
+    private static final int CHUNKS = 4;
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_MASK = 0xFFFF;
+
+    /**
+     * 按汉明权重排列的 16 位翻转掩码，查询段距离不超过 r 时取前 FLIP_MASK_COUNTS[r] 个
+     */
+    private static final int[] FLIP_MASKS;
+    private static final int[] FLIP_MASK_COUNTS = new int[MAX_DISTANCE / CHUNKS + 1];
+
+    static {
+        List<Integer> masks = new ArrayList<>();
+        for (int weight = 0; weight < FLIP_MASK_COUNTS.length; weight++) {
+            for (int mask = 0; mask <= CHUNK_MASK; mask++) {
+                if (Integer.bitCount(mask) == weight) {
+                    masks.add(mask);
+                }
+            }
+            FLIP_MASK_COUNTS[weight] = masks.size();
+        }
+        FLIP_MASKS = masks.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private IndexData data = new IndexData();
+
+    private volatile boolean ready = false;
+
+    private volatile Date syncStartTime;
+
+    /**
+     * 应用启动后异步构建索引，构建完成前查询走 SQL
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("图片感知哈希索引构建失败，相似图片搜索将回退到数据库查询", e);
+        }
+    }
+
+    /**
+     * 从数据库全量重建索引
+     */
+    public void rebuild() {
+        long startMillis = System.currentTimeMillis();
+        Date startTime = new Date(startMillis);
+        IndexData newData = new IndexData();
+        long lastId = 0;
+        while (true) {
+            List<Picture> pictureList = pictureMapper.selectList(new QueryWrapper<Picture>()
+                    .select("id", "spaceId", "perceptualHash")
+                    .gt("id", lastId)
+                    .orderByAsc("id")
+                    .last("limit " + REBUILD_BATCH_SIZE));
+            for (Picture picture : pictureList) {
+                newData.add(picture);
+            }
+            if (pictureList.size() < REBUILD_BATCH_SIZE) {
+                break;
+            }
+            lastId = pictureList.get(pictureList.size() - 1).getId();
+        }
+        publish(newData, startTime);
+        log.info("图片感知哈希索引构建完成，图片数: {}, 分区数: {}, 耗时: {} ms",
+                newData.entryById.size(), newData.partitions.size(), System.currentTimeMillis() - startMillis);
+    }
+
+    /**
+     * 用给定的图片构建索引，不读取数据库（用于测试）
+     *
+     * @param pictureList 至少包含 id、spaceId、perceptualHash
+     */
+    void rebuild(Collection<Picture> pictureList) {
+        IndexData newData = new IndexData();
+        pictureList.forEach(newData::add);
+        publish(newData, new Date());
+    }
+
+    private void publish(IndexData newData, Date startTime) {
+        lock.writeLock().lock();
+        try {
+            data = newData;
+            syncStartTime = startTime;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Date getSyncStartTime() {
+        return ready ? syncStartTime : null;
+    }
+
+    /**
+     * 应用其它节点的新增、编辑和逻辑删除
+     */
+    @Override
+    public void onPicturesChanged(List<Picture> changedList) {
+        lock.writeLock().lock();
+        try {
+            for (Picture picture : changedList) {
+                data.remove(picture.getId());
+                if (picture.getIsDelete() == null || picture.getIsDelete() == 0) {
+                    data.add(picture);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 新增或更新单张图片的索引
+     *
+     * @param picture 至少包含 id、spaceId、perceptualHash
+     */
+    public void index(Picture picture) {
+        if (picture == null || picture.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            data.remove(picture.getId());
+            data.add(picture);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 从数据库重新加载指定图片的索引（已删除的图片会被移出索引）
+     *
+     * @param pictureIds
+     */
+    public void refresh(Collection<Long> pictureIds) {
+        if (CollUtil.isEmpty(pictureIds)) {
+            return;
+        }
+        List<Picture> pictureList = pictureMapper.selectList(new QueryWrapper<Picture>()
+                .select("id", "spaceId", "perceptualHash")
+                .in("id", pictureIds));
+        lock.writeLock().lock();
+        try {
+            pictureIds.forEach(data::remove);
+            for (Picture picture : pictureList) {
+                data.add(picture);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 移除图片的索引
+     *
+     * @param pictureId
+     */
+    public void remove(Long pictureId) {
+        if (pictureId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            data.remove(pictureId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询相似的图片
+     *
+     * @param spaceId     空间 id，为 null 表示公共图库
+     * @param hash        感知哈希
+     * @param maxDistance 最大汉明距离，不超过 MAX_DISTANCE
+     * @param limit       最大返回数
+     * @param excludeId   排除的图片 id（查询图片本身），可为 null
+     * @return 图片 id，按汉明距离从小到大排列；返回 null 表示索引未就绪，需要回退到 SQL
+     */
+    public List<Long> search(Long spaceId, long hash, int maxDistance, int limit, Long excludeId) {
+        if (!ready) {
+            return null;
+        }
+        maxDistance = Math.min(maxDistance, MAX_DISTANCE);
+        int maskCount = FLIP_MASK_COUNTS[maxDistance / CHUNKS];
+        List<long[]> matchList = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Partition partition = data.partitions.get(spaceId == null ? PUBLIC_PARTITION : spaceId);
+            if (partition == null) {
+                return Collections.emptyList();
+            }
+            Set<Long> visited = new HashSet<>();
+            for (int chunk = 0; chunk < CHUNKS; chunk++) {
+                int chunkValue = chunkValue(hash, chunk);
+                Map<Integer, IdList> table = partition.tables.get(chunk);
+                for (int m = 0; m < maskCount; m++) {
+                    IdList idList = table.get(chunkValue ^ FLIP_MASKS[m]);
+                    if (idList == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < idList.size; i++) {
+                        long id = idList.ids[i];
+                        if (!visited.add(id) || (excludeId != null && id == excludeId)) {
+                            continue;
+                        }
+                        int distance = Long.bitCount(hash ^ data.entryById.get(id).hash);
+                        if (distance <= maxDistance) {
+                            matchList.add(new long[]{distance, id});
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        matchList.sort(Comparator.<long[]>comparingLong(match -> match[0]).thenComparingLong(match -> match[1]));
+        List<Long> idList = new ArrayList<>(Math.min(limit, matchList.size()));
+        for (int i = 0; i < matchList.size() && i < limit; i++) {
+            idList.add(matchList.get(i)[1]);
+        }
+        return idList;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private static int chunkValue(long hash, int chunk) {
+        return (int) (hash >>> (chunk * CHUNK_BITS)) & CHUNK_MASK;
+    }
+
+    /**
+     * 索引数据（调用方需持有写锁，或操作的是尚未发布的新索引）
+     */
+    private static class IndexData {
+
+        // 图片 id -> 已索引的哈希
+        private final Map<Long, HashEntry> entryById = new HashMap<>();
+
+        // 分区 key -> 分区
+        private final Map<Long, Partition> partitions = new HashMap<>();
+
+        void add(Picture picture) {
+            if (picture.getPerceptualHash() == null) {
+                return;
+            }
+            HashEntry entry = new HashEntry(picture.getPerceptualHash(),
+                    picture.getSpaceId() == null ? PUBLIC_PARTITION : picture.getSpaceId());
+            entryById.put(picture.getId(), entry);
+            Partition partition = partitions.computeIfAbsent(entry.partitionKey, key -> new Partition());
+            for (int chunk = 0; chunk < CHUNKS; chunk++) {
+                partition.tables.get(chunk).computeIfAbsent(chunkValue(entry.hash, chunk), key -> new IdList())
+                        .add(picture.getId());
+            }
+            partition.size++;
+        }
+
+        void remove(Long pictureId) {
+            HashEntry entry = entryById.remove(pictureId);
+            if (entry == null) {
+                return;
+            }
+            Partition partition = partitions.get(entry.partitionKey);
+            if (partition == null) {
+                return;
+            }
+            for (int chunk = 0; chunk < CHUNKS; chunk++) {
+                Map<Integer, IdList> table = partition.tables.get(chunk);
+                int chunkValue = chunkValue(entry.hash, chunk);
+                IdList idList = table.get(chunkValue);
+                if (idList != null && idList.remove(pictureId) && idList.size == 0) {
+                    table.remove(chunkValue);
+                }
+            }
+            if (--partition.size == 0) {
+                partitions.remove(entry.partitionKey);
+            }
+        }
+    }
+
+    /**
+     * 空间分区：每段一张倒排表
+     */
+    private static class Partition {
+
+        private final List<Map<Integer, IdList>> tables = new ArrayList<>(CHUNKS);
+
+        private int size;
+
+        Partition() {
+            for (int chunk = 0; chunk < CHUNKS; chunk++) {
+                tables.add(new HashMap<>());
+            }
+        }
+    }
+
+    /**
+     * 倒排表中的图片 id 列表
+     */
+    private static class IdList {
+
+        private long[] ids = new long[2];
+
+        private int size;
+
+        void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        /**
+         * 删除时把最后一个元素移到被删除的位置
+         */
+        boolean remove(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 已索引的哈希
+     */
+    private static class HashEntry {
+
+        private final long hash;
+
+        private final long partitionKey;
+
+        HashEntry(long hash, long partitionKey) {
+            this.hash = hash;
+            this.partitionKey = partitionKey;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.leo.leopicturebackend.manager.search;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.leo.leopicturebackend.mapper.PictureMapper;
+import com.leo.leopicturebackend.model.entity.Picture;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * 图片名称、简介的内存倒排索引
+ * 1. 启动时从数据库全量构建，之后由图片新增、编辑、删除实时更新，其它节点的写入由 PictureChangeFeed 同步
+ * 2. 查询时先用 bigram 倒排链求交集得到候选集，再对候选做子串校验，保证结果与 SQL LIKE '%x%' 一致
+ * 3. 索引未就绪、查询词包含 LIKE 通配符或命中过多时返回 null，由调用方回退到 SQL 查询
+ */
+@Slf4j
+@Component
+public class PictureSearchIndex implements PictureChangeListener {
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    // 全量构建时每批读取的条数
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 倒排索引：词元 -> 图片 id 集合
+    private Map<String, Set<Long>> postings = new HashMap<>();
+
+    // 正排索引：图片 id -> 已索引的文档
+    private Map<Long, IndexedDoc> docs = new HashMap<>();
+
+    private volatile boolean ready = false;
+
+    private volatile Date syncStartTime;
+
+    /**
+     * 应用启动后异步构建索引，构建完成前查询走 SQL
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("图片全文索引构建失败，搜索将回退到数据库查询", e);
+        }
+    }
+
+    /**
+     * 从数据库全量重建索引
+     */
+    public void rebuild() {
+        long startMillis = System.currentTimeMillis();
+        Date startTime = new Date(startMillis);
+        Map<String, Set<Long>> newPostings = new HashMap<>();
+        Map<Long, IndexedDoc> newDocs = new HashMap<>();
+        long lastId = 0;
+        while (true) {
+            List<Picture> pictureList = pictureMapper.selectList(new QueryWrapper<Picture>()
+                    .select("id", "name", "introduction")
+                    .gt("id", lastId)
+                    .orderByAsc("id")
+                    .last("limit " + REBUILD_BATCH_SIZE));
+            for (Picture picture : pictureList) {
+                addDoc(newPostings, newDocs, picture);
+            }
+            if (pictureList.size() < REBUILD_BATCH_SIZE) {
+                break;
+            }
+            lastId = pictureList.get(pictureList.size() - 1).getId();
+        }
+        lock.writeLock().lock();
+        try {
+            postings = newPostings;
+            docs = newDocs;
+            syncStartTime = startTime;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("图片全文索引构建完成，文档数: {}, 词元数: {}, 耗时: {} ms",
+                newDocs.size(), newPostings.size(), System.currentTimeMillis() - startMillis);
+    }
+
+    @Override
+    public Date getSyncStartTime() {
+        return ready ? syncStartTime : null;
+    }
+
+    /**
+     * 应用其它节点的新增、编辑和逻辑删除
+     */
+    @Override
+    public void onPicturesChanged(List<Picture> changedList) {
+        lock.writeLock().lock();
+        try {
+            for (Picture picture : changedList) {
+                removeDoc(picture.getId());
+                if (picture.getIsDelete() == null || picture.getIsDelete() == 0) {
+                    addDoc(postings, docs, picture);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 新增或更新单张图片的索引
+     *
+     * @param picture 至少包含 id、name、introduction
+     */
+    public void index(Picture picture) {
+        if (picture == null || picture.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDoc(picture.getId());
+            addDoc(postings, docs, picture);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 从数据库重新加载指定图片的索引（已删除的图片会被移出索引）
+     *
+     * @param pictureIds
+     */
+    public void refresh(Collection<Long> pictureIds) {
+        if (CollUtil.isEmpty(pictureIds)) {
+            return;
+        }
+        List<Picture> pictureList = pictureMapper.selectList(new QueryWrapper<Picture>()
+                .select("id", "name", "introduction")
+                .in("id", pictureIds));
+        lock.writeLock().lock();
+        try {
+            pictureIds.forEach(this::removeDoc);
+            for (Picture picture : pictureList) {
+                addDoc(postings, docs, picture);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 移除图片的索引
+     *
+     * @param pictureId
+     */
+    public void remove(Long pictureId) {
+        if (pictureId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDoc(pictureId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 搜索名称或简介包含查询词的图片
+     *
+     * @param searchText 查询词
+     * @param maxHits    最大命中数，超过时返回 null
+     * @return 按相关度排序的图片 id；返回 null 表示无法使用索引，需要回退到 SQL
+     */
+    public List<Long> search(String searchText, int maxHits) {
+        if (!ready || StrUtil.isBlank(searchText)) {
+            return null;
+        }
+        // LIKE 会把 % 和 _ 当作通配符，这类查询交给数据库处理以保证结果一致
+        if (StrUtil.containsAny(searchText, "%", "_", "\\")) {
+            return null;
+        }
+        String query = PictureTextAnalyzer.normalize(searchText);
+        Set<String> tokens = PictureTextAnalyzer.tokenizeQuery(query);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        List<ScoredId> hitList = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            List<Set<Long>> postingList = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                Set<Long> idSet = postings.get(token);
+                if (idSet == null) {
+                    return Collections.emptyList();
+                }
+                postingList.add(idSet);
+            }
+            // 从最短的倒排链开始求交集
+            postingList.sort(Comparator.comparingInt(Set::size));
+            Set<Long> shortest = postingList.get(0);
+            for (Long pictureId : shortest) {
+                boolean matchAll = true;
+                for (int i = 1; i < postingList.size(); i++) {
+                    if (!postingList.get(i).contains(pictureId)) {
+                        matchAll = false;
+                        break;
+                    }
+                }
+                if (!matchAll) {
+                    continue;
+                }
+                // bigram 全部命中不代表子串命中，需要再校验一次
+                int score = docs.get(pictureId).score(query);
+                if (score > 0) {
+                    hitList.add(new ScoredId(pictureId, score));
+                    if (hitList.size() > maxHits) {
+                        return null;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return hitList.stream()
+                .sorted(Comparator.comparingInt(ScoredId::getScore).reversed()
+                        .thenComparing(ScoredId::getId, Comparator.reverseOrder()))
+                .map(ScoredId::getId)
+                .collect(Collectors.toList());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 添加文档（调用方需持有写锁，或操作的是尚未发布的新索引）
+     */
+    private static void addDoc(Map<String, Set<Long>> postings, Map<Long, IndexedDoc> docs, Picture picture) {
+        IndexedDoc doc = new IndexedDoc(PictureTextAnalyzer.normalize(picture.getName()),
+                PictureTextAnalyzer.normalize(picture.getIntroduction()));
+        docs.put(picture.getId(), doc);
+        for (String token : doc.tokens()) {
+            postings.computeIfAbsent(token, key -> new HashSet<>()).add(picture.getId());
+        }
+    }
+
+    /**
+     * 移除文档（调用方需持有写锁）
+     */
+    private void removeDoc(Long pictureId) {
+        IndexedDoc oldDoc = docs.remove(pictureId);
+        if (oldDoc == null) {
+            return;
+        }
+        for (String token : oldDoc.tokens()) {
+            Set<Long> idSet = postings.get(token);
+            if (idSet != null) {
+                idSet.remove(pictureId);
+                if (idSet.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+
+    /**
+     * 已索引的文档（保存归一化后的文本）
+     */
+    private static class IndexedDoc {
+
+        private final String name;
+
+        private final String introduction;
+
+        IndexedDoc(String name, String introduction) {
+            this.name = name;
+            this.introduction = introduction;
+        }
+
+        Set<String> tokens() {
+            Set<String> tokens = PictureTextAnalyzer.tokenize(name);
+            tokens.addAll(PictureTextAnalyzer.tokenize(introduction));
+            return tokens;
+        }
+
+        /**
+         * 相关度：名称完全匹配 > 名称前缀匹配 > 名称包含 > 简介包含，不匹配为 0
+         */
+        int score(String query) {
+            if (name.equals(query)) {
+                return 4;
+            }
+            if (name.startsWith(query)) {
+                return 3;
+            }
+            if (name.contains(query)) {
+                return 2;
+            }
+            return introduction.contains(query) ? 1 : 0;
+        }
+    }
+
+    /**
+     * 带相关度的命中结果
+     */
+    private static class ScoredId {
+
+        private final Long id;
+
+        private final int score;
+
+        ScoredId(Long id, int score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        Long getId() {
+            return id;
+        }
+
+        int getScore() {
+            return score;
+        }
+    }
+}
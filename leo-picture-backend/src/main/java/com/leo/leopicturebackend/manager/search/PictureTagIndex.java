@@ -0,0 +1,384 @@
+package com.leo.leopicturebackend.manager.search;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.leo.leopicturebackend.mapper.PictureMapper;
+import com.leo.leopicturebackend.model.entity.Picture;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 图片标签、分类的位图索引
+ * 1. 按空间分区（公共图库为一个分区，每个私有/团队空间各一个分区），分区内维护 标签 -> 位图、分类 -> 位图
+ * 2. 图片 id 是雪花 id，无法直接作为位下标，因此在分区内为每张图片分配连续的序号，删除后的序号由同一分区复用，
+ *    位图长度与分区的图片数相当，不会因为其它分区的图片而变得稀疏
+ * 3. 多标签 AND/OR 及分类过滤在内存中做位图交并集，结果以 id IN 的形式交给数据库，避免 tags LIKE 全表扫描
+ * 4. 索引未就绪、未指定分区或命中过多时返回 null，由调用方回退到 SQL 查询
+ */
+@Slf4j
+@Component
+public class PictureTagIndex implements PictureChangeListener {
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    // 全量构建时每批读取的条数
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    // 公共图库的分区 key（雪花 id 不会为 0）
+    private static final long PUBLIC_PARTITION = 0L;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private IndexData data = new IndexData();
+
+    private volatile boolean ready = false;
+
+    private volatile Date syncStartTime;
+
+    /**
+     * 应用启动后异步构建索引，构建完成前查询走 SQL
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("图片标签索引构建失败，标签过滤将回退到数据库查询", e);
+        }
+    }
+
+    /**
+     * 从数据库全量重建索引（同时整理被复用的序号）
+     */
+    public void rebuild() {
+        long startMillis = System.currentTimeMillis();
+        Date startTime = new Date(startMillis);
+        IndexData newData = new IndexData();
+        long lastId = 0;
+        while (true) {
+            List<Picture> pictureList = pictureMapper.selectList(new QueryWrapper<Picture>()
+                    .select("id", "spaceId", "category", "tags")
+                    .gt("id", lastId)
+                    .orderByAsc("id")
+                    .last("limit " + REBUILD_BATCH_SIZE));
+            for (Picture picture : pictureList) {
+                newData.add(picture);
+            }
+            if (pictureList.size() < REBUILD_BATCH_SIZE) {
+                break;
+            }
+            lastId = pictureList.get(pictureList.size() - 1).getId();
+        }
+        lock.writeLock().lock();
+        try {
+            data = newData;
+            syncStartTime = startTime;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("图片标签索引构建完成，文档数: {}, 分区数: {}, 耗时: {} ms",
+                newData.docById.size(), newData.partitions.size(), System.currentTimeMillis() - startMillis);
+    }
+
+    @Override
+    public Date getSyncStartTime() {
+        return ready ? syncStartTime : null;
+    }
+
+    /**
+     * 应用其它节点的新增、编辑和逻辑删除
+     */
+    @Override
+    public void onPicturesChanged(List<Picture> changedList) {
+        lock.writeLock().lock();
+        try {
+            for (Picture picture : changedList) {
+                data.remove(picture.getId());
+                if (picture.getIsDelete() == null || picture.getIsDelete() == 0) {
+                    data.add(picture);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 新增或更新单张图片的索引
+     *
+     * @param picture 至少包含 id、spaceId、category、tags
+     */
+    public void index(Picture picture) {
+        if (picture == null || picture.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            data.remove(picture.getId());
+            data.add(picture);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 从数据库重新加载指定图片的索引（已删除的图片会被移出索引）
+     *
+     * @param pictureIds
+     */
+    public void refresh(Collection<Long> pictureIds) {
+        if (CollUtil.isEmpty(pictureIds)) {
+            return;
+        }
+        List<Picture> pictureList = pictureMapper.selectList(new QueryWrapper<Picture>()
+                .select("id", "spaceId", "category", "tags")
+                .in("id", pictureIds));
+        lock.writeLock().lock();
+        try {
+            pictureIds.forEach(data::remove);
+            for (Picture picture : pictureList) {
+                data.add(picture);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 移除图片的索引
+     *
+     * @param pictureId
+     */
+    public void remove(Long pictureId) {
+        if (pictureId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            data.remove(pictureId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按标签和分类过滤图片
+     *
+     * @param spaceId     空间 id，为 null 表示公共图库
+     * @param tags        标签列表，可为空
+     * @param matchAnyTag true 表示命中任一标签即可，false 表示需要包含全部标签
+     * @param category    分类，可为空
+     * @param maxHits     最大命中数，超过时返回 null
+     * @return 命中的图片 id；返回 null 表示无法使用索引，需要回退到 SQL
+     */
+    public List<Long> query(Long spaceId, List<String> tags, boolean matchAnyTag, String category, int maxHits) {
+        List<String> tagList = normalizeTags(tags);
+        if (!ready || (tagList.isEmpty() && StrUtil.isBlank(category))) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            Partition partition = data.partitions.get(spaceId == null ? PUBLIC_PARTITION : spaceId);
+            if (partition == null) {
+                return Collections.emptyList();
+            }
+            BitSet result = null;
+            for (String tag : tagList) {
+                BitSet tagBitmap = partition.tagBitmaps.getOrDefault(tag, EMPTY_BITMAP);
+                if (result == null) {
+                    result = (BitSet) tagBitmap.clone();
+                } else if (matchAnyTag) {
+                    result.or(tagBitmap);
+                } else {
+                    result.and(tagBitmap);
+                }
+            }
+            if (StrUtil.isNotBlank(category)) {
+                BitSet categoryBitmap = partition.categoryBitmaps.getOrDefault(
+                        PictureTextAnalyzer.normalize(category.trim()), EMPTY_BITMAP);
+                if (result == null) {
+                    result = (BitSet) categoryBitmap.clone();
+                } else {
+                    result.and(categoryBitmap);
+                }
+            }
+            if (result.cardinality() > maxHits) {
+                return null;
+            }
+            List<Long> idList = new ArrayList<>(result.cardinality());
+            for (int ordinal = result.nextSetBit(0); ordinal >= 0; ordinal = result.nextSetBit(ordinal + 1)) {
+                idList.add(partition.ids.get(ordinal));
+            }
+            return idList;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private static final BitSet EMPTY_BITMAP = new BitSet();
+
+    /**
+     * 标签归一化：去除首尾空格、转小写、去除重音，与数据库不区分大小写的比较规则一致
+     */
+    private static List<String> normalizeTags(List<String> tags) {
+        if (CollUtil.isEmpty(tags)) {
+            return Collections.emptyList();
+        }
+        List<String> tagList = new ArrayList<>(tags.size());
+        for (String tag : tags) {
+            if (StrUtil.isNotBlank(tag)) {
+                tagList.add(PictureTextAnalyzer.normalize(tag.trim()));
+            }
+        }
+        return tagList;
+    }
+
+    /**
+     * 索引数据（调用方需持有写锁，或操作的是尚未发布的新索引）
+     */
+    private static class IndexData {
+
+        // 图片 id -> 已索引的文档
+        private final Map<Long, TaggedDoc> docById = new HashMap<>();
+
+        // 分区 key -> 分区
+        private final Map<Long, Partition> partitions = new HashMap<>();
+
+        void add(Picture picture) {
+            long partitionKey = picture.getSpaceId() == null ? PUBLIC_PARTITION : picture.getSpaceId();
+            Partition partition = partitions.computeIfAbsent(partitionKey, key -> new Partition());
+            int ordinal = partition.allocate(picture.getId());
+            TaggedDoc doc = new TaggedDoc(partitionKey, ordinal,
+                    StrUtil.isBlank(picture.getCategory()) ? null : PictureTextAnalyzer.normalize(picture.getCategory().trim()),
+                    parseTags(picture.getTags()));
+            docById.put(picture.getId(), doc);
+            for (String tag : doc.tags) {
+                partition.tagBitmaps.computeIfAbsent(tag, key -> new BitSet()).set(ordinal);
+            }
+            if (doc.category != null) {
+                partition.categoryBitmaps.computeIfAbsent(doc.category, key -> new BitSet()).set(ordinal);
+            }
+        }
+
+        void remove(Long pictureId) {
+            TaggedDoc doc = docById.remove(pictureId);
+            if (doc == null) {
+                return;
+            }
+            Partition partition = partitions.get(doc.partitionKey);
+            if (partition == null) {
+                return;
+            }
+            for (String tag : doc.tags) {
+                clearBit(partition.tagBitmaps, tag, doc.ordinal);
+            }
+            if (doc.category != null) {
+                clearBit(partition.categoryBitmaps, doc.category, doc.ordinal);
+            }
+            if (partition.release(doc.ordinal) == 0) {
+                partitions.remove(doc.partitionKey);
+            }
+        }
+
+        private static void clearBit(Map<String, BitSet> bitmaps, String key, int ordinal) {
+            BitSet bitmap = bitmaps.get(key);
+            if (bitmap != null) {
+                bitmap.clear(ordinal);
+                if (bitmap.isEmpty()) {
+                    bitmaps.remove(key);
+                }
+            }
+        }
+
+        private static Set<String> parseTags(String tagsJson) {
+            Set<String> tagSet = new HashSet<>();
+            if (StrUtil.isBlank(tagsJson)) {
+                return tagSet;
+            }
+            try {
+                tagSet.addAll(normalizeTags(JSONUtil.toList(tagsJson, String.class)));
+            } catch (Exception e) {
+                log.warn("图片标签格式错误，跳过索引: {}", tagsJson);
+            }
+            return tagSet;
+        }
+    }
+
+    /**
+     * 空间分区
+     */
+    private static class Partition {
+
+        // 序号 -> 图片 id，已删除的序号为 null
+        private final List<Long> ids = new ArrayList<>();
+
+        // 可复用的序号
+        private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+
+        // 标签 -> 位图
+        private final Map<String, BitSet> tagBitmaps = new HashMap<>();
+
+        // 分类 -> 位图
+        private final Map<String, BitSet> categoryBitmaps = new HashMap<>();
+
+        /**
+         * 分配序号，优先复用已删除的序号
+         */
+        int allocate(Long pictureId) {
+            Integer ordinal = freeOrdinals.poll();
+            if (ordinal == null) {
+                ids.add(pictureId);
+                return ids.size() - 1;
+            }
+            ids.set(ordinal, pictureId);
+            return ordinal;
+        }
+
+        /**
+         * 释放序号
+         *
+         * @return 分区剩余的图片数
+         */
+        int release(int ordinal) {
+            ids.set(ordinal, null);
+            freeOrdinals.push(ordinal);
+            return ids.size() - freeOrdinals.size();
+        }
+    }
+
+    /**
+     * 已索引的文档（保存序号、归一化后的标签和分类，用于移除时定位位图）
+     */
+    private static class TaggedDoc {
+
+        private final long partitionKey;
+
+        private final int ordinal;
+
+        private final String category;
+
+        private final Set<String> tags;
+
+        TaggedDoc(long partitionKey, int ordinal, String category, Set<String> tags) {
+            this.partitionKey = partitionKey;
+            this.ordinal = ordinal;
+            this.category = category;
+            this.tags = tags;
+        }
+    }
+}
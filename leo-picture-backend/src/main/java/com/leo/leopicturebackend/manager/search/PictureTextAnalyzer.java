@@ -0,0 +1,81 @@
+package com.leo.leopicturebackend.manager.search;
+
+import cn.hutool.core.util.StrUtil;
+
+import java.text.Normalizer;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 图片文本分词器
+ * 中文没有空格分词，采用与 Lucene CJKAnalyzer 相同的思路：按字切分单字和二元组（bigram）；
+ * 英文数字同样按字符切分，这样任意子串查询都能由 bigram 命中，与 SQL 的 LIKE '%x%' 语义一致
+ */
+public class PictureTextAnalyzer {
+
+    private PictureTextAnalyzer() {
+        // 工具类不需要实例化
+    }
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    /**
+     * 文本归一化：全角转半角、去除重音符号、转小写，近似 MySQL utf8mb4_unicode_ci 的比较规则
+     *
+     * @param text
+     * @return
+     */
+    public static String normalize(String text) {
+        if (StrUtil.isEmpty(text)) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        normalized = COMBINING_MARKS.matcher(normalized).replaceAll("");
+        return normalized.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 对归一化后的文本分词（单字 + 二元组）
+     *
+     * @param normalizedText 归一化后的文本
+     * @return
+     */
+    public static Set<String> tokenize(String normalizedText) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (StrUtil.isEmpty(normalizedText)) {
+            return tokens;
+        }
+        int length = normalizedText.length();
+        for (int i = 0; i < length; i++) {
+            tokens.add(normalizedText.substring(i, i + 1));
+            if (i + 1 < length) {
+                tokens.add(normalizedText.substring(i, i + 2));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 查询词分词：长度为 1 时使用单字，否则只使用二元组（候选集更小）
+     *
+     * @param normalizedQuery 归一化后的查询词
+     * @return
+     */
+    public static Set<String> tokenizeQuery(String normalizedQuery) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (StrUtil.isEmpty(normalizedQuery)) {
+            return tokens;
+        }
+        int length = normalizedQuery.length();
+        if (length == 1) {
+            tokens.add(normalizedQuery);
+            return tokens;
+        }
+        for (int i = 0; i + 1 < length; i++) {
+            tokens.add(normalizedQuery.substring(i, i + 2));
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,132 @@
+package com.leo.leopicturebackend.manager.storage;
+
+import cn.hutool.core.collection.ListUtil;
+import cn.hutool.core.util.StrUtil;
+import com.leo.leopicturebackend.config.CosClientConfig;
+import com.qcloud.cos.COSClient;
+import com.qcloud.cos.exception.MultiObjectDeleteException;
+import com.qcloud.cos.model.*;
+import jakarta.annotation.Resource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 腾讯云对象存储（默认）
+ */
+@Component
+@ConditionalOnProperty(name = "storage.type", havingValue = "cos", matchIfMissing = true)
+public class CosStorageBackend implements StorageBackend {
+
+    @Resource
+    private CosClientConfig cosClientConfig;
+
+    @Resource
+    private COSClient cosClient;
+
+    private static final int MAX_DELETE_BATCH_SIZE = 1000;
+
+    @Override
+    public void putObject(String key, File file) {
+        cosClient.putObject(new PutObjectRequest(cosClientConfig.getBucket(), key, file));
+    }
+
+    @Override
+    public void putObject(String key, InputStream inputStream, long contentLength) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(contentLength);
+        cosClient.putObject(new PutObjectRequest(cosClientConfig.getBucket(), key, inputStream, objectMetadata));
+    }
+
+    @Override
+    public InputStream getObject(String key) {
+        return cosClient.getObject(new GetObjectRequest(cosClientConfig.getBucket(), key)).getObjectContent();
+    }
+
+    @Override
+    public String initMultipartUpload(String key) {
+        return cosClient.initiateMultipartUpload(new InitiateMultipartUploadRequest(cosClientConfig.getBucket(), key))
+                .getUploadId();
+    }
+
+    @Override
+    public String uploadPart(String key, String uploadId, int partNumber, InputStream inputStream, long contentLength) {
+        UploadPartRequest uploadPartRequest = new UploadPartRequest();
+        uploadPartRequest.setBucketName(cosClientConfig.getBucket());
+        uploadPartRequest.setKey(key);
+        uploadPartRequest.setUploadId(uploadId);
+        uploadPartRequest.setPartNumber(partNumber);
+        uploadPartRequest.setInputStream(inputStream);
+        uploadPartRequest.setPartSize(contentLength);
+        return cosClient.uploadPart(uploadPartRequest).getETag();
+    }
+
+    @Override
+    public void completeMultipartUpload(String key, String uploadId, List<String> etags) {
+        List<PartETag> partETags = new ArrayList<>(etags.size());
+        for (int i = 0; i < etags.size(); i++) {
+            partETags.add(new PartETag(i + 1, etags.get(i)));
+        }
+        cosClient.completeMultipartUpload(new CompleteMultipartUploadRequest(cosClientConfig.getBucket(), key,
+                uploadId, partETags));
+    }
+
+    @Override
+    public void abortMultipartUpload(String key, String uploadId) {
+        cosClient.abortMultipartUpload(new AbortMultipartUploadRequest(cosClientConfig.getBucket(), key, uploadId));
+    }
+
+    @Override
+    public boolean doesObjectExist(String key) {
+        return cosClient.doesObjectExist(cosClientConfig.getBucket(), key);
+    }
+
+    @Override
+    public void deleteObject(String key) {
+        cosClient.deleteObject(cosClientConfig.getBucket(), key);
+    }
+
+    @Override
+    public List<String> deleteObjects(List<String> keys) {
+        List<String> failedKeys = new ArrayList<>();
+        // 单次请求最多删除 1000 个对象
+        for (List<String> batch : ListUtil.partition(keys, MAX_DELETE_BATCH_SIZE)) {
+            DeleteObjectsRequest deleteObjectsRequest = new DeleteObjectsRequest(cosClientConfig.getBucket());
+            // 简单模式，只返回删除失败的对象
+            deleteObjectsRequest.setQuiet(true);
+            deleteObjectsRequest.setKeys(batch.stream()
+                    .map(DeleteObjectsRequest.KeyVersion::new)
+                    .collect(Collectors.toList()));
+            try {
+                cosClient.deleteObjects(deleteObjectsRequest);
+            } catch (MultiObjectDeleteException e) {
+                e.getErrors().forEach(error -> failedKeys.add(error.getKey()));
+            }
+        }
+        return failedKeys;
+    }
+
+    @Override
+    public String getUrl(String key) {
+        return "https://" + cosClientConfig.getHost() + "/" + StrUtil.removePrefix(key, "/");
+    }
+
+    @Override
+    public String resolveKey(String keyOrUrl) {
+        // 兼容 https://host/key 和 host/key 两种历史地址
+        if (StrUtil.contains(keyOrUrl, cosClientConfig.getHost())) {
+            return StrUtil.removePrefix(StrUtil.subAfter(keyOrUrl, cosClientConfig.getHost(), false), "/");
+        }
+        return keyOrUrl;
+    }
+
+    @Override
+    public boolean supportsPictureProcess() {
+        return true;
+    }
+}
@@ -0,0 +1,247 @@
+package com.leo.leopicturebackend.manager.storage;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.ReUtil;
+import cn.hutool.core.util.StrUtil;
+import com.leo.leopicturebackend.config.StorageConfig;
+import com.leo.leopicturebackend.exception.BusinessException;
+import com.leo.leopicturebackend.exception.ErrorCode;
+import com.leo.leopicturebackend.exception.ThrowUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * 本地磁盘存储
+ * 1. 按 key 的哈希分两级目录存放（如 root/ab/cd/public/1/xxx.png），避免单个目录下文件过多
+ * 2. 先写入同目录下的临时文件，写完后原子重命名，读取方不会看到写了一半的文件
+ * 3. 通过 LocalFileController 对外提供访问
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "storage.type", havingValue = "local")
+public class LocalStorageBackend implements StorageBackend {
+
+    @Resource
+    private StorageConfig storageConfig;
+
+    // 分块上传时分块的存放目录（位于根目录下，不会与对象路径冲突：对象路径的第一级是哈希目录）
+    private static final String MULTIPART_DIR = ".multipart";
+
+    private Path rootDir;
+
+    @PostConstruct
+    public void init() throws IOException {
+        rootDir = Paths.get(storageConfig.getLocalRootDir()).toAbsolutePath().normalize();
+        Files.createDirectories(rootDir);
+        log.info("使用本地文件存储，根目录: {}", rootDir);
+    }
+
+    @Override
+    public void putObject(String key, File file) {
+        try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+            putObject(key, inputStream, file.length());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void putObject(String key, InputStream inputStream, long contentLength) {
+        writeAtomically(resolvePath(key), tempFile -> {
+            long written = Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            if (contentLength >= 0 && written != contentLength) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "文件长度不一致");
+            }
+        });
+    }
+
+    @Override
+    public InputStream getObject(String key) {
+        try {
+            return Files.newInputStream(resolvePath(key));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String initMultipartUpload(String key) {
+        String uploadId = IdUtil.fastSimpleUUID();
+        try {
+            Files.createDirectories(resolvePartDir(uploadId));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return uploadId;
+    }
+
+    @Override
+    public String uploadPart(String key, String uploadId, int partNumber, InputStream inputStream, long contentLength) {
+        Path partDir = resolvePartDir(uploadId);
+        ThrowUtils.throwIf(!Files.isDirectory(partDir), ErrorCode.NOT_FOUND_ERROR, "分块上传不存在");
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+            writeAtomically(partDir.resolve(partNumber + ".part"), tempFile -> {
+                long written = Files.copy(new DigestInputStream(inputStream, messageDigest), tempFile,
+                        StandardCopyOption.REPLACE_EXISTING);
+                if (written != contentLength) {
+                    throw new BusinessException(ErrorCode.PARAMS_ERROR, "分块长度不一致");
+                }
+            });
+            return HexUtil.encodeHexStr(messageDigest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void completeMultipartUpload(String key, String uploadId, List<String> etags) {
+        Path partDir = resolvePartDir(uploadId);
+        writeAtomically(resolvePath(key), tempFile -> {
+            // 按顺序拼接分块，使用 transferTo 避免经过用户态缓冲区
+            try (FileChannel targetChannel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                for (int partNumber = 1; partNumber <= etags.size(); partNumber++) {
+                    Path partFile = partDir.resolve(partNumber + ".part");
+                    ThrowUtils.throwIf(!Files.isRegularFile(partFile), ErrorCode.PARAMS_ERROR, "分块不完整");
+                    try (FileChannel partChannel = FileChannel.open(partFile, StandardOpenOption.READ)) {
+                        long position = 0;
+                        long size = partChannel.size();
+                        while (position < size) {
+                            position += partChannel.transferTo(position, size - position, targetChannel);
+                        }
+                    }
+                }
+            }
+        });
+        abortMultipartUpload(key, uploadId);
+    }
+
+    @Override
+    public void abortMultipartUpload(String key, String uploadId) {
+        Path partDir = resolvePartDir(uploadId);
+        if (Files.isDirectory(partDir)) {
+            FileUtil.del(partDir);
+        }
+    }
+
+    @Override
+    public boolean doesObjectExist(String key) {
+        return Files.isRegularFile(resolvePath(key));
+    }
+
+    @Override
+    public void deleteObject(String key) {
+        try {
+            Files.deleteIfExists(resolvePath(key));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String getUrl(String key) {
+        return StrUtil.removeSuffix(storageConfig.getLocalBaseUrl(), "/") + "/" + normalizeKey(key);
+    }
+
+    @Override
+    public String resolveKey(String keyOrUrl) {
+        String baseUrl = StrUtil.removeSuffix(storageConfig.getLocalBaseUrl(), "/") + "/";
+        if (StrUtil.startWith(keyOrUrl, baseUrl)) {
+            return keyOrUrl.substring(baseUrl.length());
+        }
+        return keyOrUrl;
+    }
+
+    /**
+     * 获取 key 对应的本地文件，供 LocalFileController 读取
+     *
+     * @param key 唯一键
+     * @return
+     */
+    public Path resolvePath(String key) {
+        String normalizedKey = normalizeKey(key);
+        String hash = DigestUtils.md5DigestAsHex(normalizedKey.getBytes(StandardCharsets.UTF_8));
+        Path path = rootDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4))
+                .resolve(normalizedKey).normalize();
+        // 防止路径穿越
+        if (!path.startsWith(rootDir)) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件路径非法");
+        }
+        return path;
+    }
+
+    /**
+     * 先写入同目录下的临时文件，写完后原子重命名
+     */
+    private void writeAtomically(Path target, TempFileWriter writer) {
+        Path tempFile = null;
+        try {
+            Files.createDirectories(target.getParent());
+            tempFile = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+            writer.write(tempFile);
+            try {
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            tempFile = null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException e) {
+                    log.warn("删除临时文件失败: {}", tempFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * 分块上传的分块目录：root/.multipart/{uploadId}
+     */
+    private Path resolvePartDir(String uploadId) {
+        ThrowUtils.throwIf(!ReUtil.isMatch("[0-9a-zA-Z]+", StrUtil.nullToEmpty(uploadId)),
+                ErrorCode.PARAMS_ERROR, "分块上传 id 非法");
+        return rootDir.resolve(MULTIPART_DIR).resolve(uploadId);
+    }
+
+    private static String normalizeKey(String key) {
+        if (StrUtil.isBlank(key)) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件路径为空");
+        }
+        String normalizedKey = key.replace('\\', '/');
+        while (normalizedKey.startsWith("/")) {
+            normalizedKey = normalizedKey.substring(1);
+        }
+        if (normalizedKey.contains("..")) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件路径非法");
+        }
+        return normalizedKey;
+    }
+
+    @FunctionalInterface
+    private interface TempFileWriter {
+
+        void write(Path tempFile) throws IOException;
+    }
+}
@@ -0,0 +1,128 @@
+package com.leo.leopicturebackend.manager.storage;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 文件存储后端
+ * key 为对象路径（如 /public/1/xxx.png），url 为对外访问地址，两者可以通过 getUrl / resolveKey 互相转换
+ */
+public interface StorageBackend {
+
+    /**
+     * 上传对象
+     *
+     * @param key  唯一键
+     * @param file 文件
+     */
+    void putObject(String key, File file);
+
+    /**
+     * 流式上传对象
+     *
+     * @param key           唯一键
+     * @param inputStream   输入流
+     * @param contentLength 内容长度
+     */
+    void putObject(String key, InputStream inputStream, long contentLength);
+
+    /**
+     * 读取对象内容，由调用方关闭输入流
+     *
+     * @param key 唯一键
+     */
+    InputStream getObject(String key);
+
+    /**
+     * 初始化分块上传
+     *
+     * @param key 唯一键
+     * @return 分块上传 id
+     */
+    String initMultipartUpload(String key);
+
+    /**
+     * 上传分块，同一分块重复上传时覆盖之前的内容
+     *
+     * @param key           唯一键
+     * @param uploadId      分块上传 id
+     * @param partNumber    分块编号，从 1 开始
+     * @param inputStream   输入流
+     * @param contentLength 分块长度
+     * @return 分块的 ETag，合并时需要
+     */
+    String uploadPart(String key, String uploadId, int partNumber, InputStream inputStream, long contentLength);
+
+    /**
+     * 按分块编号顺序合并分块
+     *
+     * @param key      唯一键
+     * @param uploadId 分块上传 id
+     * @param etags    各分块的 ETag，下标 i 对应分块编号 i + 1
+     */
+    void completeMultipartUpload(String key, String uploadId, List<String> etags);
+
+    /**
+     * 取消分块上传，清理已上传的分块
+     *
+     * @param key      唯一键
+     * @param uploadId 分块上传 id
+     */
+    void abortMultipartUpload(String key, String uploadId);
+
+    /**
+     * 判断对象是否存在
+     *
+     * @param key 唯一键
+     */
+    boolean doesObjectExist(String key);
+
+    /**
+     * 删除对象，对象不存在时忽略
+     *
+     * @param key 唯一键
+     */
+    void deleteObject(String key);
+
+    /**
+     * 批量删除对象，对象不存在时忽略
+     * 默认逐个删除，支持批量删除的存储应覆盖此方法
+     *
+     * @param keys 唯一键列表
+     * @return 删除失败的唯一键
+     */
+    default List<String> deleteObjects(List<String> keys) {
+        List<String> failedKeys = new ArrayList<>();
+        for (String key : keys) {
+            try {
+                deleteObject(key);
+            } catch (Exception e) {
+                failedKeys.add(key);
+            }
+        }
+        return failedKeys;
+    }
+
+    /**
+     * 获取对象的访问地址
+     *
+     * @param key 唯一键
+     */
+    String getUrl(String key);
+
+    /**
+     * 将访问地址转换为唯一键，传入的已经是唯一键时原样返回
+     *
+     * @param keyOrUrl 唯一键或访问地址
+     */
+    String resolveKey(String keyOrUrl);
+
+    /**
+     * 是否支持上传时的图片处理（数据万象），不支持时需要在本地处理图片
+     */
+    default boolean supportsPictureProcess() {
+        return false;
+    }
+}
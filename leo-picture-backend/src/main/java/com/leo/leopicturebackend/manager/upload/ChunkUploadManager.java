@@ -0,0 +1,247 @@
+package com.leo.leopicturebackend.manager.upload;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.json.JSONUtil;
+import com.leo.leopicturebackend.exception.BusinessException;
+import com.leo.leopicturebackend.exception.ErrorCode;
+import com.leo.leopicturebackend.exception.ThrowUtils;
+import com.leo.leopicturebackend.manager.CosManager;
+import com.leo.leopicturebackend.manager.StorageDeleteManager;
+import com.leo.leopicturebackend.model.vo.ChunkUploadVO;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分块上传（断点续传）管理
+ * 1. 创建会话时在存储中初始化分块上传，会话状态（文件信息、已上传分块的 ETag）保存在 Redis 中，任意实例都可以继续上传
+ * 2. 分块按偏移量上传，直接写入存储的分块上传，不经过本地磁盘；同一分块可以重复上传（重试），以最后一次为准
+ * 3. 合并后得到原始文件，由调用方按普通上传流程处理：处理成功后删除会话和原始文件，失败时保留，可以重新完成上传
+ * 会话过期后未合并的分块由存储的生命周期规则清理（对象存储需配置“清理未完成的分块上传”）
+ */
+@Slf4j
+@Component
+public class ChunkUploadManager {
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private CosManager cosManager;
+
+    @Resource
+    private StorageDeleteManager storageDeleteManager;
+
+    // 分块大小：对象存储要求除最后一块外每块不小于 1MB
+    public static final long CHUNK_SIZE = 1024 * 1024L;
+
+    private static final String SESSION_KEY_PREFIX = "leopicture:chunkUpload:";
+    // 会话过期时间：24 小时（每次上传分块时续期）
+    private static final long SESSION_EXPIRE_SECONDS = 24 * 3600;
+    // 处理失败时原始文件的保留时间：会话过期 1 小时后删除
+    private static final long MERGED_FILE_RETAIN_MS = (SESSION_EXPIRE_SECONDS + 3600) * 1000;
+
+    private static final String FIELD_SESSION = "session";
+    private static final String FIELD_FORMAT = "format";
+    private static final String FIELD_COMPLETING = "completing";
+    private static final String FIELD_MERGED = "merged";
+    private static final String FIELD_PART_PREFIX = "part:";
+
+    /**
+     * 创建分块上传会话
+     *
+     * @param session 会话信息（用户、文件名、文件大小、空间、图片）
+     * @return 上传进度
+     */
+    public ChunkUploadVO createSession(ChunkUploadSession session) {
+        String uploadId = IdUtil.fastSimpleUUID();
+        session.setUploadId(uploadId);
+        session.setChunkSize(CHUNK_SIZE);
+        session.setTotalChunks((int) ((session.getFileSize() + CHUNK_SIZE - 1) / CHUNK_SIZE));
+        session.setKey(String.format("/chunk/%s/%s", session.getUserId(), uploadId));
+        session.setStorageUploadId(cosManager.initMultipartUpload(session.getKey()));
+        String sessionKey = SESSION_KEY_PREFIX + uploadId;
+        stringRedisTemplate.opsForHash().put(sessionKey, FIELD_SESSION, JSONUtil.toJsonStr(session));
+        stringRedisTemplate.expire(sessionKey, SESSION_EXPIRE_SECONDS, TimeUnit.SECONDS);
+        return buildProgress(session, Collections.emptyMap());
+    }
+
+    /**
+     * 上传分块
+     *
+     * @param uploadId      分块上传 id
+     * @param offset        分块在文件中的起始偏移量，必须是分块大小的整数倍
+     * @param inputStream   分块内容
+     * @param contentLength 分块长度
+     * @param userId        上传用户 id
+     * @return 上传进度
+     */
+    public ChunkUploadVO uploadChunk(String uploadId, long offset, InputStream inputStream, long contentLength,
+                                     Long userId) {
+        String sessionKey = SESSION_KEY_PREFIX + uploadId;
+        Map<String, String> fields = getFields(sessionKey);
+        ChunkUploadSession session = getSession(fields, userId);
+        ThrowUtils.throwIf(fields.containsKey(FIELD_COMPLETING), ErrorCode.OPERATION_ERROR, "分块上传正在合并");
+        ThrowUtils.throwIf(fields.containsKey(FIELD_MERGED), ErrorCode.OPERATION_ERROR, "分块已合并");
+        // 1. 校验偏移量和长度
+        ThrowUtils.throwIf(offset < 0 || offset % CHUNK_SIZE != 0 || offset >= session.getFileSize(),
+                ErrorCode.PARAMS_ERROR, "分块偏移量错误");
+        long expectedLength = Math.min(CHUNK_SIZE, session.getFileSize() - offset);
+        ThrowUtils.throwIf(contentLength != expectedLength, ErrorCode.PARAMS_ERROR,
+                String.format("分块长度应为 %d", expectedLength));
+        int chunkIndex = (int) (offset / CHUNK_SIZE);
+        // 2. 第一个分块根据文件头识别图片格式
+        String format = null;
+        InputStream chunkInputStream = inputStream;
+        if (chunkIndex == 0) {
+            try {
+                PictureInputStream pictureInputStream = new PictureInputStream(inputStream, expectedLength);
+                format = pictureInputStream.getFormat();
+                chunkInputStream = pictureInputStream;
+            } catch (IOException e) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "分块读取失败");
+            }
+        }
+        // 3. 写入存储
+        String etag = cosManager.uploadPart(session.getKey(), session.getStorageUploadId(), chunkIndex + 1,
+                chunkInputStream, expectedLength);
+        fields.put(FIELD_PART_PREFIX + chunkIndex, etag);
+        stringRedisTemplate.opsForHash().put(sessionKey, FIELD_PART_PREFIX + chunkIndex, etag);
+        if (format != null) {
+            stringRedisTemplate.opsForHash().put(sessionKey, FIELD_FORMAT, format);
+        }
+        stringRedisTemplate.expire(sessionKey, SESSION_EXPIRE_SECONDS, TimeUnit.SECONDS);
+        return buildProgress(session, fields);
+    }
+
+    /**
+     * 查询上传进度
+     *
+     * @param uploadId 分块上传 id
+     * @param userId   上传用户 id
+     * @return 上传进度
+     */
+    public ChunkUploadVO getProgress(String uploadId, Long userId) {
+        Map<String, String> fields = getFields(SESSION_KEY_PREFIX + uploadId);
+        return buildProgress(getSession(fields, userId), fields);
+    }
+
+    /**
+     * 合并分块（已合并时跳过）
+     * 调用方处理完原始文件后调用 finish，处理失败时调用 release，之后可以重新完成上传
+     *
+     * @param uploadId 分块上传 id
+     * @param userId   上传用户 id
+     * @return 会话信息，合并后的原始文件位于 session.key
+     */
+    public ChunkUploadSession complete(String uploadId, Long userId) {
+        String sessionKey = SESSION_KEY_PREFIX + uploadId;
+        Map<String, String> fields = getFields(sessionKey);
+        ChunkUploadSession session = getSession(fields, userId);
+        // 1. 校验分块是否完整
+        List<String> etags = new ArrayList<>(session.getTotalChunks());
+        for (int i = 0; i < session.getTotalChunks(); i++) {
+            String etag = fields.get(FIELD_PART_PREFIX + i);
+            ThrowUtils.throwIf(etag == null, ErrorCode.PARAMS_ERROR, String.format("分块 %d 尚未上传", i));
+            etags.add(etag);
+        }
+        session.setFormat(fields.get(FIELD_FORMAT));
+        // 2. 防止重复合并
+        Boolean acquired = stringRedisTemplate.opsForHash().putIfAbsent(sessionKey, FIELD_COMPLETING, "1");
+        ThrowUtils.throwIf(!Boolean.TRUE.equals(acquired), ErrorCode.OPERATION_ERROR, "分块上传正在合并");
+        // 3. 合并（上一次完成时已合并、但处理失败的，直接使用已合并的原始文件）
+        if (!Boolean.TRUE.equals(stringRedisTemplate.opsForHash().hasKey(sessionKey, FIELD_MERGED))) {
+            try {
+                cosManager.completeMultipartUpload(session.getKey(), session.getStorageUploadId(), etags);
+            } catch (Exception e) {
+                stringRedisTemplate.opsForHash().delete(sessionKey, FIELD_COMPLETING);
+                log.error("合并分块失败, uploadId = {}", uploadId, e);
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "合并分块失败");
+            }
+            stringRedisTemplate.opsForHash().put(sessionKey, FIELD_MERGED, "1");
+        }
+        return session;
+    }
+
+    /**
+     * 原始文件处理成功：删除会话，登记删除原始文件
+     *
+     * @param session complete 返回的会话信息
+     */
+    public void finish(ChunkUploadSession session) {
+        stringRedisTemplate.delete(SESSION_KEY_PREFIX + session.getUploadId());
+        storageDeleteManager.enqueue(Collections.singletonList(session.getKey()));
+    }
+
+    /**
+     * 原始文件处理失败：清除合并中标记，会话过期前可以重新完成上传，原始文件在会话过期后删除
+     *
+     * @param session complete 返回的会话信息
+     */
+    public void release(ChunkUploadSession session) {
+        String sessionKey = SESSION_KEY_PREFIX + session.getUploadId();
+        stringRedisTemplate.opsForHash().delete(sessionKey, FIELD_COMPLETING);
+        stringRedisTemplate.expire(sessionKey, SESSION_EXPIRE_SECONDS, TimeUnit.SECONDS);
+        storageDeleteManager.enqueue(Collections.singletonList(session.getKey()), MERGED_FILE_RETAIN_MS);
+    }
+
+    /**
+     * 取消分块上传，清理已上传的分块
+     *
+     * @param uploadId 分块上传 id
+     * @param userId   上传用户 id
+     */
+    public void abort(String uploadId, Long userId) {
+        String sessionKey = SESSION_KEY_PREFIX + uploadId;
+        Map<String, String> fields = getFields(sessionKey);
+        ChunkUploadSession session = getSession(fields, userId);
+        ThrowUtils.throwIf(fields.containsKey(FIELD_COMPLETING), ErrorCode.OPERATION_ERROR, "分块上传正在合并");
+        if (fields.containsKey(FIELD_MERGED)) {
+            storageDeleteManager.enqueue(Collections.singletonList(session.getKey()));
+        } else {
+            cosManager.abortMultipartUpload(session.getKey(), session.getStorageUploadId());
+        }
+        stringRedisTemplate.delete(sessionKey);
+    }
+
+    private Map<String, String> getFields(String sessionKey) {
+        Map<String, String> fields = stringRedisTemplate.<String, String>opsForHash().entries(sessionKey);
+        ThrowUtils.throwIf(fields.isEmpty(), ErrorCode.NOT_FOUND_ERROR, "分块上传不存在或已过期");
+        return fields;
+    }
+
+    private static ChunkUploadSession getSession(Map<String, String> fields, Long userId) {
+        ChunkUploadSession session = JSONUtil.toBean(fields.get(FIELD_SESSION), ChunkUploadSession.class);
+        ThrowUtils.throwIf(!session.getUserId().equals(userId), ErrorCode.NO_AUTH_ERROR);
+        return session;
+    }
+
+    private static ChunkUploadVO buildProgress(ChunkUploadSession session, Map<String, String> fields) {
+        List<Long> uploadedOffsets = new ArrayList<>();
+        long uploadedBytes = 0;
+        for (int i = 0; i < session.getTotalChunks(); i++) {
+            if (fields.containsKey(FIELD_PART_PREFIX + i)) {
+                long offset = i * CHUNK_SIZE;
+                uploadedOffsets.add(offset);
+                uploadedBytes += Math.min(CHUNK_SIZE, session.getFileSize() - offset);
+            }
+        }
+        ChunkUploadVO chunkUploadVO = new ChunkUploadVO();
+        chunkUploadVO.setUploadId(session.getUploadId());
+        chunkUploadVO.setFileSize(session.getFileSize());
+        chunkUploadVO.setChunkSize(session.getChunkSize());
+        chunkUploadVO.setTotalChunks(session.getTotalChunks());
+        chunkUploadVO.setUploadedOffsets(uploadedOffsets);
+        chunkUploadVO.setUploadedBytes(uploadedBytes);
+        return chunkUploadVO;
+    }
+}
@@ -0,0 +1,70 @@
+package com.leo.leopicturebackend.manager.upload;
+
+import lombok.Data;
+
+/**
+ * 分块上传会话
+ */
+@Data
+public class ChunkUploadSession {
+
+    /**
+     * 分块上传 id（对外）
+     */
+    private String uploadId;
+
+    /**
+     * 上传用户 id
+     */
+    private Long userId;
+
+    /**
+     * 原始文件名
+     */
+    private String fileName;
+
+    /**
+     * 文件大小
+     */
+    private Long fileSize;
+
+    /**
+     * 分块大小
+     */
+    private Long chunkSize;
+
+    /**
+     * 分块总数
+     */
+    private Integer totalChunks;
+
+    /**
+     * 合并后原始文件在存储中的唯一键
+     */
+    private String key;
+
+    /**
+     * 存储的分块上传 id
+     */
+    private String storageUploadId;
+
+    /**
+     * 空间 id
+     */
+    private Long spaceId;
+
+    /**
+     * 图片 id（重新上传时）
+     */
+    private Long pictureId;
+
+    /**
+     * 图片名称
+     */
+    private String picName;
+
+    /**
+     * 根据第一个分块的文件头识别的图片格式
+     */
+    private String format;
+}
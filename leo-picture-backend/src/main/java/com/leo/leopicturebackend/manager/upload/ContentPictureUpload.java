@@ -0,0 +1,58 @@
+package com.leo.leopicturebackend.manager.upload;
+
+import cn.hutool.core.io.FileUtil;
+import com.leo.leopicturebackend.exception.BusinessException;
+import com.leo.leopicturebackend.exception.ErrorCode;
+import com.leo.leopicturebackend.exception.ThrowUtils;
+import com.leo.leopicturebackend.model.dto.file.UploadPictureContent;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 内存中的图片上传（异步上传、分片合并后的图片）
+ * 图片格式根据魔数识别，不依赖文件名和 Content-Type
+ */
+@Service
+public class ContentPictureUpload extends PictureUploadTemplate {
+
+    // 允许上传的大小
+    public static final long MAX_UPLOAD_SIZE = 2 * 1024 * 1024L;
+
+    @Override
+    protected String validPicture(Object inputSource) {
+        UploadPictureContent uploadPictureContent = (UploadPictureContent) inputSource;
+        ThrowUtils.throwIf(uploadPictureContent == null || uploadPictureContent.getContent() == null
+                || uploadPictureContent.getContent().length == 0, ErrorCode.PARAMS_ERROR, "文件不能为空");
+        ThrowUtils.throwIf(uploadPictureContent.getContent().length > MAX_UPLOAD_SIZE, ErrorCode.PARAMS_ERROR,
+                "文件大小不能超过 2M");
+        try {
+            return openPictureInputStream(uploadPictureContent).getFormat();
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件读取失败");
+        }
+    }
+
+    @Override
+    protected String getOriginFilename(Object inputSource) {
+        return ((UploadPictureContent) inputSource).getOriginalFilename();
+    }
+
+    @Override
+    protected PictureStream openStream(Object inputSource) throws Exception {
+        UploadPictureContent uploadPictureContent = (UploadPictureContent) inputSource;
+        return new PictureStream(openPictureInputStream(uploadPictureContent),
+                uploadPictureContent.getContent().length, null);
+    }
+
+    @Override
+    protected void processFile(Object inputSource, File file) throws Exception {
+        FileUtil.writeBytes(((UploadPictureContent) inputSource).getContent(), file);
+    }
+
+    private static PictureInputStream openPictureInputStream(UploadPictureContent uploadPictureContent) throws IOException {
+        return new PictureInputStream(new ByteArrayInputStream(uploadPictureContent.getContent()), MAX_UPLOAD_SIZE);
+    }
+}
@@ -23,6 +23,8 @@ public class FilePictureUpload extends PictureUploadTemplate {
 
     // 定义常量，提高可读性和维护性
     private static final long MAX_FILE_SIZE = 5 * 1024 * 1024L; // 5MB
+    // 实际允许上传的大小
+    private static final long MAX_UPLOAD_SIZE = 2 * 1024 * 1024L;
     private static final List<String> ALLOWED_SUFFIXES = Arrays.asList(
             "png", "jpg", "jpeg", "gif", "webp", "bmp", "tiff"
     );
@@ -66,6 +68,14 @@ public class FilePictureUpload extends PictureUploadTemplate {
         return multipartFile.getOriginalFilename();
     }
 
+    @Override
+    protected PictureStream openStream(Object inputSource) throws Exception {
+        MultipartFile multipartFile = (MultipartFile) inputSource;
+        // 直接读取请求中的文件流，边读边校验魔数和大小
+        PictureInputStream pictureInputStream = new PictureInputStream(multipartFile.getInputStream(), MAX_UPLOAD_SIZE);
+        return new PictureStream(pictureInputStream, multipartFile.getSize(), null);
+    }
+
     @Override
     protected void processFile(Object inputSource, File file) throws Exception {
         MultipartFile multipartFile = (MultipartFile) inputSource;
@@ -0,0 +1,60 @@
+package com.leo.leopicturebackend.manager.upload;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import com.leo.leopicturebackend.exception.ErrorCode;
+import com.leo.leopicturebackend.exception.ThrowUtils;
+import com.leo.leopicturebackend.model.dto.file.UploadPictureObject;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 已在存储中的图片上传（分块上传合并后的原始文件）
+ * 从存储中读取原始文件，按普通上传流程处理（秒传、图片处理、上传到正式路径），原始文件由调用方删除
+ */
+@Service
+public class ObjectPictureUpload extends PictureUploadTemplate {
+
+    // 分块上传允许的最大文件大小
+    public static final long MAX_UPLOAD_SIZE = 20 * 1024 * 1024L;
+
+    private static final List<String> ALLOW_FORMAT_LIST = Arrays.asList("jpeg", "png", "webp");
+
+    @Override
+    protected String validPicture(Object inputSource) {
+        UploadPictureObject uploadPictureObject = (UploadPictureObject) inputSource;
+        ThrowUtils.throwIf(uploadPictureObject == null, ErrorCode.PARAMS_ERROR, "文件不能为空");
+        ThrowUtils.throwIf(uploadPictureObject.getSize() > MAX_UPLOAD_SIZE, ErrorCode.PARAMS_ERROR, "文件大小不能超过 20M");
+        ThrowUtils.throwIf(!ALLOW_FORMAT_LIST.contains(uploadPictureObject.getFormat()), ErrorCode.PARAMS_ERROR, "文件类型错误");
+        return uploadPictureObject.getFormat();
+    }
+
+    @Override
+    protected String getOriginFilename(Object inputSource) {
+        return ((UploadPictureObject) inputSource).getOriginalFilename();
+    }
+
+    @Override
+    protected PictureStream openStream(Object inputSource) throws Exception {
+        UploadPictureObject uploadPictureObject = (UploadPictureObject) inputSource;
+        InputStream inputStream = cosManager.openObject(uploadPictureObject.getKey());
+        try {
+            return new PictureStream(new PictureInputStream(inputStream, MAX_UPLOAD_SIZE),
+                    uploadPictureObject.getSize(), null);
+        } catch (Exception e) {
+            IoUtil.close(inputStream);
+            throw e;
+        }
+    }
+
+    @Override
+    protected void processFile(Object inputSource, File file) throws Exception {
+        try (InputStream inputStream = cosManager.openObject(((UploadPictureObject) inputSource).getKey())) {
+            FileUtil.writeFromStream(inputStream, file, false);
+        }
+    }
+}
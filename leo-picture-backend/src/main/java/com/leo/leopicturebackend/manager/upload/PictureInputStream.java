@@ -0,0 +1,113 @@
+package com.leo.leopicturebackend.manager.upload;
+
+import com.leo.leopicturebackend.exception.BusinessException;
+import com.leo.leopicturebackend.exception.ErrorCode;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+
+/**
+ * 边读边校验的图片输入流
+ * 1. 创建时预读文件头，根据魔数校验是否为允许的图片格式（jpeg、png、webp），不信任 Content-Type
+ * 2. 读取过程中统计字节数，超过大小限制立即中断，不会把超大文件完整读完
+ */
+public class PictureInputStream extends FilterInputStream {
+
+    // 识别图片格式需要的文件头长度
+    private static final int HEADER_LENGTH = 12;
+
+    private final long maxSize;
+
+    private final String format;
+
+    private long readBytes = 0;
+
+    /**
+     * @param inputStream 原始输入流
+     * @param maxSize     最大字节数
+     * @throws IOException
+     */
+    public PictureInputStream(InputStream inputStream, long maxSize) throws IOException {
+        this(inputStream, inputStream.readNBytes(HEADER_LENGTH), maxSize);
+    }
+
+    private PictureInputStream(InputStream inputStream, byte[] header, long maxSize) {
+        // 预读的文件头重新拼接到流的开头
+        super(new SequenceInputStream(new ByteArrayInputStream(header), inputStream));
+        this.maxSize = maxSize;
+        this.format = detectFormat(header);
+        if (format == null) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件类型错误");
+        }
+    }
+
+    /**
+     * 根据文件头识别的图片格式
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            count(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void count(long n) {
+        readBytes += n;
+        if (readBytes > maxSize) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR,
+                    String.format("文件大小不能超过 %dM", maxSize / (1024 * 1024)));
+        }
+    }
+
+    /**
+     * 根据魔数识别图片格式
+     *
+     * @return 不支持的格式返回 null
+     */
+    private static String detectFormat(byte[] header) {
+        if (header.length >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8
+                && (header[2] & 0xFF) == 0xFF) {
+            return "jpeg";
+        }
+        if (header.length >= 8 && (header[0] & 0xFF) == 0x89 && header[1] == 'P' && header[2] == 'N'
+                && header[3] == 'G' && header[4] == 0x0D && header[5] == 0x0A && header[6] == 0x1A
+                && header[7] == 0x0A) {
+            return "png";
+        }
+        if (header.length >= 12 && header[0] == 'R' && header[1] == 'I' && header[2] == 'F' && header[3] == 'F'
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return "webp";
+        }
+        return null;
+    }
+}
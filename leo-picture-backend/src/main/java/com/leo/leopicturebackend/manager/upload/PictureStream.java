@@ -0,0 +1,47 @@
+package com.leo.leopicturebackend.manager.upload;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.InputStream;
+
+/**
+ * 流式上传的数据源：输入流 + 已知的内容长度
+ * 长度必须预先知道，对象存储 SDK 才能边读边传，而不是先把整个流缓存到内存
+ */
+@Slf4j
+public class PictureStream implements Closeable {
+
+    private final InputStream inputStream;
+
+    private final long contentLength;
+
+    // 关闭时需要一并释放的资源（如 HTTP 响应）
+    private final Closeable resource;
+
+    public PictureStream(InputStream inputStream, long contentLength, Closeable resource) {
+        this.inputStream = inputStream;
+        this.contentLength = contentLength;
+        this.resource = resource;
+    }
+
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public void close() {
+        try {
+            inputStream.close();
+            if (resource != null) {
+                resource.close();
+            }
+        } catch (Exception e) {
+            log.warn("关闭上传数据流失败: {}", e.getMessage());
+        }
+    }
+}
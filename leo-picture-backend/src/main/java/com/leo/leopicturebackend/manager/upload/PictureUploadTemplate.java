@@ -2,15 +2,26 @@ package com.leo.leopicturebackend.manager.upload;
 
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.exceptions.ExceptionUtil;
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.HexUtil;
 import cn.hutool.core.util.NumberUtil;
 import cn.hutool.core.util.RandomUtil;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.leo.leopicturebackend.config.CosClientConfig;
 import com.leo.leopicturebackend.exception.BusinessException;
 import com.leo.leopicturebackend.exception.ErrorCode;
+import com.leo.leopicturebackend.exception.RetryableException;
+import com.leo.leopicturebackend.exception.ThrowUtils;
 import com.leo.leopicturebackend.manager.CosManager;
+import com.leo.leopicturebackend.manager.image.ImageFeatures;
+import com.leo.leopicturebackend.manager.image.ImageProcessResult;
+import com.leo.leopicturebackend.manager.image.LocalImageProcessor;
+import com.leo.leopicturebackend.mapper.PictureMapper;
 import com.leo.leopicturebackend.model.dto.file.UploadPictureResult;
+import com.leo.leopicturebackend.model.entity.Picture;
 import com.qcloud.cos.exception.CosClientException;
 import com.qcloud.cos.model.PutObjectResult;
 import com.qcloud.cos.model.ciModel.persistence.CIObject;
@@ -19,7 +30,10 @@ import com.qcloud.cos.model.ciModel.persistence.ProcessResults;
 import lombok.extern.slf4j.Slf4j;
 
 import jakarta.annotation.Resource;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
@@ -40,6 +54,12 @@ public abstract class PictureUploadTemplate {
     @Resource
     protected CosClientConfig cosClientConfig;
 
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private LocalImageProcessor localImageProcessor;
+
     /**
      * 模板方法，定义上传流程
      */
@@ -64,18 +84,66 @@ public abstract class PictureUploadTemplate {
         String uploadPath = String.format("/%s/%s", uploadPathPrefix, uploadFilename);
 
         File file = null;
+        PictureStream pictureStream = null;
         try {
-            // 3. 创建临时文件
-            file = File.createTempFile(uploadPath, null);
-            // 处理文件来源（本地或 URL）
-            processFile(inputSource, file);
-            // 4. 上传图片到对象存储
-            PutObjectResult putObjectResult = cosManager.putPictureObject(uploadPath, file);
+            PutObjectResult putObjectResult;
+            long picSize;
+            String contentHash;
+            ImageFeatures features;
+            pictureStream = openStream(inputSource);
+            if (pictureStream != null) {
+                // 3. 边读边校验并计算内容哈希，图片大小已受限，直接读入内存，不落本地磁盘
+                MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+                byte[] content;
+                try (DigestInputStream digestInputStream = new DigestInputStream(pictureStream.getInputStream(), messageDigest)) {
+                    content = digestInputStream.readAllBytes();
+                }
+                contentHash = HexUtil.encodeHexStr(messageDigest.digest());
+                // 秒传：已存在相同内容的图片，复用其文件，跳过上传和图片处理
+                UploadPictureResult uploadedResult = findUploadedPicture(contentHash, originalFilename);
+                if (uploadedResult != null) {
+                    return uploadedResult;
+                }
+                // 本地处理图片，不使用数据万象
+                UploadPictureResult localResult = uploadWithLocalProcess(uploadPath, originalFilename, content);
+                if (localResult != null) {
+                    localResult.setContentHash(contentHash);
+                    return localResult;
+                }
+                // 数据万象只返回平均色，色板和感知哈希在本地提取
+                features = localImageProcessor.extractFeatures(content);
+                // 4. 上传图片到对象存储
+                putObjectResult = cosManager.putPictureObject(uploadPath, new ByteArrayInputStream(content), content.length);
+                picSize = content.length;
+            } else {
+                // 3. 不支持流式上传时，创建临时文件
+                file = File.createTempFile(uploadPath, null);
+                // 处理文件来源（本地或 URL）
+                processFile(inputSource, file);
+                contentHash = DigestUtil.sha256Hex(file);
+                UploadPictureResult uploadedResult = findUploadedPicture(contentHash, originalFilename);
+                if (uploadedResult != null) {
+                    return uploadedResult;
+                }
+                if (isLocalProcess()) {
+                    UploadPictureResult localResult = uploadWithLocalProcess(uploadPath, originalFilename,
+                            FileUtil.readBytes(file));
+                    if (localResult != null) {
+                        localResult.setContentHash(contentHash);
+                        return localResult;
+                    }
+                }
+                features = localImageProcessor.extractFeatures(FileUtil.readBytes(file));
+                // 4. 上传图片到对象存储
+                putObjectResult = cosManager.putPictureObject(uploadPath, file);
+                picSize = FileUtil.size(file);
+            }
             // 5. 获取图片信息对象，封装返回结果
             ImageInfo imageInfo = putObjectResult.getCiUploadResult().getOriginalInfo().getImageInfo();
             // 获取到图片处理结果
             ProcessResults processResults = putObjectResult.getCiUploadResult().getProcessResults();
             List<CIObject> objectList = processResults.getObjectList();
+            UploadPictureResult uploadPictureResult;
             if(CollUtil.isNotEmpty(objectList)) {
                 // 获取压缩之后得到的文件信息
                 CIObject compressedCiObject = objectList.get(0);
@@ -86,21 +154,37 @@ public abstract class PictureUploadTemplate {
                     thumbnailCiObject = objectList.get(1);
                 }
                 // 封装压缩图的返回结果
-                return buildResult(originalFilename, compressedCiObject, thumbnailCiObject, imageInfo);
+                uploadPictureResult = buildResult(originalFilename, compressedCiObject, thumbnailCiObject, imageInfo);
+            } else {
+                // 封装返回结果
+                uploadPictureResult = buildResult(originalFilename, picSize, uploadPath, imageInfo);
+            }
+            uploadPictureResult.setContentHash(contentHash);
+            if (features != null) {
+                uploadPictureResult.setPicPalette(features.getPalette());
+                uploadPictureResult.setPerceptualHash(features.getPerceptualHash());
             }
-            // 封装返回结果
-            return buildResult(originalFilename, file, uploadPath, imageInfo);
+            return uploadPictureResult;
         }  catch (CosClientException e) {
+            // 流式上传时，校验失败的异常会被 SDK 包装
+            Throwable cause = ExceptionUtil.getCausedBy(e, BusinessException.class);
+            if (cause != null) {
+                throw (BusinessException) cause;
+            }
             log.error("云存储客户端异常: {}", e.getMessage(), e);
-            throw new BusinessException(ErrorCode.OPERATION_ERROR, "云存储服务异常: " + e.getMessage());
+            throw new RetryableException(ErrorCode.OPERATION_ERROR, "云存储服务异常: " + e.getMessage());
         } catch (BusinessException e) {
             log.error("业务异常: {}", e.getMessage());
             throw e;
         } catch (Exception e) {
+            // 下载、读写、网络等临时错误，调用方可以重试
             log.error("图片上传到对象存储失败", e);
-            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "上传失败");
+            throw new RetryableException(ErrorCode.SYSTEM_ERROR, "上传失败");
         } finally {
-            // 6. 清理临时文件
+            // 6. 关闭数据流，清理临时文件
+            if (pictureStream != null) {
+                pictureStream.close();
+            }
             deleteTempFile(file);
         }
     }
@@ -121,6 +205,111 @@ public abstract class PictureUploadTemplate {
      */
     protected abstract void processFile(Object inputSource, File file) throws Exception;
 
+    /**
+     * 打开输入源的数据流，用于流式上传
+     *
+     * @return 无法确定内容长度等不支持流式上传的情况返回 null，改为使用临时文件上传
+     */
+    protected PictureStream openStream(Object inputSource) throws Exception {
+        return null;
+    }
+
+    /**
+     * 本地处理图片（宽高、格式、主色调、缩略图）后上传原图和缩略图，不使用数据万象
+     *
+     * @param uploadPath       上传路径
+     * @param originalFilename 原始文件名
+     * @param content          图片内容
+     * @return 未开启本地处理或本地无法解码时返回 null
+     */
+    private UploadPictureResult uploadWithLocalProcess(String uploadPath, String originalFilename, byte[] content) {
+        if (!isLocalProcess()) {
+            return null;
+        }
+        ImageProcessResult processResult = localImageProcessor.process(content);
+        if (processResult == null) {
+            // 存储不支持数据万象时无法回退
+            ThrowUtils.throwIf(!cosManager.supportsPictureProcess(), ErrorCode.PARAMS_ERROR, "暂不支持该图片格式");
+            return null;
+        }
+        // 上传原图
+        cosManager.putObject(uploadPath, new ByteArrayInputStream(content), content.length);
+        String url = cosManager.getUrl(uploadPath);
+        // 上传缩略图，没有缩略图时缩略图等于原图
+        String thumbnailUrl = url;
+        byte[] thumbnail = processResult.getThumbnail();
+        if (thumbnail != null) {
+            String thumbnailPath = String.format("%s/%s_thumbnail.%s", StrUtil.subBefore(uploadPath, "/", true),
+                    FileUtil.mainName(uploadPath), processResult.getThumbnailFormat());
+            cosManager.putObject(thumbnailPath, new ByteArrayInputStream(thumbnail), thumbnail.length);
+            thumbnailUrl = cosManager.getUrl(thumbnailPath);
+        }
+        int picWidth = processResult.getWidth();
+        int picHeight = processResult.getHeight();
+        UploadPictureResult uploadPictureResult = new UploadPictureResult();
+        uploadPictureResult.setUrl(url);
+        uploadPictureResult.setThumbnailUrl(thumbnailUrl);
+        uploadPictureResult.setPicName(FileUtil.mainName(originalFilename));
+        uploadPictureResult.setPicSize((long) content.length);
+        uploadPictureResult.setPicWidth(picWidth);
+        uploadPictureResult.setPicHeight(picHeight);
+        uploadPictureResult.setPicScale(NumberUtil.round(picWidth * 1.0 / picHeight, 2).doubleValue());
+        uploadPictureResult.setPicFormat(processResult.getFormat());
+        uploadPictureResult.setPicColor(processResult.getColor());
+        uploadPictureResult.setPicPalette(processResult.getPalette());
+        uploadPictureResult.setPerceptualHash(processResult.getPerceptualHash());
+        return uploadPictureResult;
+    }
+
+    /**
+     * 是否在本地处理图片：开启了本地处理，或当前存储不支持数据万象
+     */
+    private boolean isLocalProcess() {
+        return localImageProcessor.isEnabled() || !cosManager.supportsPictureProcess();
+    }
+
+    /**
+     * 按内容哈希查找已上传的相同图片（秒传）
+     * 命中时复用已有的文件地址（压缩图、缩略图）和图片信息，引用计数为使用该地址的记录数，删除最后一条记录时才删除文件
+     *
+     * @param contentHash      内容哈希
+     * @param originalFilename 原始文件名
+     * @return 未命中返回 null
+     */
+    private UploadPictureResult findUploadedPicture(String contentHash, String originalFilename) {
+        try {
+            Picture picture = pictureMapper.selectOne(new QueryWrapper<Picture>()
+                    .eq("contentHash", contentHash)
+                    .last("limit 1"));
+            if (picture == null) {
+                return null;
+            }
+            // 最后一条引用刚被删除时文件可能已被清理，确认文件仍然存在
+            if (!cosManager.doesObjectExist(picture.getUrl())) {
+                return null;
+            }
+            UploadPictureResult uploadPictureResult = new UploadPictureResult();
+            uploadPictureResult.setUrl(picture.getUrl());
+            uploadPictureResult.setThumbnailUrl(picture.getThumbnailUrl());
+            uploadPictureResult.setPicName(FileUtil.mainName(originalFilename));
+            uploadPictureResult.setPicSize(picture.getPicSize());
+            uploadPictureResult.setPicWidth(picture.getPicWidth());
+            uploadPictureResult.setPicHeight(picture.getPicHeight());
+            uploadPictureResult.setPicScale(picture.getPicScale());
+            uploadPictureResult.setPicFormat(picture.getPicFormat());
+            uploadPictureResult.setPicColor(picture.getPicColor());
+            uploadPictureResult.setPicPalette(picture.getPicPalette());
+            uploadPictureResult.setPerceptualHash(picture.getPerceptualHash());
+            uploadPictureResult.setContentHash(contentHash);
+            log.info("秒传命中，复用图片文件: {}", picture.getUrl());
+            return uploadPictureResult;
+        } catch (Exception e) {
+            // 查询失败不影响正常上传
+            log.warn("查询相同内容的图片失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * 封装返回结果
      *
@@ -142,7 +331,7 @@ public abstract class PictureUploadTemplate {
         // 封装返回结果
         UploadPictureResult uploadPictureResult = new UploadPictureResult();
         // 设置压缩后的原图地址
-        uploadPictureResult.setUrl("https://" + cosClientConfig.getHost() + "/" + compressedCiObject.getKey());
+        uploadPictureResult.setUrl(cosManager.getUrl(compressedCiObject.getKey()));
         uploadPictureResult.setPicName(FileUtil.mainName(originalFilename));
         uploadPictureResult.setPicSize(compressedCiObject.getSize().longValue());
         uploadPictureResult.setPicWidth(picWidth);
@@ -151,7 +340,7 @@ public abstract class PictureUploadTemplate {
         uploadPictureResult.setPicFormat(compressedCiObject.getFormat());
         uploadPictureResult.setPicColor(imageInfo.getAve());
         // 设置缩略图地址
-        uploadPictureResult.setThumbnailUrl("https://" + cosClientConfig.getHost() + "/" + thumbnailCiObject.getKey());
+        uploadPictureResult.setThumbnailUrl(cosManager.getUrl(thumbnailCiObject.getKey()));
         // 返回可访问的地址
         return uploadPictureResult;
     }
@@ -160,13 +349,13 @@ public abstract class PictureUploadTemplate {
      * 封装返回结果
      *
      * @param originalFilename
-     * @param file
+     * @param picSize          文件大小
      * @param uploadPath
      * @param imageInfo        对象存储返回的图片信息
      * @return
      */
-    private UploadPictureResult buildResult(String originalFilename, File file, String uploadPath, ImageInfo imageInfo) {
-        if (imageInfo == null || file == null || StrUtil.isBlank(uploadPath)) {
+    private UploadPictureResult buildResult(String originalFilename, long picSize, String uploadPath, ImageInfo imageInfo) {
+        if (imageInfo == null || StrUtil.isBlank(uploadPath)) {
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "图片处理参数不完整");
         }
         // 计算宽高
@@ -175,9 +364,9 @@ public abstract class PictureUploadTemplate {
         double picScale = NumberUtil.round(picWidth * 1.0 / picHeight, 2).doubleValue();
         // 封装返回结果
         UploadPictureResult uploadPictureResult = new UploadPictureResult();
-        uploadPictureResult.setUrl(cosClientConfig.getHost() + "/" + uploadPath);
+        uploadPictureResult.setUrl(cosManager.getUrl(uploadPath));
         uploadPictureResult.setPicName(FileUtil.mainName(originalFilename));
-        uploadPictureResult.setPicSize(FileUtil.size(file));
+        uploadPictureResult.setPicSize(picSize);
         uploadPictureResult.setPicWidth(picWidth);
         uploadPictureResult.setPicHeight(picHeight);
         uploadPictureResult.setPicScale(picScale);
@@ -0,0 +1,149 @@
+package com.leo.leopicturebackend.manager.upload;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.ReUtil;
+import cn.hutool.core.util.StrUtil;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.leo.leopicturebackend.exception.BusinessException;
+import com.leo.leopicturebackend.exception.ErrorCode;
+import com.leo.leopicturebackend.exception.RetryableException;
+import com.leo.leopicturebackend.exception.ThrowUtils;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 上传幂等
+ * 客户端为一次上传生成幂等键（请求头 Idempotency-Key 或请求参数 idempotencyKey），超时重试时携带相同的键：
+ * 1. 第一次请求写入处理中标记（SET NX），执行上传，成功后把结果保存在 Redis 中，保留 24 小时
+ * 2. 重复请求直接返回第一次的结果，不会重复上传、扣减额度
+ * 3. 第一次请求仍在处理时，重复请求直接拒绝；第一次请求失败时删除标记，允许重试
+ * 不传幂等键时不做处理；Redis 不可用时退化为普通上传
+ */
+@Slf4j
+@Component
+public class UploadIdempotencyManager {
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    private static final String KEY_PREFIX = "leopicture:idempotent:";
+    // 处理中标记的过期时间：覆盖一次上传的最长耗时，进程崩溃后自动释放
+    private static final long PROCESSING_EXPIRE_SECONDS = 300;
+    // 结果保留时间（幂等窗口）
+    private static final long RESULT_EXPIRE_SECONDS = 24 * 3600;
+    private static final String PROCESSING_PREFIX = "processing:";
+    private static final String DONE_PREFIX = "done:";
+    private static final int MAX_KEY_LENGTH = 64;
+
+    /**
+     * 仅删除自己写入的处理中标记
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0",
+            Long.class);
+
+    /**
+     * 仅在处理中标记仍是自己写入的时才保存结果：处理超时后标记被重复请求接管时，不覆盖对方的结果
+     * ARGV：处理中标记、结果、过期时间（秒）
+     */
+    private static final DefaultRedisScript<Long> SAVE_RESULT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+                    "redis.call('SET', KEYS[1], ARGV[2], 'EX', ARGV[3]) return 1 end return 0",
+            Long.class);
+
+    /**
+     * 幂等执行
+     *
+     * @param userId         用户 id，幂等键按用户隔离
+     * @param scope          接口范围，不同接口的结果类型不同，相同的键互不影响
+     * @param idempotencyKey 幂等键，为空时直接执行
+     * @param resultType     结果类型
+     * @param action         上传操作
+     * @return 上传结果，重复请求返回第一次的结果
+     */
+    public <T> T execute(Long userId, String scope, String idempotencyKey, Class<T> resultType, Supplier<T> action) {
+        return execute(userId, scope, idempotencyKey, objectMapper.constructType(resultType), action);
+    }
+
+    /**
+     * 幂等执行（泛型结果）
+     */
+    public <T> T execute(Long userId, String scope, String idempotencyKey, TypeReference<T> resultType, Supplier<T> action) {
+        return execute(userId, scope, idempotencyKey, objectMapper.constructType(resultType), action);
+    }
+
+    private <T> T execute(Long userId, String scope, String idempotencyKey, JavaType resultType, Supplier<T> action) {
+        if (StrUtil.isBlank(idempotencyKey)) {
+            return action.get();
+        }
+        ThrowUtils.throwIf(idempotencyKey.length() > MAX_KEY_LENGTH || !ReUtil.isMatch("[0-9a-zA-Z_\\-]+", idempotencyKey),
+                ErrorCode.PARAMS_ERROR, "幂等键格式错误");
+        String redisKey = String.format("%s%s:%s:%s", KEY_PREFIX, scope, userId, idempotencyKey);
+        String token = PROCESSING_PREFIX + IdUtil.fastSimpleUUID();
+        // 1. 写入处理中标记，已存在说明是重复请求
+        Boolean acquired;
+        try {
+            acquired = stringRedisTemplate.opsForValue().setIfAbsent(redisKey, token, PROCESSING_EXPIRE_SECONDS, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.error("写入幂等标记失败，按普通请求处理, key = {}", redisKey, e);
+            return action.get();
+        }
+        if (!Boolean.TRUE.equals(acquired)) {
+            return getResult(redisKey, resultType);
+        }
+        // 2. 执行，失败时删除标记允许重试
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            release(redisKey, token);
+            throw e;
+        }
+        // 3. 保存结果
+        try {
+            Long saved = stringRedisTemplate.execute(SAVE_RESULT_SCRIPT, Collections.singletonList(redisKey), token,
+                    DONE_PREFIX + objectMapper.writeValueAsString(result), String.valueOf(RESULT_EXPIRE_SECONDS));
+            if (saved == null || saved == 0) {
+                log.warn("处理中标记已过期或被其它请求接管，不保存幂等结果, key = {}", redisKey);
+            }
+        } catch (Exception e) {
+            // 上传已成功，保存结果失败不影响本次返回
+            log.error("保存幂等结果失败, key = {}", redisKey, e);
+        }
+        return result;
+    }
+
+    private <T> T getResult(String redisKey, JavaType resultType) {
+        String value = stringRedisTemplate.opsForValue().get(redisKey);
+        if (value == null || !value.startsWith(DONE_PREFIX)) {
+            throw new RetryableException(ErrorCode.OPERATION_ERROR, "相同的请求正在处理中，请稍后重试");
+        }
+        try {
+            return objectMapper.readValue(value.substring(DONE_PREFIX.length()), resultType);
+        } catch (Exception e) {
+            log.error("读取幂等结果失败, key = {}", redisKey, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "读取上传结果失败");
+        }
+    }
+
+    private void release(String redisKey, String token) {
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(redisKey), token);
+        } catch (Exception e) {
+            // 标记到期后自动释放
+            log.error("删除幂等标记失败, key = {}", redisKey, e);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.leo.leopicturebackend.manager.upload;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.leo.leopicturebackend.config.UploadPipelineConfig;
+import com.leo.leopicturebackend.exception.BusinessException;
+import com.leo.leopicturebackend.exception.ErrorCode;
+import com.leo.leopicturebackend.model.dto.file.UploadPictureResult;
+import com.leo.leopicturebackend.model.entity.Picture;
+import com.leo.leopicturebackend.model.enums.UploadJobStatusEnum;
+import com.leo.leopicturebackend.model.vo.UploadJobVO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 异步上传任务管理
+ * 上传请求只负责校验和读取文件，立即返回任务 id，之后按阶段在独立的有界线程池中执行：
+ * 1. 上传：上传原图并生成压缩图、缩略图（数据万象在同一次请求中完成，本地处理时同样在该阶段完成）
+ * 2. 入库：写入图片记录并扣减空间额度
+ * 3. 收尾：更新索引、清理分页缓存、清理旧文件，失败不影响任务结果
+ * 上传阶段队列满时拒绝新任务；入库阶段队列满时任务失败（释放额度、清理已上传的文件），收尾阶段队列满时跳过收尾，
+ * 不会占用上一阶段的线程
+ * 任务状态保存在 Redis 中，任意实例都可以查询
+ */
+@Slf4j
+@Component
+public class UploadJobManager {
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private UploadPipelineConfig uploadPipelineConfig;
+
+    private static final String JOB_KEY_PREFIX = "leopicture:uploadJob:";
+
+    private static final String FIELD_USER_ID = "userId";
+    private static final String FIELD_STATUS = "status";
+    private static final String FIELD_PICTURE_ID = "pictureId";
+    private static final String FIELD_ERROR_MESSAGE = "errorMessage";
+    private static final String FIELD_UPDATE_TIME = "updateTime";
+
+    /**
+     * 入库、收尾阶段的拒绝策略：以异常（或跳过）结束该阶段，不在上一阶段的线程中执行
+     */
+    private static final RejectedExecutionHandler REJECT_STAGE_POLICY = (runnable, executor) -> {
+        if (runnable instanceof StageTask) {
+            ((StageTask) runnable).reject();
+            return;
+        }
+        throw new RejectedExecutionException("上传任务队列已满");
+    };
+
+    private ThreadPoolExecutor storeExecutor;
+
+    private ThreadPoolExecutor persistExecutor;
+
+    private ThreadPoolExecutor finishExecutor;
+
+    @PostConstruct
+    public void init() {
+        storeExecutor = createExecutor("upload-store", uploadPipelineConfig.getStoreThreads(),
+                new ThreadPoolExecutor.AbortPolicy());
+        persistExecutor = createExecutor("upload-persist", uploadPipelineConfig.getPersistThreads(),
+                REJECT_STAGE_POLICY);
+        finishExecutor = createExecutor("upload-finish", uploadPipelineConfig.getFinishThreads(),
+                REJECT_STAGE_POLICY);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        // 按阶段顺序关闭，已提交的任务继续执行完
+        shutdownAndAwait(storeExecutor);
+        shutdownAndAwait(persistExecutor);
+        shutdownAndAwait(finishExecutor);
+    }
+
+    /**
+     * 提交上传任务
+     *
+     * @param userId       上传用户 id
+     * @param storeStage   上传阶段
+     * @param persistStage 入库阶段，失败时需要自行清理已上传的文件
+     * @param finishStage  收尾阶段
+     * @param discardStage 入库阶段被拒绝时的清理（释放额度、清理已上传的文件）
+     * @return 任务 id
+     */
+    public String submit(Long userId, Supplier<UploadPictureResult> storeStage,
+                         Function<UploadPictureResult, Picture> persistStage, Consumer<Picture> finishStage,
+                         Consumer<UploadPictureResult> discardStage) {
+        String jobId = IdUtil.fastSimpleUUID();
+        Map<String, String> fields = new HashMap<>();
+        fields.put(FIELD_USER_ID, String.valueOf(userId));
+        updateJob(jobId, UploadJobStatusEnum.WAITING, fields);
+        CompletableFuture<UploadPictureResult> storeFuture;
+        try {
+            storeFuture = CompletableFuture.supplyAsync(() -> {
+                updateJob(jobId, UploadJobStatusEnum.STORING, null);
+                return storeStage.get();
+            }, storeExecutor);
+        } catch (RejectedExecutionException e) {
+            stringRedisTemplate.delete(JOB_KEY_PREFIX + jobId);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "上传任务过多，请稍后再试");
+        }
+        CompletableFuture<Picture> persistFuture = thenApplyStage(storeFuture, persistExecutor,
+                uploadPictureResult -> {
+                    updateJob(jobId, UploadJobStatusEnum.PERSISTING, null);
+                    return persistStage.apply(uploadPictureResult);
+                },
+                uploadPictureResult -> {
+                    discardStage.accept(uploadPictureResult);
+                    throw new BusinessException(ErrorCode.OPERATION_ERROR, "上传任务过多，请稍后再试");
+                });
+        thenApplyStage(persistFuture, finishExecutor,
+                picture -> {
+                    try {
+                        finishStage.accept(picture);
+                    } catch (Exception e) {
+                        log.error("上传任务收尾失败, jobId = {}", jobId, e);
+                    }
+                    return picture;
+                },
+                picture -> {
+                    // 图片已入库，索引由 PictureChangeFeed 同步补齐
+                    log.warn("收尾阶段队列已满，跳过收尾, jobId = {}", jobId);
+                    return picture;
+                })
+                .whenComplete((picture, throwable) -> {
+                    if (throwable == null) {
+                        updateJob(jobId, UploadJobStatusEnum.SUCCEEDED,
+                                Map.of(FIELD_PICTURE_ID, String.valueOf(picture.getId())));
+                        return;
+                    }
+                    Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                            ? throwable.getCause() : throwable;
+                    String errorMessage = "上传失败";
+                    if (cause instanceof BusinessException) {
+                        errorMessage = cause.getMessage();
+                    } else {
+                        log.error("上传任务失败, jobId = {}", jobId, cause);
+                    }
+                    updateJob(jobId, UploadJobStatusEnum.FAILED, Map.of(FIELD_ERROR_MESSAGE, errorMessage));
+                });
+        return jobId;
+    }
+
+    /**
+     * 获取任务状态
+     *
+     * @param jobId  任务 id
+     * @param userId 查询用户 id，只能查询自己的任务
+     * @return
+     */
+    public UploadJobVO getJob(String jobId, Long userId) {
+        Map<String, String> fields = stringRedisTemplate.<String, String>opsForHash().entries(JOB_KEY_PREFIX + jobId);
+        if (fields.isEmpty()) {
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "上传任务不存在或已过期");
+        }
+        if (!String.valueOf(userId).equals(fields.get(FIELD_USER_ID))) {
+            throw new BusinessException(ErrorCode.NO_AUTH_ERROR);
+        }
+        UploadJobStatusEnum statusEnum = UploadJobStatusEnum.getEnumByValue(fields.get(FIELD_STATUS));
+        UploadJobVO uploadJobVO = new UploadJobVO();
+        uploadJobVO.setJobId(jobId);
+        uploadJobVO.setStatus(fields.get(FIELD_STATUS));
+        uploadJobVO.setFinished(statusEnum != null && statusEnum.isFinished());
+        String pictureId = fields.get(FIELD_PICTURE_ID);
+        if (StrUtil.isNotBlank(pictureId)) {
+            uploadJobVO.setPictureId(Long.valueOf(pictureId));
+        }
+        uploadJobVO.setErrorMessage(fields.get(FIELD_ERROR_MESSAGE));
+        String updateTime = fields.get(FIELD_UPDATE_TIME);
+        if (StrUtil.isNotBlank(updateTime)) {
+            uploadJobVO.setUpdateTime(new Date(Long.parseLong(updateTime)));
+        }
+        return uploadJobVO;
+    }
+
+    private void updateJob(String jobId, UploadJobStatusEnum statusEnum, Map<String, String> extraFields) {
+        String jobKey = JOB_KEY_PREFIX + jobId;
+        Map<String, String> fields = new HashMap<>();
+        if (extraFields != null) {
+            fields.putAll(extraFields);
+        }
+        fields.put(FIELD_STATUS, statusEnum.getValue());
+        fields.put(FIELD_UPDATE_TIME, String.valueOf(System.currentTimeMillis()));
+        try {
+            stringRedisTemplate.opsForHash().putAll(jobKey, fields);
+            stringRedisTemplate.expire(jobKey, uploadPipelineConfig.getJobExpireSeconds(), TimeUnit.SECONDS);
+        } catch (Exception e) {
+            // 状态更新失败不中断上传流程
+            log.error("更新上传任务状态失败, jobId = {}, status = {}", jobId, statusEnum.getValue(), e);
+        }
+    }
+
+    /**
+     * 上一阶段成功后在指定线程池中执行下一阶段
+     *
+     * @param source   上一阶段
+     * @param executor 下一阶段的线程池
+     * @param stage    下一阶段
+     * @param onReject 线程池拒绝时的处理，返回值作为该阶段的结果，抛出异常则该阶段失败
+     */
+    private static <T, R> CompletableFuture<R> thenApplyStage(CompletableFuture<T> source, Executor executor,
+                                                              Function<T, R> stage, Function<T, R> onReject) {
+        CompletableFuture<R> next = new CompletableFuture<>();
+        source.whenComplete((value, throwable) -> {
+            if (throwable != null) {
+                next.completeExceptionally(throwable);
+                return;
+            }
+            executor.execute(new StageTask(() -> next.complete(stage.apply(value)),
+                    () -> next.complete(onReject.apply(value)), next::completeExceptionally));
+        });
+        return next;
+    }
+
+    private ThreadPoolExecutor createExecutor(String name, int threads, RejectedExecutionHandler rejectedHandler) {
+        int poolSize = Math.max(1, threads);
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        return new ThreadPoolExecutor(poolSize, poolSize,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(uploadPipelineConfig.getQueueCapacity()),
+                runnable -> new Thread(runnable, name + "-" + threadNumber.getAndIncrement()),
+                rejectedHandler);
+    }
+
+    private static void shutdownAndAwait(ExecutorService executorService) {
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(30, TimeUnit.SECONDS)) {
+                executorService.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 阶段任务：执行或被拒绝时都会结束该阶段，异常时以异常结束
+     */
+    private static class StageTask implements Runnable {
+
+        private final Runnable body;
+
+        private final Runnable rejectBody;
+
+        private final Consumer<Throwable> onError;
+
+        StageTask(Runnable body, Runnable rejectBody, Consumer<Throwable> onError) {
+            this.body = body;
+            this.rejectBody = rejectBody;
+            this.onError = onError;
+        }
+
+        @Override
+        public void run() {
+            runSafely(body);
+        }
+
+        void reject() {
+            runSafely(rejectBody);
+        }
+
+        private void runSafely(Runnable runnable) {
+            try {
+                runnable.run();
+            } catch (Throwable e) {
+                onError.accept(e);
+            }
+        }
+    }
+}
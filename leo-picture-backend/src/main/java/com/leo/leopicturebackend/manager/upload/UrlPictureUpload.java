@@ -24,6 +24,8 @@ import java.util.List;
 @Service
 public class UrlPictureUpload extends PictureUploadTemplate {
 
+    public static final long MAX_UPLOAD_SIZE = 2 * 1024 * 1024L;
+
     @Override
     protected String validPicture(Object inputSource) {
         String fileUrl = (String) inputSource;
@@ -99,6 +101,30 @@ public class UrlPictureUpload extends PictureUploadTemplate {
         return FileUtil.getName(fileUrl);
     }
 
+    @Override
+    protected PictureStream openStream(Object inputSource) throws Exception {
+        String fileUrl = (String) inputSource;
+        HttpResponse httpResponse = HttpUtil.createGet(fileUrl).executeAsync();
+        long contentLength = httpResponse.contentLength();
+        // 未正常返回或无法确定文件大小（如 chunked 编码），回退到临时文件下载
+        if (httpResponse.getStatus() != HttpStatus.HTTP_OK || contentLength <= 0) {
+            httpResponse.close();
+            return null;
+        }
+        if (contentLength > MAX_UPLOAD_SIZE) {
+            httpResponse.close();
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件大小不能超过 2MB");
+        }
+        try {
+            // 下载流直接写入对象存储，边读边校验魔数和大小
+            PictureInputStream pictureInputStream = new PictureInputStream(httpResponse.bodyStream(), MAX_UPLOAD_SIZE);
+            return new PictureStream(pictureInputStream, contentLength, httpResponse);
+        } catch (Exception e) {
+            httpResponse.close();
+            throw e;
+        }
+    }
+
     @Override
     protected void processFile(Object inputSource, File file) throws Exception {
         String fileUrl = (String) inputSource;
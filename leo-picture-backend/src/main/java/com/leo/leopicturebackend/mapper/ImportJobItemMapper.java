@@ -0,0 +1,11 @@
+package com.leo.leopicturebackend.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.leo.leopicturebackend.model.entity.ImportJobItem;
+
+/**
+ * 针对表【import_job_item(图片批量导入任务项)】的数据库操作Mapper
+ */
+public interface ImportJobItemMapper extends BaseMapper<ImportJobItem> {
+
+}
@@ -0,0 +1,11 @@
+package com.leo.leopicturebackend.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.leo.leopicturebackend.model.entity.ImportJob;
+
+/**
+ * 针对表【import_job(图片批量导入任务)】的数据库操作Mapper
+ */
+public interface ImportJobMapper extends BaseMapper<ImportJob> {
+
+}
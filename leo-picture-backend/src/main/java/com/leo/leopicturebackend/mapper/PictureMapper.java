@@ -2,6 +2,10 @@ package com.leo.leopicturebackend.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.leo.leopicturebackend.model.entity.Picture;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
 
 /**
 * @author Leo
@@ -11,6 +15,13 @@ import com.leo.leopicturebackend.model.entity.Picture;
 */
 public interface PictureMapper extends BaseMapper<Picture> {
 
+    /**
+     * 查询指定时间后变更过的图片索引字段（包含已逻辑删除的记录，用于同步全文索引、标签索引、色板索引、感知哈希索引）
+     *
+     * @param since 起始时间
+     * @return
+     */
+    List<Picture> listIndexChangedSince(@Param("since") Date since);
 }
 
 
@@ -0,0 +1,11 @@
+package com.leo.leopicturebackend.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.leo.leopicturebackend.model.entity.StorageDeleteTask;
+
+/**
+ * 针对表【storage_delete_task(对象存储删除任务)】的数据库操作Mapper
+ */
+public interface StorageDeleteTaskMapper extends BaseMapper<StorageDeleteTask> {
+
+}
@@ -0,0 +1,24 @@
+package com.leo.leopicturebackend.model.dto.file;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 已读入内存的待上传图片（异步上传时请求结束后临时文件会被清理，需要先读取内容）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadPictureContent {
+
+    /**
+     * 原始文件名
+     */
+    private String originalFilename;
+
+    /**
+     * 图片内容
+     */
+    private byte[] content;
+}
@@ -0,0 +1,34 @@
+package com.leo.leopicturebackend.model.dto.file;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 已在存储中的待处理图片（分块上传合并后的原始文件）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadPictureObject {
+
+    /**
+     * 存储中的唯一键
+     */
+    private String key;
+
+    /**
+     * 原始文件名
+     */
+    private String originalFilename;
+
+    /**
+     * 文件大小
+     */
+    private long size;
+
+    /**
+     * 根据文件头识别的图片格式
+     */
+    private String format;
+}
@@ -52,4 +52,19 @@ public class UploadPictureResult {
      * 图片主色调
      */
     private String picColor;
+
+    /**
+     * 图片色板，格式见 ColorPaletteUtils
+     */
+    private byte[] picPalette;
+
+    /**
+     * 图片感知哈希（dHash）
+     */
+    private Long perceptualHash;
+
+    /**
+     * 图片内容哈希（SHA-256）
+     */
+    private String contentHash;
 }
\ No newline at end of file
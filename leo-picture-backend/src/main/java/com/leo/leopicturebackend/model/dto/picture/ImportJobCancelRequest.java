@@ -0,0 +1,19 @@
+package com.leo.leopicturebackend.model.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 取消图片批量导入任务请求
+ */
+@Data
+public class ImportJobCancelRequest implements Serializable {
+
+    /**
+     * 任务 id
+     */
+    private Long id;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,19 @@
+package com.leo.leopicturebackend.model.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 完成分块上传请求
+ */
+@Data
+public class PictureChunkUploadCompleteRequest implements Serializable {
+
+    /**
+     * 分块上传 id
+     */
+    private String uploadId;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,39 @@
+package com.leo.leopicturebackend.model.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 创建分块上传请求
+ */
+@Data
+public class PictureChunkUploadCreateRequest implements Serializable {
+
+    /**
+     * 图片 id（用于修改）
+     */
+    private Long id;
+
+    /**
+     * 空间 id
+     */
+    private Long spaceId;
+
+    /**
+     * 图片名称
+     */
+    private String picName;
+
+    /**
+     * 原始文件名
+     */
+    private String fileName;
+
+    /**
+     * 文件大小（字节）
+     */
+    private Long fileSize;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -40,6 +40,11 @@ public class PictureQueryRequest extends PageRequest implements Serializable {
      */
     private List<String> tags;
 
+    /**
+     * 是否命中任一标签即可（默认需要包含全部标签）
+     */
+    private boolean matchAnyTag;
+
     /**
      * 文件体积
      */
@@ -115,5 +120,10 @@ public class PictureQueryRequest extends PageRequest implements Serializable {
      */
     private Date endEditTime;
 
+    /**
+     * 游标（为 null 时按页码分页；首页传空字符串，之后传上一页返回的 nextCursor）
+     */
+    private String cursor;
+
     private static final long serialVersionUID = 1L;
 }
\ No newline at end of file
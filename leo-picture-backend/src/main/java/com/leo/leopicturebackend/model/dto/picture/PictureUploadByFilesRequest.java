@@ -0,0 +1,29 @@
+package com.leo.leopicturebackend.model.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 多文件批量上传请求
+ */
+@Data
+public class PictureUploadByFilesRequest implements Serializable {
+
+    /**
+     * 空间 id
+     */
+    private Long spaceId;
+
+    /**
+     * 命名规则（如 图片-{序号}），为空时使用原始文件名
+     */
+    private String nameRule;
+
+    /**
+     * 幂等键（也可以通过请求头 Idempotency-Key 传入），重试时携带相同的值不会重复上传
+     */
+    private String idempotencyKey;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -31,5 +31,10 @@ public class PictureUploadRequest implements Serializable {
      */
     private Long spaceId;
 
+    /**
+     * 幂等键（也可以通过请求头 Idempotency-Key 传入），重试时携带相同的值不会重复上传
+     */
+    private String idempotencyKey;
+
     private static final long serialVersionUID = 1L;
 }
\ No newline at end of file
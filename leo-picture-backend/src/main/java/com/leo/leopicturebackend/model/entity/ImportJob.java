@@ -0,0 +1,82 @@
+package com.leo.leopicturebackend.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 图片批量导入任务
+ * @TableName import_job
+ */
+@TableName(value = "import_job")
+@Data
+public class ImportJob implements Serializable {
+    /**
+     * id
+     */
+    @TableId(type = IdType.ASSIGN_ID)
+    private Long id;
+
+    /**
+     * 创建用户 id
+     */
+    private Long userId;
+
+    /**
+     * 搜索词
+     */
+    private String searchText;
+
+    /**
+     * 图片名称前缀
+     */
+    private String namePrefix;
+
+    /**
+     * 请求导入的数量
+     */
+    private Integer requestCount;
+
+    /**
+     * 任务状态：0-抓取中 1-导入中 2-已完成 3-失败 4-已取消
+     */
+    private Integer status;
+
+    /**
+     * 抓取到的图片数
+     */
+    private Integer totalCount;
+
+    /**
+     * 导入成功数
+     */
+    private Integer successCount;
+
+    /**
+     * 导入失败数
+     */
+    private Integer failCount;
+
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+
+    /**
+     * 更新时间
+     */
+    private Date updateTime;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
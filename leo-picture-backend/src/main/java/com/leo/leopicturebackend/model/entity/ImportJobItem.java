@@ -0,0 +1,77 @@
+package com.leo.leopicturebackend.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 图片批量导入任务项（每张图片一条）
+ * @TableName import_job_item
+ */
+@TableName(value = "import_job_item")
+@Data
+public class ImportJobItem implements Serializable {
+    /**
+     * id
+     */
+    @TableId(type = IdType.ASSIGN_ID)
+    private Long id;
+
+    /**
+     * 任务 id
+     */
+    private Long jobId;
+
+    /**
+     * 图片来源地址
+     */
+    private String sourceUrl;
+
+    /**
+     * 图片名称
+     */
+    private String picName;
+
+    /**
+     * 状态：0-等待 1-导入中 2-成功 3-失败 4-已取消
+     */
+    private Integer status;
+
+    /**
+     * 已重试次数
+     */
+    private Integer retryCount;
+
+    /**
+     * 下次执行时间
+     */
+    private Date nextRetryTime;
+
+    /**
+     * 导入成功的图片 id
+     */
+    private Long pictureId;
+
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+
+    /**
+     * 更新时间
+     */
+    private Date updateTime;
+
+    @TableField(exist = false)
+    private static final long serialVersionUID = 1L;
+}
@@ -79,6 +79,21 @@ public class Picture implements Serializable {
      */
     private String picColor;
 
+    /**
+     * 图片色板（占比最高的几种颜色及其 Lab 值），格式见 ColorPaletteUtils
+     */
+    private byte[] picPalette;
+
+    /**
+     * 图片感知哈希（dHash，64 位），用于相似图片搜索和重复检测
+     */
+    private Long perceptualHash;
+
+    /**
+     * 图片内容哈希（SHA-256），用于秒传去重
+     */
+    private String contentHash;
+
     /**
      * 创建用户 id
      */
@@ -0,0 +1,41 @@
+package com.leo.leopicturebackend.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 图片批量导入任务项状态枚举类
+ */
+@Getter
+public enum ImportJobItemStatusEnum {
+
+    WAITING("等待", 0),
+    RUNNING("导入中", 1),
+    SUCCEEDED("成功", 2),
+    FAILED("失败", 3),
+    CANCELLED("已取消", 4);
+
+    private final String text;
+
+    private final int value;
+
+    ImportJobItemStatusEnum(String text, int value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     */
+    public static ImportJobItemStatusEnum getEnumByValue(Integer value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (ImportJobItemStatusEnum importJobItemStatusEnum : ImportJobItemStatusEnum.values()) {
+            if (importJobItemStatusEnum.value == value) {
+                return importJobItemStatusEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,48 @@
+package com.leo.leopicturebackend.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 图片批量导入任务状态枚举类
+ */
+@Getter
+public enum ImportJobStatusEnum {
+
+    FETCHING("抓取中", 0),
+    RUNNING("导入中", 1),
+    SUCCEEDED("已完成", 2),
+    FAILED("失败", 3),
+    CANCELLED("已取消", 4);
+
+    private final String text;
+
+    private final int value;
+
+    ImportJobStatusEnum(String text, int value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 是否已结束
+     */
+    public boolean isFinished() {
+        return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     */
+    public static ImportJobStatusEnum getEnumByValue(Integer value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (ImportJobStatusEnum importJobStatusEnum : ImportJobStatusEnum.values()) {
+            if (importJobStatusEnum.value == value) {
+                return importJobStatusEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,51 @@
+package com.leo.leopicturebackend.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 异步上传任务状态枚举类
+ */
+@Getter
+public enum UploadJobStatusEnum {
+
+    WAITING("等待处理", "waiting"),
+    STORING("上传中", "storing"),
+    PERSISTING("保存中", "persisting"),
+    SUCCEEDED("上传成功", "succeeded"),
+    FAILED("上传失败", "failed");
+
+    private final String text;
+
+    private final String value;
+
+    UploadJobStatusEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 是否为最终状态
+     */
+    public boolean isFinished() {
+        return this == SUCCEEDED || this == FAILED;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 枚举值的 value
+     * @return 枚举值
+     */
+    public static UploadJobStatusEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (UploadJobStatusEnum uploadJobStatusEnum : UploadJobStatusEnum.values()) {
+            if (uploadJobStatusEnum.value.equals(value)) {
+                return uploadJobStatusEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,45 @@
+package com.leo.leopicturebackend.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 分块上传进度
+ */
+@Data
+public class ChunkUploadVO implements Serializable {
+
+    /**
+     * 分块上传 id
+     */
+    private String uploadId;
+
+    /**
+     * 文件大小
+     */
+    private Long fileSize;
+
+    /**
+     * 分块大小，除最后一块外每块都必须是该大小
+     */
+    private Long chunkSize;
+
+    /**
+     * 分块总数
+     */
+    private Integer totalChunks;
+
+    /**
+     * 已上传分块的起始偏移量（升序），断点续传时跳过这些分块
+     */
+    private List<Long> uploadedOffsets;
+
+    /**
+     * 已上传字节数
+     */
+    private Long uploadedBytes;
+
+    private static final long serialVersionUID = 1L;
+}
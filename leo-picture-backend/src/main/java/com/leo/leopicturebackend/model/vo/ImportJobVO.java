@@ -0,0 +1,65 @@
+package com.leo.leopicturebackend.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 图片批量导入任务视图
+ */
+@Data
+public class ImportJobVO implements Serializable {
+
+    /**
+     * 任务 id
+     */
+    private Long id;
+
+    /**
+     * 搜索词
+     */
+    private String searchText;
+
+    /**
+     * 任务状态：0-抓取中 1-导入中 2-已完成 3-失败 4-已取消
+     */
+    private Integer status;
+
+    /**
+     * 是否已结束，结束后无需继续轮询
+     */
+    private Boolean finished;
+
+    /**
+     * 抓取到的图片数
+     */
+    private Integer totalCount;
+
+    /**
+     * 导入成功数
+     */
+    private Integer successCount;
+
+    /**
+     * 导入失败数
+     */
+    private Integer failCount;
+
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+
+    /**
+     * 更新时间
+     */
+    private Date updateTime;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,34 @@
+package com.leo.leopicturebackend.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 多文件批量上传中单个文件的上传结果
+ */
+@Data
+public class PictureUploadFileResultVO implements Serializable {
+
+    /**
+     * 原始文件名
+     */
+    private String fileName;
+
+    /**
+     * 是否上传成功
+     */
+    private Boolean success;
+
+    /**
+     * 上传成功的图片
+     */
+    private PictureVO picture;
+
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+
+    private static final long serialVersionUID = 1L;
+}
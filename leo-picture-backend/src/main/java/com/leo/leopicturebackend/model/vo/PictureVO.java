@@ -113,6 +113,11 @@ public class PictureVO implements Serializable {
      */
     private List<String> permissionList = new ArrayList<>();
 
+    /**
+     * 同一空间（或公共图库）中疑似重复的图片 id，仅上传接口返回
+     */
+    private List<Long> duplicatePictureIds;
+
     private static final long serialVersionUID = 1L;
 
     /**
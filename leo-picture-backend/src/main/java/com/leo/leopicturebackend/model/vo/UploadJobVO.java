@@ -0,0 +1,45 @@
+package com.leo.leopicturebackend.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 异步上传任务视图
+ */
+@Data
+public class UploadJobVO implements Serializable {
+
+    /**
+     * 任务 id
+     */
+    private String jobId;
+
+    /**
+     * 任务状态：waiting/storing/persisting/succeeded/failed
+     */
+    private String status;
+
+    /**
+     * 是否已结束（成功或失败），结束后无需继续轮询
+     */
+    private Boolean finished;
+
+    /**
+     * 上传成功后的图片 id
+     */
+    private Long pictureId;
+
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+
+    /**
+     * 状态更新时间
+     */
+    private Date updateTime;
+
+    private static final long serialVersionUID = 1L;
+}
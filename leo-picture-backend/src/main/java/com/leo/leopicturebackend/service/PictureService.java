@@ -3,14 +3,21 @@ package com.leo.leopicturebackend.service;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.leo.leopicturebackend.common.CursorPage;
 import com.leo.leopicturebackend.api.aliyunai.model.CreateOutPaintingTaskResponse;
 import com.leo.leopicturebackend.model.dto.picture.*;
 import com.leo.leopicturebackend.model.entity.Picture;
 import com.leo.leopicturebackend.model.entity.User;
+import com.leo.leopicturebackend.model.vo.ChunkUploadVO;
+import com.leo.leopicturebackend.model.vo.ImportJobVO;
+import com.leo.leopicturebackend.model.vo.PictureUploadFileResultVO;
 import com.leo.leopicturebackend.model.vo.PictureVO;
+import com.leo.leopicturebackend.model.vo.UploadJobVO;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.web.multipart.MultipartFile;
 import jakarta.servlet.http.HttpServletRequest;
+import java.io.InputStream;
+import java.util.Collection;
 import java.util.List;
 
 
@@ -38,6 +45,86 @@ public interface PictureService extends IService<Picture> {
                             PictureUploadRequest pictureUploadRequest,
                             User loginUser) throws InterruptedException;
 
+    /**
+     * 异步上传图片：校验并读取文件后立即返回任务 id，上传、入库在后台分阶段执行
+     *
+     * @param multipartFile        文件
+     * @param pictureUploadRequest
+     * @param loginUser
+     * @return 任务 id
+     */
+    String submitUploadJob(MultipartFile multipartFile,
+                           PictureUploadRequest pictureUploadRequest,
+                           User loginUser);
+
+    /**
+     * 获取异步上传任务状态
+     *
+     * @param jobId     任务 id
+     * @param loginUser
+     * @return
+     */
+    UploadJobVO getUploadJob(String jobId, User loginUser);
+
+    /**
+     * 多文件批量上传：一次性预留额度，并行上传，批量入库，返回每个文件的上传结果
+     *
+     * @param multipartFiles              文件列表
+     * @param pictureUploadByFilesRequest
+     * @param loginUser
+     * @return 与文件列表一一对应的上传结果
+     */
+    List<PictureUploadFileResultVO> uploadPictureByFiles(List<MultipartFile> multipartFiles,
+                                                         PictureUploadByFilesRequest pictureUploadByFilesRequest,
+                                                         User loginUser);
+
+    /**
+     * 创建分块上传（断点续传）
+     *
+     * @param pictureChunkUploadCreateRequest
+     * @param loginUser
+     * @return 上传进度
+     */
+    ChunkUploadVO createChunkUpload(PictureChunkUploadCreateRequest pictureChunkUploadCreateRequest, User loginUser);
+
+    /**
+     * 上传分块
+     *
+     * @param uploadId      分块上传 id
+     * @param offset        分块起始偏移量
+     * @param inputStream   分块内容
+     * @param contentLength 分块长度
+     * @param loginUser
+     * @return 上传进度
+     */
+    ChunkUploadVO uploadChunk(String uploadId, long offset, InputStream inputStream, long contentLength, User loginUser);
+
+    /**
+     * 查询分块上传进度
+     *
+     * @param uploadId  分块上传 id
+     * @param loginUser
+     * @return 上传进度
+     */
+    ChunkUploadVO getChunkUpload(String uploadId, User loginUser);
+
+    /**
+     * 完成分块上传：合并分块后按普通上传流程处理并入库
+     *
+     * @param uploadId  分块上传 id
+     * @param loginUser
+     * @return
+     */
+    PictureVO completeChunkUpload(String uploadId, User loginUser) throws InterruptedException;
+
+    /**
+     * 取消分块上传
+     *
+     * @param uploadId  分块上传 id
+     * @param loginUser
+     */
+    void cancelChunkUpload(String uploadId, User loginUser);
+
     /**
      * 获取图片包装类（单条）
      *
@@ -64,6 +151,22 @@ public interface PictureService extends IService<Picture> {
      */
     QueryWrapper<Picture> getQueryWrapper(PictureQueryRequest pictureQueryRequest);
 
+    /**
+     * 游标分页查询图片（基于排序字段 + id 定位，不使用 OFFSET，不查询总数）
+     *
+     * @param pictureQueryRequest
+     * @return
+     */
+    CursorPage<Picture> listPictureByCursor(PictureQueryRequest pictureQueryRequest);
+
+    /**
+     * 分页查询图片：传了 cursor 走游标分页（不查询总数），否则按页码分页，总数优先使用缓存的计数
+     *
+     * @param pictureQueryRequest
+     * @return 总数为估算值时返回 ApproximatePage
+     */
+    Page<Picture> listPictureByPage(PictureQueryRequest pictureQueryRequest);
+
     /**
      * 图片审核
      *
@@ -81,14 +184,31 @@ public interface PictureService extends IService<Picture> {
     void fillReviewParams(Picture picture, User loginUser);
 
     /**
-     * 批量抓取和创建图片
+     * 批量抓取和创建图片：创建导入任务后立即返回，抓取和导入在后台执行
      *
      * @param pictureUploadByBatchRequest
      * @param loginUser
-     * @return 成功创建的图片数
+     * @return 导入任务 id
+     */
+    Long uploadPictureByBatch(PictureUploadByBatchRequest pictureUploadByBatchRequest,
+                              User loginUser);
+
+    /**
+     * 获取批量导入任务进度
+     *
+     * @param jobId     任务 id
+     * @param loginUser
+     * @return
+     */
+    ImportJobVO getImportJob(Long jobId, User loginUser);
+
+    /**
+     * 取消批量导入任务
+     *
+     * @param jobId     任务 id
+     * @param loginUser
      */
-    Integer uploadPictureByBatch(PictureUploadByBatchRequest pictureUploadByBatchRequest,
-                                 User loginUser);
+    void cancelImportJob(Long jobId, User loginUser);
 
     /**
      * 删除图片
@@ -124,6 +244,15 @@ public interface PictureService extends IService<Picture> {
      */
     List<PictureVO> searchPictureByColor(Long spaceId, String picColor, User loginUser);
 
+    /**
+     * 搜索同一空间（或公共图库）中的相似图片（感知哈希）
+     *
+     * @param pictureId
+     * @param loginUser
+     * @return
+     */
+    List<PictureVO> searchSimilarPicture(Long pictureId, User loginUser);
+
     /**
      * 批量编辑图片
      *
@@ -149,4 +278,11 @@ public interface PictureService extends IService<Picture> {
      */
     String generateImageByText(GenerateImageRequest generateImageRequest, User loginUser);
 
+    /**
+     * 从数据库重新加载图片的内存索引（全文索引、标签索引），在图片信息变更后调用
+     *
+     * @param pictureIds
+     */
+    void refreshPictureIndex(Collection<Long> pictureIds);
+
 }
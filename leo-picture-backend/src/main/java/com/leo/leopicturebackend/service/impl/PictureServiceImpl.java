@@ -4,61 +4,78 @@ import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.ObjUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.leo.leopicturebackend.api.aliyunai.AliYunAiApi;
 import com.leo.leopicturebackend.api.aliyunai.model.CreateOutPaintingTaskRequest;
 import com.leo.leopicturebackend.ai.tools.ImageGenerationTool;
 import com.leo.leopicturebackend.api.aliyunai.model.CreateOutPaintingTaskResponse;
+import com.leo.leopicturebackend.common.ApproximatePage;
+import com.leo.leopicturebackend.common.CursorPage;
 import com.leo.leopicturebackend.config.RabbitConfig;
 import com.leo.leopicturebackend.exception.BusinessException;
 import com.leo.leopicturebackend.exception.ErrorCode;
 import com.leo.leopicturebackend.exception.ThrowUtils;
-import com.leo.leopicturebackend.manager.CosManager;
+import com.leo.leopicturebackend.manager.PageCacheVersionManager;
+import com.leo.leopicturebackend.manager.PictureCountManager;
 import com.leo.leopicturebackend.manager.RateLimiterManager;
+import com.leo.leopicturebackend.manager.SpaceQuotaManager;
+import com.leo.leopicturebackend.manager.StorageDeleteManager;
 import com.leo.leopicturebackend.manager.auth.model.SpaceUserPermissionConstant;
+import com.leo.leopicturebackend.manager.cache.EntityCacheManager;
+import com.leo.leopicturebackend.manager.search.PictureColorIndex;
+import com.leo.leopicturebackend.manager.search.PictureHashIndex;
+import com.leo.leopicturebackend.manager.search.PictureSearchIndex;
+import com.leo.leopicturebackend.manager.search.PictureTagIndex;
+import com.leo.leopicturebackend.manager.importjob.ImportJobManager;
+import com.leo.leopicturebackend.manager.upload.ChunkUploadManager;
+import com.leo.leopicturebackend.manager.upload.ChunkUploadSession;
+import com.leo.leopicturebackend.manager.upload.ContentPictureUpload;
 import com.leo.leopicturebackend.manager.upload.FilePictureUpload;
+import com.leo.leopicturebackend.manager.upload.ObjectPictureUpload;
 import com.leo.leopicturebackend.manager.upload.PictureUploadTemplate;
+import com.leo.leopicturebackend.manager.upload.UploadIdempotencyManager;
+import com.leo.leopicturebackend.manager.upload.UploadJobManager;
 import com.leo.leopicturebackend.manager.upload.UrlPictureUpload;
 import com.leo.leopicturebackend.mapper.PictureMapper;
+import com.leo.leopicturebackend.model.dto.file.UploadPictureContent;
+import com.leo.leopicturebackend.model.dto.file.UploadPictureObject;
 import com.leo.leopicturebackend.model.dto.file.UploadPictureResult;
 import com.leo.leopicturebackend.model.dto.picture.*;
 import com.leo.leopicturebackend.model.entity.Picture;
 import com.leo.leopicturebackend.model.entity.Space;
 import com.leo.leopicturebackend.model.entity.User;
 import com.leo.leopicturebackend.model.enums.PictureReviewStatusEnum;
-import com.leo.leopicturebackend.model.enums.SpaceTypeEnum;
+import com.leo.leopicturebackend.model.vo.ChunkUploadVO;
+import com.leo.leopicturebackend.model.vo.ImportJobVO;
+import com.leo.leopicturebackend.model.vo.PictureUploadFileResultVO;
 import com.leo.leopicturebackend.model.vo.PictureVO;
+import com.leo.leopicturebackend.model.vo.UploadJobVO;
 import com.leo.leopicturebackend.model.vo.UserVO;
 import com.leo.leopicturebackend.service.PictureService;
 import com.leo.leopicturebackend.service.SpaceService;
 import com.leo.leopicturebackend.service.UserService;
-import com.leo.leopicturebackend.utils.ColorSimilarUtils;
+import com.leo.leopicturebackend.utils.ColorPaletteUtils;
 import com.leo.leopicturebackend.utils.ColorTransformUtils;
+import com.leo.leopicturebackend.utils.CursorUtils;
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
-import org.redisson.api.RLock;
-import org.redisson.api.RedissonClient;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.BeanUtils;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
-import java.awt.*;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
 import java.util.*;
 import java.util.List;
 import java.util.concurrent.*;
@@ -89,8 +106,17 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
     @Resource
     private UrlPictureUpload urlPictureUpload;
 
-    @Autowired
-    private CosManager cosManager;
+    @Resource
+    private ContentPictureUpload contentPictureUpload;
+
+    @Resource
+    private ObjectPictureUpload objectPictureUpload;
+
+    @Resource
+    private UploadJobManager uploadJobManager;
+
+    @Resource
+    private ChunkUploadManager chunkUploadManager;
 
     @Resource
     private TransactionTemplate transactionTemplate;
@@ -103,21 +129,56 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
     @Resource
     private StringRedisTemplate stringRedisTemplate;
     @Resource
-    private RedissonClient redissonClient;
-    @Resource
     private RateLimiterManager rateLimiterManager;
     @Resource
     private RabbitTemplate rabbitTemplate;
-    @Resource(name = "pictureUploadExecutor")
-    private ThreadPoolExecutor executorService;
+    @Resource
+    private ImportJobManager importJobManager;
+    @Resource
+    private UploadIdempotencyManager uploadIdempotencyManager;
     @Resource
     private ImageGenerationTool imageGenerationTool;
+    @Resource
+    private PageCacheVersionManager pageCacheVersionManager;
+    @Resource
+    private PictureCountManager pictureCountManager;
+    @Resource
+    private SpaceQuotaManager spaceQuotaManager;
+    @Resource
+    private StorageDeleteManager storageDeleteManager;
+    @Resource
+    private EntityCacheManager entityCacheManager;
+    @Resource
+    private PictureSearchIndex pictureSearchIndex;
+    @Resource
+    private PictureTagIndex pictureTagIndex;
+    @Resource
+    private PictureColorIndex pictureColorIndex;
+    @Resource
+    private PictureHashIndex pictureHashIndex;
 
     // 最大图像大小：10MB（字节）
     private static final long MAX_SIZE = 10 * 1024 * 1024;
     // 图像维度（宽/高）的最小、最大值（像素）
     private static final int MIN_DIMENSION = 512;
     private static final int MAX_DIMENSION = 4096;
+    // 支持游标分页的排序字段（非空，且与 id 组合后唯一有序）
+    private static final List<String> CURSOR_SORT_FIELDS = Arrays.asList("id", "createTime", "editTime", "updateTime");
+    // 全文索引、标签索引单次最多返回的命中数，超过则回退到 LIKE 查询
+    private static final int SEARCH_INDEX_MAX_HITS = 1000;
+    // 相似图片搜索的最大汉明距离和返回数
+    private static final int SIMILAR_MAX_DISTANCE = 12;
+    private static final int SIMILAR_LIMIT = 20;
+    // 上传时判定为疑似重复的最大汉明距离和返回数
+    private static final int DUPLICATE_MAX_DISTANCE = 4;
+    private static final int DUPLICATE_LIMIT = 10;
+
+    // 多文件批量上传的最大文件数
+    private static final int MAX_UPLOAD_FILES = 50;
+
+    // 多文件批量上传的线程池
+    @Resource(name = "fileUploadExecutor")
+    private ThreadPoolExecutor fileUploadExecutor;
 
 
     @Override
@@ -141,16 +202,21 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
     @Override
     public PictureVO uploadPicture(Object inputSource,
                                    PictureUploadRequest pictureUploadRequest, User loginUser) throws InterruptedException {
+        ThrowUtils.throwIf(pictureUploadRequest == null, ErrorCode.PARAMS_ERROR);
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR, "用户未登录");
+        // 携带幂等键的重复请求直接返回第一次的结果
+        return uploadIdempotencyManager.execute(loginUser.getId(), "upload", pictureUploadRequest.getIdempotencyKey(),
+                PictureVO.class, () -> doUploadPicture(inputSource, pictureUploadRequest, loginUser));
+    }
+
+    private PictureVO doUploadPicture(Object inputSource, PictureUploadRequest pictureUploadRequest, User loginUser) {
         if (inputSource == null) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "图片为空");
         }
-        ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR, "用户未登录");
         //初始化一些变量
         Long spaceId = pictureUploadRequest.getSpaceId();
         Long pictureId = pictureUploadRequest.getId();
         Picture oldPicture = null;
-        RLock lock = null;
-        boolean locked = false;
 
         // 1. 空间相关处理校验空间是否存在
         Space space = null;
@@ -161,27 +227,6 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 //            if (!loginUser.getId().equals(space.getUserId())) {
 //                throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "没有空间权限");
 //            }
-            if (space.getSpaceType() == SpaceTypeEnum.TEAM.getValue()){
-                // 仅当团队空间存在时获取分布式锁，避免在团队空间图片上传时多个线程同时上传图片
-                //空间唯一ID加锁，确保同一空间内的操作串行化，而不同空间之间可以并行操作
-                String lockKey = "spaceLock:" + spaceId;
-                lock = redissonClient.getLock(lockKey);// Java 内存中创建一个 RLock 对象实例.绑定到指定的 lockKey
-                // 尝试获取锁,重试等待时间1s（不设置超时时间，触发看门狗机制）。TTL默认30秒表示：如果从现在开始不再续期，这个锁会在30秒后自动过期（保证客户端崩溃不会死锁）。
-//                locked = lock.tryLock(2, 5, TimeUnit.SECONDS);
-                locked = lock.tryLock(1, TimeUnit.SECONDS);
-                if (!locked) {
-                    throw new BusinessException(ErrorCode.OPERATION_ERROR, "系统繁忙，请稍后再试");
-                }
-                //如果获取锁成功，重新加载space，因为获取锁期间可能被其他线程修改
-                space = spaceService.getById(spaceId);
-            }
-            //校验额度锁保护
-            if (space.getTotalCount() >= space.getMaxCount()) {
-                throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间条数不足");
-            }
-            if (space.getTotalSize() >= space.getMaxSize()) {
-                throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间大小不足");
-            }
         }
 
         // 2.如果是更新图片，需要校验图片是否存在
@@ -206,104 +251,473 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
                 }
             }
         }
-        // 3.上传图片，得到图片信息
-        // 按照用户 id 划分目录 => 按照空间划分目录,上传路径处理
+        // 沿用原图片的空间时，入库扣减额度需要空间信息
+        if (space == null && spaceId != null) {
+            space = spaceService.getById(spaceId);
+            ThrowUtils.throwIf(space == null, ErrorCode.NOT_FOUND_ERROR, "空间不存在");
+        }
+        // 3.预留额度（原子操作，不加锁，同一团队空间的多个上传可以并行）
+        String reservationId = null;
+        if (spaceId != null) {
+            reservationId = spaceQuotaManager.reserve(spaceId, 1, estimateUploadSize(inputSource));
+        }
+        boolean committed = false;
+        try {
+            // 4.上传图片，得到图片信息
+            // 按照用户 id 划分目录 => 按照空间划分目录,上传路径处理
+            String uploadPathPrefix = spaceId == null ?
+                    String.format("public/%s", loginUser.getId()):
+                    String.format("space/%s", spaceId);
+            // 根据 inputSource 的类型区分上传方式（多态），默认是本地图片上传
+            PictureUploadTemplate pictureUploadTemplate = filePictureUpload;
+            if (inputSource instanceof String) {
+                pictureUploadTemplate = urlPictureUpload;
+            } else if (inputSource instanceof UploadPictureContent) {
+                pictureUploadTemplate = contentPictureUpload;
+            } else if (inputSource instanceof UploadPictureObject) {
+                pictureUploadTemplate = objectPictureUpload;
+            }
+            UploadPictureResult uploadPictureResult = pictureUploadTemplate.uploadPicture(inputSource, uploadPathPrefix);
+            // 5.构造要入库的图片信息
+            Picture picture = buildPictureEntity(pictureUploadRequest,uploadPictureResult, loginUser, spaceId,pictureId);
+            // 6.入库并扣减额度，提交预留
+            savePicture(picture, spaceId, space, oldPicture);
+            spaceQuotaManager.commit(spaceId, reservationId);
+            committed = true;
+            // 7.更新索引（入库已成功，之后的步骤失败不影响上传结果，避免调用方重试导致重复上传）
+            try {
+                afterPictureSaved(picture, oldPicture);
+            } catch (Exception e) {
+                log.error("图片入库后更新索引失败, pictureId = {}", picture.getId(), e);
+            }
+            PictureVO pictureVO = PictureVO.objToVo(picture);
+            // 8.标记同一空间中疑似重复的图片，失败不影响上传结果
+            try {
+                pictureVO.setDuplicatePictureIds(findDuplicatePictureIds(picture, loginUser));
+            } catch (Exception e) {
+                log.error("图片重复检测失败, pictureId = {}", picture.getId(), e);
+            }
+            return pictureVO;
+        }finally {
+            if (committed) {
+                //释放缓存
+                this.clearPageCache(spaceId);
+            } else {
+                spaceQuotaManager.release(spaceId, reservationId);
+            }
+        }
+    }
+
+    /**
+     * 预估上传大小，用于预留额度：已知大小的输入源使用实际大小，URL 上传使用允许的最大大小
+     */
+    private static long estimateUploadSize(Object inputSource) {
+        if (inputSource instanceof MultipartFile) {
+            return ((MultipartFile) inputSource).getSize();
+        }
+        if (inputSource instanceof UploadPictureContent) {
+            return ((UploadPictureContent) inputSource).getContent().length;
+        }
+        if (inputSource instanceof UploadPictureObject) {
+            return ((UploadPictureObject) inputSource).getSize();
+        }
+        return UrlPictureUpload.MAX_UPLOAD_SIZE;
+    }
+
+    @Override
+    public String submitUploadJob(MultipartFile multipartFile, PictureUploadRequest pictureUploadRequest, User loginUser) {
+        ThrowUtils.throwIf(multipartFile == null || multipartFile.isEmpty(), ErrorCode.PARAMS_ERROR, "图片为空");
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR, "用户未登录");
+        String idempotencyKey = pictureUploadRequest == null ? null : pictureUploadRequest.getIdempotencyKey();
+        return uploadIdempotencyManager.execute(loginUser.getId(), "uploadAsync", idempotencyKey, String.class,
+                () -> doSubmitUploadJob(multipartFile, pictureUploadRequest, loginUser));
+    }
+
+    private String doSubmitUploadJob(MultipartFile multipartFile, PictureUploadRequest pictureUploadRequest, User loginUser) {
+        // 先校验大小，再读入内存
+        ThrowUtils.throwIf(multipartFile.getSize() > ContentPictureUpload.MAX_UPLOAD_SIZE, ErrorCode.PARAMS_ERROR,
+                "文件大小不能超过 2M");
+        if (pictureUploadRequest == null) {
+            pictureUploadRequest = new PictureUploadRequest();
+        }
+        // 1. 在请求线程中完成校验，尽早返回错误（团队空间不加锁，额度由入库时的条件更新保证）
+        Long pictureId = pictureUploadRequest.getId();
+        Long spaceId = checkUploadTarget(pictureUploadRequest.getSpaceId(), pictureId);
+        Picture oldPicture = pictureId == null ? null : this.getById(pictureId);
+        Space space = spaceId == null ? null : spaceService.getById(spaceId);
+        // 2. 读取文件内容，请求结束后临时文件会被清理
+        UploadPictureContent uploadPictureContent;
+        try {
+            uploadPictureContent = new UploadPictureContent(multipartFile.getOriginalFilename(), multipartFile.getBytes());
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "文件读取失败");
+        }
         String uploadPathPrefix = spaceId == null ?
-                String.format("public/%s", loginUser.getId()):
+                String.format("public/%s", loginUser.getId()) :
                 String.format("space/%s", spaceId);
-        // 4.根据 inputSource 的类型区分上传方式（多态），默认是本地图片上传
-        PictureUploadTemplate pictureUploadTemplate = (inputSource instanceof String) ?
-                urlPictureUpload : filePictureUpload;
-
-        // 5. 执行上传操作（在锁保护下）
-        UploadPictureResult uploadPictureResult = pictureUploadTemplate.uploadPicture(inputSource, uploadPathPrefix);
-        // 6.构造要入库的图片信息
-        Picture picture = buildPictureEntity(pictureUploadRequest,uploadPictureResult, loginUser, spaceId,pictureId);
+        // 3. 预留额度，入库成功后提交，任一阶段失败时释放
+        String reservationId = spaceId == null ? null
+                : spaceQuotaManager.reserve(spaceId, 1, uploadPictureContent.getContent().length);
+        // 4. 提交任务，立即返回任务 id
+        PictureUploadRequest finalPictureUploadRequest = pictureUploadRequest;
+        Long finalSpaceId = spaceId;
+        Space finalSpace = space;
+        Picture finalOldPicture = oldPicture;
         try {
+            return uploadJobManager.submit(loginUser.getId(),
+                    () -> {
+                        try {
+                            return contentPictureUpload.uploadPicture(uploadPictureContent, uploadPathPrefix);
+                        } catch (RuntimeException e) {
+                            spaceQuotaManager.release(finalSpaceId, reservationId);
+                            throw e;
+                        }
+                    },
+                    uploadPictureResult -> {
+                        try {
+                            Picture picture = buildPictureEntity(finalPictureUploadRequest, uploadPictureResult, loginUser,
+                                    finalSpaceId, pictureId);
+                            savePicture(picture, finalSpaceId, finalSpace, finalOldPicture);
+                            spaceQuotaManager.commit(finalSpaceId, reservationId);
+                            return picture;
+                        } catch (RuntimeException e) {
+                            spaceQuotaManager.release(finalSpaceId, reservationId);
+                            throw e;
+                        }
+                    },
+                    picture -> {
+                        try {
+                            afterPictureSaved(picture, finalOldPicture);
+                        } finally {
+                            this.clearPageCache(finalSpaceId);
+                        }
+                    },
+                    uploadPictureResult -> {
+                        spaceQuotaManager.release(finalSpaceId, reservationId);
+                        Picture uploadedPicture = new Picture();
+                        uploadedPicture.setUrl(uploadPictureResult.getUrl());
+                        uploadedPicture.setThumbnailUrl(uploadPictureResult.getThumbnailUrl());
+                        clearPictureFiles(uploadedPicture);
+                    });
+        } catch (RuntimeException e) {
+            // 任务被拒绝
+            spaceQuotaManager.release(spaceId, reservationId);
+            throw e;
+        }
+    }
+
+    @Override
+    public UploadJobVO getUploadJob(String jobId, User loginUser) {
+        ThrowUtils.throwIf(StrUtil.isBlank(jobId), ErrorCode.PARAMS_ERROR);
+        return uploadJobManager.getJob(jobId, loginUser.getId());
+    }
+
+    @Override
+    public ChunkUploadVO createChunkUpload(PictureChunkUploadCreateRequest pictureChunkUploadCreateRequest, User loginUser) {
+        ThrowUtils.throwIf(pictureChunkUploadCreateRequest == null, ErrorCode.PARAMS_ERROR);
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR, "用户未登录");
+        Long fileSize = pictureChunkUploadCreateRequest.getFileSize();
+        ThrowUtils.throwIf(fileSize == null || fileSize <= 0, ErrorCode.PARAMS_ERROR, "文件大小错误");
+        ThrowUtils.throwIf(fileSize > ObjectPictureUpload.MAX_UPLOAD_SIZE, ErrorCode.PARAMS_ERROR, "文件大小不能超过 20M");
+        Long spaceId = checkUploadTarget(pictureChunkUploadCreateRequest.getSpaceId(), pictureChunkUploadCreateRequest.getId());
+        ChunkUploadSession session = new ChunkUploadSession();
+        session.setUserId(loginUser.getId());
+        session.setFileName(pictureChunkUploadCreateRequest.getFileName());
+        session.setFileSize(fileSize);
+        session.setSpaceId(spaceId);
+        session.setPictureId(pictureChunkUploadCreateRequest.getId());
+        session.setPicName(pictureChunkUploadCreateRequest.getPicName());
+        return chunkUploadManager.createSession(session);
+    }
+
+    @Override
+    public ChunkUploadVO uploadChunk(String uploadId, long offset, InputStream inputStream, long contentLength, User loginUser) {
+        ThrowUtils.throwIf(StrUtil.isBlank(uploadId), ErrorCode.PARAMS_ERROR);
+        return chunkUploadManager.uploadChunk(uploadId, offset, inputStream, contentLength, loginUser.getId());
+    }
 
-            // 7.开启事务
-            Long finalSpaceId = spaceId;
-            Space finalSpace = space;
+    @Override
+    public ChunkUploadVO getChunkUpload(String uploadId, User loginUser) {
+        ThrowUtils.throwIf(StrUtil.isBlank(uploadId), ErrorCode.PARAMS_ERROR);
+        return chunkUploadManager.getProgress(uploadId, loginUser.getId());
+    }
+
+    @Override
+    public PictureVO completeChunkUpload(String uploadId, User loginUser) throws InterruptedException {
+        ThrowUtils.throwIf(StrUtil.isBlank(uploadId), ErrorCode.PARAMS_ERROR);
+        // 分块上传 id 本身就是幂等键：合并后会话被删除，重试时返回第一次的结果
+        return uploadIdempotencyManager.execute(loginUser.getId(), "chunkComplete", uploadId, PictureVO.class,
+                () -> doCompleteChunkUpload(uploadId, loginUser));
+    }
+
+    private PictureVO doCompleteChunkUpload(String uploadId, User loginUser) {
+        ChunkUploadSession session = chunkUploadManager.complete(uploadId, loginUser.getId());
+        PictureVO pictureVO;
+        try {
+            // 合并后的原始文件按普通上传流程处理（校验、秒传、图片处理、入库、扣减额度）
+            PictureUploadRequest pictureUploadRequest = new PictureUploadRequest();
+            pictureUploadRequest.setId(session.getPictureId());
+            pictureUploadRequest.setSpaceId(session.getSpaceId());
+            pictureUploadRequest.setPicName(session.getPicName());
+            UploadPictureObject uploadPictureObject = new UploadPictureObject(session.getKey(), session.getFileName(),
+                    session.getFileSize(), session.getFormat());
+            pictureVO = this.doUploadPicture(uploadPictureObject, pictureUploadRequest, loginUser);
+        } catch (RuntimeException e) {
+            // 处理失败时保留会话和原始文件，可以重新完成上传
+            try {
+                chunkUploadManager.release(session);
+            } catch (Exception releaseException) {
+                log.error("释放分块上传会话失败, uploadId = {}", uploadId, releaseException);
+            }
+            throw e;
+        }
+        // 原始文件已经处理并上传到正式路径，删除会话和原始文件
+        try {
+            chunkUploadManager.finish(session);
+        } catch (Exception e) {
+            log.error("清理分块上传会话失败, uploadId = {}", uploadId, e);
+        }
+        return pictureVO;
+    }
+
+    @Override
+    public void cancelChunkUpload(String uploadId, User loginUser) {
+        ThrowUtils.throwIf(StrUtil.isBlank(uploadId), ErrorCode.PARAMS_ERROR);
+        chunkUploadManager.abort(uploadId, loginUser.getId());
+    }
+
+    @Override
+    public List<PictureUploadFileResultVO> uploadPictureByFiles(List<MultipartFile> multipartFiles,
+                                                                PictureUploadByFilesRequest pictureUploadByFilesRequest,
+                                                                User loginUser) {
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR, "用户未登录");
+        String idempotencyKey = pictureUploadByFilesRequest == null ? null : pictureUploadByFilesRequest.getIdempotencyKey();
+        return uploadIdempotencyManager.execute(loginUser.getId(), "uploadFiles", idempotencyKey,
+                new TypeReference<List<PictureUploadFileResultVO>>() {},
+                () -> doUploadPictureByFiles(multipartFiles, pictureUploadByFilesRequest, loginUser));
+    }
+
+    private List<PictureUploadFileResultVO> doUploadPictureByFiles(List<MultipartFile> multipartFiles,
+                                                                   PictureUploadByFilesRequest pictureUploadByFilesRequest,
+                                                                   User loginUser) {
+        ThrowUtils.throwIf(CollUtil.isEmpty(multipartFiles), ErrorCode.PARAMS_ERROR, "图片为空");
+        ThrowUtils.throwIf(multipartFiles.size() > MAX_UPLOAD_FILES, ErrorCode.PARAMS_ERROR,
+                String.format("最多同时上传 %d 张图片", MAX_UPLOAD_FILES));
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR, "用户未登录");
+        Long spaceId = pictureUploadByFilesRequest == null ? null : pictureUploadByFilesRequest.getSpaceId();
+        String nameRule = pictureUploadByFilesRequest == null ? null : pictureUploadByFilesRequest.getNameRule();
+        // 1. 按原始文件大小一次性预留全部文件的额度（原子操作，不加锁）
+        String reservationId = spaceId == null ? null : spaceQuotaManager.reserve(spaceId, multipartFiles.size(),
+                multipartFiles.stream().mapToLong(MultipartFile::getSize).sum());
+        boolean committed = false;
+        try {
+            String uploadPathPrefix = spaceId == null ?
+                    String.format("public/%s", loginUser.getId()) :
+                    String.format("space/%s", spaceId);
+            // 2. 并行上传，单个文件失败不影响其他文件
+            List<CompletableFuture<UploadPictureResult>> uploadFutures = new ArrayList<>(multipartFiles.size());
+            for (MultipartFile multipartFile : multipartFiles) {
+                uploadFutures.add(CompletableFuture.supplyAsync(
+                        () -> filePictureUpload.uploadPicture(multipartFile, uploadPathPrefix), fileUploadExecutor));
+            }
+            List<PictureUploadFileResultVO> resultList = new ArrayList<>(multipartFiles.size());
+            Picture[] uploadedPictures = new Picture[multipartFiles.size()];
+            List<Picture> pictureList = new ArrayList<>();
+            for (int i = 0; i < multipartFiles.size(); i++) {
+                PictureUploadFileResultVO resultVO = new PictureUploadFileResultVO();
+                resultVO.setFileName(multipartFiles.get(i).getOriginalFilename());
+                try {
+                    UploadPictureResult uploadPictureResult = uploadFutures.get(i).join();
+                    Picture picture = buildPictureEntity(null, uploadPictureResult, loginUser, spaceId, null);
+                    uploadedPictures[i] = picture;
+                    pictureList.add(picture);
+                    resultVO.setSuccess(true);
+                } catch (CompletionException e) {
+                    resultVO.setSuccess(false);
+                    resultVO.setErrorMessage(e.getCause() instanceof BusinessException ? e.getCause().getMessage() : "上传失败");
+                    log.warn("批量上传中文件上传失败: {}", resultVO.getFileName(), e.getCause());
+                }
+                resultList.add(resultVO);
+            }
+            fillPictureWithNameRule(pictureList, nameRule);
+            // 3. 一次批量插入，按实际上传成功的文件和压缩后的大小扣减额度，提交预留
+            long actualSize = pictureList.stream().mapToLong(Picture::getPicSize).sum();
+            try {
+                transactionTemplate.execute(status -> {
+                    if (pictureList.isEmpty()) {
+                        return true;
+                    }
+                    boolean result = this.saveBatch(pictureList);
+                    ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "图片上传失败，数据库操作失败");
+                    if (spaceId != null) {
+                        // 条件更新失败说明额度已满（预留只在上传前拦截，这里是最终保证）
+                        boolean updateResult = spaceService.lambdaUpdate()
+                                .eq(Space::getId, spaceId)
+                                .apply("totalCount + {0} <= maxCount", pictureList.size())
+                                .apply("totalSize < maxSize")
+                                .setSql("totalCount = totalCount + " + pictureList.size())
+                                .setSql("totalSize = totalSize + " + actualSize)
+                                .update();
+                        ThrowUtils.throwIf(!updateResult, ErrorCode.OPERATION_ERROR, "空间额度不足");
+                        entityCacheManager.getSpaceCache().evict(spaceId);
+                    }
+                    return true;
+                });
+            } catch (Exception e) {
+                // 清理已上传的文件
+                pictureList.forEach(this::clearPictureFiles);
+                throw e;
+            }
+            if (!pictureList.isEmpty()) {
+                spaceQuotaManager.commit(spaceId, reservationId);
+                committed = true;
+            }
+            // 4. 更新索引，清理一次分页缓存（入库已成功，之后的步骤失败不影响上传结果，避免调用方重试导致重复上传）
+            try {
+                for (Picture picture : pictureList) {
+                    pictureSearchIndex.index(picture);
+                    pictureTagIndex.index(picture);
+                    pictureColorIndex.index(picture);
+                    pictureHashIndex.index(picture);
+                }
+                if (!pictureList.isEmpty()) {
+                    this.clearPageCache(spaceId);
+                }
+            } catch (Exception e) {
+                log.error("批量上传入库后更新索引失败, spaceId = {}", spaceId, e);
+            }
+            for (int i = 0; i < uploadedPictures.length; i++) {
+                if (uploadedPictures[i] != null) {
+                    resultList.get(i).setPicture(PictureVO.objToVo(uploadedPictures[i]));
+                }
+            }
+            return resultList;
+        } finally {
+            // 上传失败或没有文件上传成功时释放预留
+            if (!committed) {
+                spaceQuotaManager.release(spaceId, reservationId);
+            }
+        }
+    }
+
+    /**
+     * 校验上传目标（重新上传的图片、空间及额度），在接收文件之前尽早返回错误
+     *
+     * @param spaceId   空间 id
+     * @param pictureId 重新上传的图片 id
+     * @return 实际上传到的空间 id（重新上传且未指定空间时沿用原图片的空间）
+     */
+    private Long checkUploadTarget(Long spaceId, Long pictureId) {
+        if (pictureId != null) {
+            Picture oldPicture = this.getById(pictureId);
+            ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
+            if (spaceId == null) {
+                spaceId = oldPicture.getSpaceId();
+            } else {
+                ThrowUtils.throwIf(ObjUtil.notEqual(spaceId, oldPicture.getSpaceId()), ErrorCode.PARAMS_ERROR, "空间 id 不一致");
+            }
+        }
+        if (spaceId != null) {
+            Space space = spaceService.getById(spaceId);
+            ThrowUtils.throwIf(space == null, ErrorCode.NOT_FOUND_ERROR, "空间不存在");
+            ThrowUtils.throwIf(space.getTotalCount() >= space.getMaxCount(), ErrorCode.OPERATION_ERROR, "空间条数不足");
+            ThrowUtils.throwIf(space.getTotalSize() >= space.getMaxSize(), ErrorCode.OPERATION_ERROR, "空间大小不足");
+        }
+        return spaceId;
+    }
+
+    /**
+     * 保存图片并扣减空间额度，重新上传时在同一事务中登记删除旧图片文件；失败时清理已上传的文件
+     */
+    private void savePicture(Picture picture, Long spaceId, Space space, Picture oldPicture) {
+        try {
             transactionTemplate.execute(status -> {
                 // DB插入数据
                 boolean result = this.saveOrUpdate(picture);
                 ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "图片上传失败，数据库操作失败");
-                if (finalSpaceId != null) {
+                // 重新上传的图片无法计算感知哈希时，清除旧图片的哈希（按 id 更新会忽略 null 字段）
+                if (oldPicture != null && picture.getPerceptualHash() == null) {
+                    this.lambdaUpdate()
+                            .eq(Picture::getId, picture.getId())
+                            .set(Picture::getPerceptualHash, null)
+                            .update();
+                }
+                if (spaceId != null) {
                     // 更新空间的使用额度(带并发安全控制)
                     boolean updateResult = spaceService.lambdaUpdate()
-                            .eq(Space::getId, finalSpaceId)
+                            .eq(Space::getId, spaceId)
                             //小于最大限制才允许更新
-                            .lt(Space::getTotalCount, finalSpace.getMaxCount())
-                            .lt(Space::getTotalSize, finalSpace.getMaxSize())
+                            .lt(Space::getTotalCount, space.getMaxCount())
+                            .lt(Space::getTotalSize, space.getMaxSize())
                             .setSql("totalSize = totalSize + " + picture.getPicSize())
                             .setSql("totalCount = totalCount + 1")
                             .update();
-                    //双重验证,检查是否超额
-                    if (!updateResult || spaceService.getById(finalSpaceId).getTotalSize() >= finalSpace.getMaxSize()){
-                        throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间额度不足");
-                    }
+                    // 条件更新失败说明额度已满（预留只在上传前拦截，这里是最终保证）
+                    ThrowUtils.throwIf(!updateResult, ErrorCode.OPERATION_ERROR, "空间额度不足");
+                    // 额度已变化，使空间缓存失效
+                    entityCacheManager.getSpaceCache().evict(spaceId);
+                }
+                // 重新上传时登记删除旧图片文件（秒传命中同一文件时不能清理）
+                if (oldPicture != null && !StrUtil.equals(oldPicture.getUrl(), picture.getUrl())) {
+                    enqueuePictureFilesIfUnreferenced(oldPicture);
                 }
                 return picture;
             });
-
-            // 如果是更新，可以清理旧图片资源
-            if (pictureId != null) {
-                // 异步清理COS文件，而非DB记录！（额度归还会稍微不够准确）
-                this.clearPictureFile(oldPicture);
-//            this.deletePicture(oldPicture.getId(), loginUser);
-            }
-            return PictureVO.objToVo(picture);
         }catch (Exception e){
-            // 8. 事务失败处理,清除上传的COS文件
-            try {
-                clearPictureFiles(picture.getUrl(), picture.getThumbnailUrl());
-                log.info("图片上传事务失败，已清理COS文件: {}", uploadPictureResult.getUrl());
-            }catch (Exception cleanException){
-                log.error("清理COS文件失败: {}", cleanException.getMessage());
-            }
+            // 事务失败处理,清除上传的COS文件
+            clearPictureFiles(picture);
             //抛出原始异常
             throw e;
-        }finally {
-            //释放缓存
-            releaseLock(locked, lock);
-            this.clearPageCache();
         }
     }
 
-    private static void releaseLock(boolean locked, RLock lock) {
-        if ( locked && lock !=null){
-            try {
-                if (lock.isLocked()&& lock.isHeldByCurrentThread()){
-                    lock.unlock();
-                }
-            }catch (Exception e){
-                log.error("解锁失败: {}", e.getMessage());
-            }
+    /**
+     * 图片保存成功后更新内存索引
+     */
+    private void afterPictureSaved(Picture picture, Picture oldPicture) {
+        // 更新内存索引（重新上传时实体不含简介、标签等字段，需要从数据库重新加载）
+        if (oldPicture != null) {
+            this.refreshPictureIndex(Collections.singletonList(oldPicture.getId()));
+        } else {
+            pictureSearchIndex.index(picture);
+            pictureTagIndex.index(picture);
+            pictureColorIndex.index(picture);
+            pictureHashIndex.index(picture);
         }
     }
+
     // 对上传数据库失败的图片清理cos方法
-    private void clearPictureFiles(String url, String thumbnailUrl) {
+    private void clearPictureFiles(Picture picture) {
         try {
-            // 检查是否有其他引用
-            long refCount = this.lambdaQuery()
-                    .eq(Picture::getUrl, url)
-                    .count();
-            if (refCount == 0) {
-                cosManager.deleteObject(url);
-                if (StrUtil.isNotBlank(thumbnailUrl)) {
-                    cosManager.deleteObject(thumbnailUrl);
-                }
-            }
+            enqueuePictureFilesIfUnreferenced(picture);
+            log.info("图片上传事务失败，已登记删除COS文件: {}", picture.getUrl());
         } catch (Exception e) {
             log.error("文件清理异常", e);
         }
     }
+
+    /**
+     * 没有其他记录引用图片文件时登记删除（秒传会复用同一文件，引用计数即使用该地址的记录数）
+     * 在删除或替换记录的事务中调用时，与记录变更一起提交
+     */
+    private void enqueuePictureFilesIfUnreferenced(Picture picture) {
+        long refCount = this.lambdaQuery()
+                .eq(Picture::getUrl, picture.getUrl())
+                .count();
+        if (refCount == 0) {
+            storageDeleteManager.enqueuePictureFiles(picture);
+        }
+    }
     private Picture buildPictureEntity(PictureUploadRequest pictureUploadRequest,UploadPictureResult uploadPictureResult,
             User loginUser, Long spaceId,Long pictureId) {
         Picture picture = new Picture();
         picture.setSpaceId(spaceId);//指定空间ID
         picture.setUrl(uploadPictureResult.getUrl());
         picture.setPicColor(ColorTransformUtils.normalizeHexColor(uploadPictureResult.getPicColor()));
+        // 无法提取色板时以主色调作为唯一的颜色（重新上传时也要覆盖旧图片的色板）
+        picture.setPicPalette(uploadPictureResult.getPicPalette() != null ? uploadPictureResult.getPicPalette()
+                : ColorPaletteUtils.fromColor(picture.getPicColor()));
+        picture.setPerceptualHash(uploadPictureResult.getPerceptualHash());
         picture.setThumbnailUrl(uploadPictureResult.getThumbnailUrl());
         //支持外层传递图片名称
         String picName = uploadPictureResult.getPicName();
@@ -316,6 +730,7 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         picture.setPicHeight(uploadPictureResult.getPicHeight());
         picture.setPicScale(uploadPictureResult.getPicScale());
         picture.setPicFormat(uploadPictureResult.getPicFormat());
+        picture.setContentHash(uploadPictureResult.getContentHash());
         picture.setUserId(loginUser.getId());
         //填充审核参数
         fillReviewParams(picture, loginUser);
@@ -348,7 +763,16 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
     @Override
     public Page<PictureVO> getPictureVOPage(Page<Picture> picturePage, HttpServletRequest request) {
         List<Picture> pictureList = picturePage.getRecords();
-        Page<PictureVO> pictureVOPage = new Page<>(picturePage.getCurrent(), picturePage.getSize(), picturePage.getTotal());
+        Page<PictureVO> pictureVOPage;
+        if (picturePage instanceof CursorPage) {
+            // 游标分页需要保留 nextCursor 等信息
+            pictureVOPage = CursorPage.copyOf((CursorPage<?>) picturePage);
+        } else if (picturePage instanceof ApproximatePage) {
+            // 保留总数为估算值的标记
+            pictureVOPage = ApproximatePage.copyOf((ApproximatePage<?>) picturePage);
+        } else {
+            pictureVOPage = new Page<>(picturePage.getCurrent(), picturePage.getSize(), picturePage.getTotal());
+        }
         if (CollUtil.isEmpty(pictureList)) {
             return pictureVOPage;
         }
@@ -408,13 +832,25 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         String sortOrder = pictureQueryRequest.getSortOrder();
         // 从多字段中搜索
         if (StrUtil.isNotBlank(searchText)) {
-            // 需要拼接查询条件
-            // and (name like "%xxx%" or introduction like "%xxx%")
-            queryWrapper.and(
-                    qw -> qw.like("name", searchText)
-                            .or()
-                            .like("introduction", searchText)
-            );
+            // 优先使用内存全文索引，索引未就绪或命中过多时回退到 LIKE 全表扫描
+            List<Long> matchedIdList = pictureSearchIndex.search(searchText, SEARCH_INDEX_MAX_HITS);
+            if (matchedIdList == null) {
+                // 需要拼接查询条件
+                // and (name like "%xxx%" or introduction like "%xxx%")
+                queryWrapper.and(
+                        qw -> qw.like("name", searchText)
+                                .or()
+                                .like("introduction", searchText)
+                );
+            } else if (matchedIdList.isEmpty()) {
+                queryWrapper.apply("1 = 0");
+            } else {
+                queryWrapper.in("id", matchedIdList);
+                // 未指定排序时按相关度排序（游标分页需要按 id 定位，不使用相关度排序）
+                if (StrUtil.isEmpty(pictureQueryRequest.getSortField()) && pictureQueryRequest.getCursor() == null) {
+                    queryWrapper.orderByAsc("FIELD(id, " + StrUtil.join(",", matchedIdList) + ")");
+                }
+            }
         }
         queryWrapper.eq(ObjUtil.isNotEmpty(id), "id", id);
         queryWrapper.eq(ObjUtil.isNotEmpty(userId), "userId", userId);
@@ -437,9 +873,30 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         queryWrapper.lt(ObjUtil.isNotEmpty(endEditTime), "editTime", endEditTime);
         // JSON 数组查询
         if (CollUtil.isNotEmpty(tags)) {
-            /* and (tag like "%\"Java\"%" and like "%\"Python\"%") */
-            for (String tag : tags) {
-                queryWrapper.like("tags", "\"" + tag + "\"");
+            boolean matchAnyTag = pictureQueryRequest.isMatchAnyTag();
+            // 指定了空间（或公共图库）时优先使用标签位图索引，索引未就绪或命中过多时回退到 LIKE 查询
+            List<Long> taggedIdList = null;
+            if (spaceId != null || nullSpaceId) {
+                taggedIdList = pictureTagIndex.query(spaceId, tags, matchAnyTag, category, SEARCH_INDEX_MAX_HITS);
+            }
+            if (taggedIdList == null) {
+                if (matchAnyTag) {
+                    /* and (tag like "%\"Java\"%" or like "%\"Python\"%") */
+                    queryWrapper.and(qw -> {
+                        for (String tag : tags) {
+                            qw.or().like("tags", "\"" + tag + "\"");
+                        }
+                    });
+                } else {
+                    /* and (tag like "%\"Java\"%" and like "%\"Python\"%") */
+                    for (String tag : tags) {
+                        queryWrapper.like("tags", "\"" + tag + "\"");
+                    }
+                }
+            } else if (taggedIdList.isEmpty()) {
+                queryWrapper.apply("1 = 0");
+            } else {
+                queryWrapper.in("id", taggedIdList);
             }
         }
         // 排序
@@ -447,6 +904,96 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         return queryWrapper;
     }
 
+    @Override
+    public CursorPage<Picture> listPictureByCursor(PictureQueryRequest pictureQueryRequest) {
+        ThrowUtils.throwIf(pictureQueryRequest == null, ErrorCode.PARAMS_ERROR);
+        long size = pictureQueryRequest.getPageSize();
+        ThrowUtils.throwIf(size <= 0, ErrorCode.PARAMS_ERROR);
+        // 未指定排序字段时按 id 排序（雪花 id 基本按时间递增）
+        String sortField = StrUtil.blankToDefault(pictureQueryRequest.getSortField(), "id");
+        ThrowUtils.throwIf(!CURSOR_SORT_FIELDS.contains(sortField), ErrorCode.PARAMS_ERROR, "游标分页不支持该排序字段");
+        boolean isAsc = "ascend".equals(pictureQueryRequest.getSortOrder());
+        QueryWrapper<Picture> queryWrapper = this.getQueryWrapper(pictureQueryRequest);
+        // 补充 id 作为次级排序，保证 (sortField, id) 全局有序
+        if (!"id".equals(pictureQueryRequest.getSortField())) {
+            queryWrapper.orderBy(true, isAsc, "id");
+        }
+        // 根据游标追加定位条件，代替 OFFSET 跳过前面的数据
+        String cursor = pictureQueryRequest.getCursor();
+        if (StrUtil.isNotBlank(cursor)) {
+            CursorUtils.Cursor lastCursor = CursorUtils.decode(cursor, sortField, isAsc);
+            long lastId = lastCursor.getId();
+            if ("id".equals(sortField)) {
+                queryWrapper.gt(isAsc, "id", lastId).lt(!isAsc, "id", lastId);
+            } else {
+                // and (sortField < v or (sortField = v and id < lastId))，升序时方向相反
+                Date lastValue = new Date(lastCursor.getSortValue());
+                queryWrapper.and(qw -> qw.gt(isAsc, sortField, lastValue).lt(!isAsc, sortField, lastValue)
+                        .or(q -> q.eq(sortField, lastValue)
+                                .gt(isAsc, "id", lastId).lt(!isAsc, "id", lastId)));
+            }
+        }
+        // 多查一条用于判断是否还有下一页，关闭 count 查询
+        Page<Picture> picturePage = this.page(new Page<>(1, size + 1, false), queryWrapper);
+        List<Picture> pictureList = picturePage.getRecords();
+        boolean hasMore = pictureList.size() > size;
+        if (hasMore) {
+            pictureList = new ArrayList<>(pictureList.subList(0, (int) size));
+        }
+        CursorPage<Picture> cursorPage = new CursorPage<>(size);
+        cursorPage.setRecords(pictureList);
+        cursorPage.setHasMore(hasMore);
+        if (hasMore) {
+            Picture lastPicture = pictureList.get(pictureList.size() - 1);
+            cursorPage.setNextCursor(CursorUtils.encode(sortField, isAsc,
+                    getCursorSortValue(lastPicture, sortField), lastPicture.getId()));
+        }
+        return cursorPage;
+    }
+
+    @Override
+    public Page<Picture> listPictureByPage(PictureQueryRequest pictureQueryRequest) {
+        ThrowUtils.throwIf(pictureQueryRequest == null, ErrorCode.PARAMS_ERROR);
+        // 无限滚动不需要总数
+        if (pictureQueryRequest.getCursor() != null) {
+            return this.listPictureByCursor(pictureQueryRequest);
+        }
+        long current = pictureQueryRequest.getCurrent();
+        long size = pictureQueryRequest.getPageSize();
+        QueryWrapper<Picture> queryWrapper = this.getQueryWrapper(pictureQueryRequest);
+        // 后台计数时重新构造查询条件，不与当前线程共用 queryWrapper
+        PictureCountManager.CountResult countResult = pictureCountManager.count(pictureQueryRequest,
+                () -> this.count(this.getQueryWrapper(pictureQueryRequest)));
+        // 总数已知，只查询当前页数据
+        Page<Picture> picturePage = countResult.isApproximate()
+                ? new ApproximatePage<>(current, size)
+                : new Page<>(current, size, false);
+        if (!countResult.isApproximate() && (current - 1) * size >= countResult.getTotal()) {
+            // 超出总数的页码不再查询
+            picturePage.setRecords(new ArrayList<>());
+        } else {
+            picturePage = this.page(picturePage, queryWrapper);
+        }
+        picturePage.setTotal(countResult.getTotal());
+        return picturePage;
+    }
+
+    /**
+     * 获取游标中记录的排序字段值（时间字段取毫秒时间戳）
+     */
+    private long getCursorSortValue(Picture picture, String sortField) {
+        switch (sortField) {
+            case "createTime":
+                return picture.getCreateTime().getTime();
+            case "editTime":
+                return picture.getEditTime().getTime();
+            case "updateTime":
+                return picture.getUpdateTime().getTime();
+            default:
+                return picture.getId();
+        }
+    }
+
     @Override
     public void doPictureReview(PictureReviewRequest pictureReviewRequest, User loginUser) {
         // 1. 校验参数
@@ -472,6 +1019,8 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         updatePicture.setReviewTime(new Date());
         boolean result = this.updateById(updatePicture);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        // 审核状态决定图片是否在列表中可见，需要清理缓存
+        this.clearPageCache(oldPicture.getSpaceId());
     }
 
     /**
@@ -499,211 +1048,36 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
      *
      * @param pictureUploadByBatchRequest 批量抓取图片请求
      * @param loginUser                   登录用户
-     * @return 成功创建的图片数
+     * @return 导入任务 id
      */
-    // 批量上传需要处理多张图片，每张图片的上传都是独立的I/O操作
-    // 如果串行执行，用户需要等待所有图片上传完成才能得到响应
-    // 所以这里使用线程池并发执行多个图片上传任务，并使用CompletableFuture异步执行，并且异常隔离
+    // 原先在请求线程中抓取并等待所有图片上传完成（最多 120 秒），改为导入任务：
+    // 任务和每张图片的状态保存在数据库中，由 ImportJobManager 在常驻线程池中限流导入、失败重试
     @Override
-    public Integer uploadPictureByBatch(PictureUploadByBatchRequest pictureUploadByBatchRequest, User loginUser) {
+    public Long uploadPictureByBatch(PictureUploadByBatchRequest pictureUploadByBatchRequest, User loginUser) {
         //校验参数
         Integer count = pictureUploadByBatchRequest.getCount();
         String searchText = pictureUploadByBatchRequest.getSearchText();
+        ThrowUtils.throwIf(StrUtil.isBlank(searchText), ErrorCode.PARAMS_ERROR, "搜索词不能为空");
+        ThrowUtils.throwIf(count == null, ErrorCode.PARAMS_ERROR);
         //默认名称前缀
         String namePrefix = pictureUploadByBatchRequest.getNamePrefix();
         if (StrUtil.isBlank(namePrefix)) {
             namePrefix = searchText;
         }
-        ThrowUtils.throwIf(count > 30, ErrorCode.PARAMS_ERROR, "最多30条");
-        //抓取内容,%s占位searchText
-        String fetchUrl = String.format("https://cn.bing.com/images/async?q=%s&mmasync=1", searchText);
-        // 使用 Jsoup 抓取网页并解析为 Document 对象
-        Document document;
-        try {
-            document = Jsoup.connect(fetchUrl)
-                    .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36")
-                    .referrer("https://cn.bing.com")
-                    .timeout(10000) // 增加超时时间
-                    .maxBodySize(0) // 不限制响应体大小
-                    .get();
-        } catch (IOException e) {
-            log.error("图片抓取失败", e);
-            throw new BusinessException(ErrorCode.OPERATION_ERROR, "图片抓取失败");
-        }
-
-        //解析内容，从整个文档中找到具有 dgControl 类的第一个元素
-        Element div = document.getElementsByClass("dgControl").first();
-        if (ObjUtil.isEmpty(div)) {
-            throw new BusinessException(ErrorCode.OPERATION_ERROR, "图片解析获取元素失败");
-        }
-        // 从该 div 元素中选择所有具有 iusc 类的子元素
-        Elements imgElementList = div.select(".iusc");
-
-        // 使用 CompletableFuture 并发处理图片上传
-        List<CompletableFuture<Boolean>> uploadFutures = new ArrayList<>();
-
-//        // 创建一个专用的线程池用于执行异步任务，避免与其他任务竞争
-//        ThreadPoolExecutor batchUploadExecutor = new ThreadPoolExecutor(
-//                10, 20, 5,
-//                TimeUnit.SECONDS, new LinkedBlockingQueue<>(200),
-//                r -> {
-//                    Thread thread = new Thread(r, "batch-upload-thread-");
-//                    thread.setDaemon(false);
-//                    return thread;
-//                },
-//                new ThreadPoolExecutor.CallerRunsPolicy());
-
-        //取一个最大值，count默认10
-        int maxUploads = Math.min(count, imgElementList.size());
-
-        // 添加简单监控，单例定时线程池，独立于主线程运行
-        ScheduledExecutorService monitorExecutor = Executors.newSingleThreadScheduledExecutor();
-        // 固定频率执行定时任务。(Runnable command(要执行的任务（Runnable), long initialDelay(首次执行的延迟时间), long period连续执行之间的时间间隔（周期), TimeUnit unit)
-        monitorExecutor.scheduleAtFixedRate(() -> {
-                    int queueSize = executorService.getQueue().size();
-                    int activeCount = executorService.getActiveCount();
-                    long completedTaskCount = executorService.getCompletedTaskCount();
-                    if (queueSize > 100) {
-                        log.warn("图片上传队列堆积 | 队列大小: {}, 活跃线程数: {}, 已完成任务数: {}", queueSize, activeCount, completedTaskCount);
-                    } else {
-                        log.info("图片上传状态 | 队列大小: {}, 活跃线程数: {}, 已完成任务数: {}", queueSize, activeCount, completedTaskCount);
-                    }
-                },
-                5, 5, TimeUnit.SECONDS);
-
-        //遍历图片处理
-        for (int i = 0; i < maxUploads; i++) {
-            Element element = imgElementList.get(i);
-            // 获取data-m属性中的JSON字符串
-            String dataM = element.attr("m");
-            String fileUrl;
-            try {
-                JSONObject jsonObject = JSONUtil.parseObj(dataM);
-                fileUrl = jsonObject.getStr("murl");
-            } catch (Exception e) {
-                log.error("图片解析失败：{}", e.getMessage());
-                continue;
-            }
-            if (StrUtil.isBlank(fileUrl)) {
-                log.info("图片地址连接为空，已跳过：{}", fileUrl);
-                continue;
-            }
-            //处理图片地址，防止转义或者和对象存储冲突
-            int questionMarkIndex = fileUrl.indexOf("?");
-            if (questionMarkIndex > -1) {
-                fileUrl = fileUrl.substring(0, questionMarkIndex);
-            }
-
-            //准备上传参数
-            final String finalFileUrl = fileUrl;
-            final int index = i;
-            String finalNamePrefix = namePrefix;
-            // 使用 CompletableFuture 异步处理图片上传
-            CompletableFuture<Boolean> uploadFuture = CompletableFuture.supplyAsync(() -> {
-                PictureUploadRequest pictureUploadRequest = new PictureUploadRequest();
-                pictureUploadRequest.setFileUrl(finalFileUrl);
-                pictureUploadRequest.setPicName(finalNamePrefix + (index + 1));
-
-                // 添加稍后重试机制
-                int maxRetries = 3;
-                for (int retry = 0; retry < maxRetries; retry++) {
-                    try {
-                        PictureVO pictureVO = this.uploadPicture(finalFileUrl, pictureUploadRequest, loginUser);
-                        log.info("图片上传成功：id= {}, url={}, 重试次数={}", pictureVO.getId(), finalFileUrl, retry);
-                        return true;
-                    } catch (Exception e) {
-                        log.warn("图片上传失败，正在进行第{}次重试：{}, url={}", retry + 1, e.getMessage(), finalFileUrl);
-                        if (retry == maxRetries - 1) {
-                            // 最后一次重试仍然失败
-                            log.error("图片上传最终失败：{}, url={}", e.getMessage(), finalFileUrl);
-                            return false;
-                        }
-                        // 等待一段时间再重试
-                        try {
-                            Thread.sleep(1000 * (retry + 1)); // 递增等待时间
-                        } catch (InterruptedException ie) {
-                            Thread.currentThread().interrupt();
-                            return false;
-                        }
-                    }
-                }
-                return false;
-            }, executorService).exceptionally(          // 可对单个任务处理异常
-                    throwable -> {
-                        // 增强的异常处理
-                        if (throwable.getCause() instanceof RejectedExecutionException) {
-                            log.warn("线程池拒绝执行任务，采用降级策略: {}", finalFileUrl);
-                            // 降级方案: 同步执行
-                            try {
-                                PictureUploadRequest pictureUploadRequest = new PictureUploadRequest();
-                                pictureUploadRequest.setFileUrl(finalFileUrl);
-                                pictureUploadRequest.setPicName(finalNamePrefix + (index + 1));
-                                PictureVO pictureVO = this.uploadPicture(finalFileUrl, pictureUploadRequest, loginUser);
-                                log.info("降级处理成功：id= {}, url={}", pictureVO.getId(), finalFileUrl);
-                                return true;
-                            } catch (Exception e) {
-                                log.error("降级处理失败：{},url={}", e.getMessage(), finalFileUrl);
-                                return false;
-                            }
-                        }
-                log.error("第{}张图片上传失败：{},url={}", index,throwable.getMessage(),finalFileUrl);
-                return false;
-            });
-            uploadFutures.add(uploadFuture);
-        }
-        // 等待所有上传任务完成并统计成功数量
-        int uploadCount = 0;
+        String finalNamePrefix = namePrefix;
+        return uploadIdempotencyManager.execute(loginUser.getId(), "uploadBatch",
+                pictureUploadByBatchRequest.getIdempotencyKey(), Long.class,
+                () -> importJobManager.createJob(loginUser.getId(), searchText, finalNamePrefix, count));
+    }
 
-        /*开始
-│
-├─ 提交uploadFutures到线程池（并发执行）
-│
-├─ 创建allOf Future（等待所有任务完成）
-│
-├─ 添加thenApply回调（但暂不执行）
-│
-├─ 阻塞等待(最多60秒)
-│   │
-│   ├─ 所有任务完成 → 执行thenApply回调 → 收集结果 → get()返回
-│   │
-│    └─ 超时 → 抛出TimeoutException
-│
-└─ 统计结果 → 关闭线程池 → 返回成功计数
-*/
-        try {
-            //allof静态方法。等待所用任务执行完后获取结果
-            List<Boolean> results = CompletableFuture.allOf(uploadFutures.toArray(new CompletableFuture[0]))
-                    //allOf完成后触发执行结果收集
-                    .thenApply(v -> uploadFutures.stream()
-                            .map(CompletableFuture::join)
-                            .collect(Collectors.toList()))
-                    .get(120, TimeUnit.SECONDS); // 增加超时时间到120秒
-            uploadCount = (int) results.stream().filter(Boolean::booleanValue).count();
-        } catch (Exception e) {
-            log.error("批量上传过程中发生异常", e);
-        } finally {
-            // 关闭线程池
-            executorService.shutdown();
-            try {
-                // 等待线程池终止最多30秒
-                if (!executorService.awaitTermination(30, TimeUnit.SECONDS)) {
-                    executorService.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                executorService.shutdownNow();
-            }
+    @Override
+    public ImportJobVO getImportJob(Long jobId, User loginUser) {
+        return importJobManager.getJob(jobId, loginUser.getId());
+    }
 
-            // 关闭监控线程池
-            monitorExecutor.shutdown();
-            try {
-                if (!monitorExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-                    monitorExecutor.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                monitorExecutor.shutdownNow();
-            }
-        }
-        return uploadCount;
+    @Override
+    public void cancelImportJob(Long jobId, User loginUser) {
+        importJobManager.cancelJob(jobId, loginUser.getId());
     }
 
 /*    @Override
@@ -793,31 +1167,6 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         return uploadCount;
     }*/
 
-    /**
-     * 清理图片文件
-     *
-     * @param oldPicture
-     */
-    @Async//异步执行,直接返回给前端记录，后台慢慢执行方法,事务执行最好不要异步
-    protected void clearPictureFile(Picture oldPicture) {
-        // 判断该图片是否被多条记录使用（实现了秒传）
-        String pictureUrl = oldPicture.getUrl();
-        long count = this.lambdaQuery()
-                .eq(Picture::getUrl, pictureUrl)
-                .count();
-        // 有不止一条记录用到了该图片，不清理
-        if (count > 1) {
-            return;
-        }
-        // 删除图片
-        cosManager.deleteObject(pictureUrl);
-        // 删除缩略图
-        String thumbnailUrl = oldPicture.getThumbnailUrl();
-        if (StrUtil.isNotBlank(thumbnailUrl)) {
-            cosManager.deleteObject(thumbnailUrl);
-        }
-    }
-
     @Override
     public void deletePicture(long pictureId, User loginUser) {
         ThrowUtils.throwIf(pictureId <= 0, ErrorCode.PARAMS_ERROR);
@@ -840,11 +1189,16 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
                         .setSql("totalCount = totalCount - 1")
                         .update();
                 ThrowUtils.throwIf(!update, ErrorCode.OPERATION_ERROR, "额度更新失败");
+                entityCacheManager.getSpaceCache().evict(oldPicture.getSpaceId());
             }
+            // 与记录删除一起提交，由后台任务批量删除文件
+            enqueuePictureFilesIfUnreferenced(oldPicture);
             return true;
         });
+        this.removePictureIndex(oldPicture);
         Map<String, Object> message = new HashMap<>();
         message.put("pictureId", pictureId);
+        message.put("spaceId", oldPicture.getSpaceId());
         message.put("operation", "delete");
         //convert将 Java 对象自动转换为 AMQP 消息,对象转换
         //消息属性设置messagePostProcessor
@@ -860,9 +1214,7 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         );
 
         // 上传完成后清理redis缓存
-        this.clearPageCache();
-        // 异步清理文件
-        this.clearPictureFile(oldPicture);
+        this.clearPageCache(oldPicture.getSpaceId());
     }
 
     @Override
@@ -887,8 +1239,10 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         // 操作数据库
         boolean result = this.updateById(picture);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        this.refreshPictureIndex(Collections.singletonList(id));
         Map<String, Object> message = new HashMap<>();
         message.put("pictureId", picture.getId());
+        message.put("spaceId", oldPicture.getSpaceId());
         message.put("operation", "update");
         //convert将 Java 对象自动转换为 AMQP 消息,对象转换
         //消息属性设置messagePostProcessor
@@ -903,7 +1257,7 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
                 }*/
         );
         // 更新完成后清理redis缓存
-        this.clearPageCache();
+        this.clearPageCache(oldPicture.getSpaceId());
     }
 
     @Override
@@ -934,40 +1288,100 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         if (!space.getUserId().equals(loginUser.getId())) {
             throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "没有空间访问权限");
         }
-        // 3. 查询该空间下的所有图片（必须要有主色调）
-        List<Picture> pictureList = this.lambdaQuery()
-                .eq(Picture::getSpaceId, spaceId)
-                .isNotNull(Picture::getPicColor)
-                .list();
+        // 3. 从色板索引中查询最相似的 12 张图片
+        List<Long> pictureIds;
+        try {
+            pictureIds = pictureColorIndex.searchSimilar(spaceId, picColor, 12);
+        } catch (NumberFormatException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "颜色格式错误");
+        }
         // 如果没有图片，直接返回空列表
-        if (CollUtil.isEmpty(pictureList)) {
+        if (CollUtil.isEmpty(pictureIds)) {
             return new ArrayList<>();
         }
-        // 将颜色字符串转换为主色调
-        Color targetColor = Color.decode(picColor);
-        // 4. 计算相似度并排序
-        List<Picture> sortedPictureList = pictureList.stream()
-                .sorted(Comparator.comparingDouble(picture -> {
-                    String hexColor = picture.getPicColor();
-                    // 没有主色调的图片会默认排序到最后
-                    if (StrUtil.isBlank(hexColor)) {
-                        return Double.MAX_VALUE;
-                    }
-                    Color pictureColor = Color.decode(hexColor);
-                    // 计算相似度
-                    // 越大越相似。取反升序
-                    return -ColorSimilarUtils.calculateSimilarity(targetColor, pictureColor);
-                }))
-//                // 过滤掉相似度低于50%的图片
-//                .filter(picture -> ColorSimilarUtils.calculateSimilarity(targetColor, Color.decode(picture.getPicColor())) > 0.5)
-                .limit(12) // 取前 12 个
+        // 4. 按相似度顺序返回（索引同步前被删除的图片会被跳过）
+        Map<Long, Picture> pictureMap = this.listByIds(pictureIds).stream()
+                .collect(Collectors.toMap(Picture::getId, picture -> picture));
+        return pictureIds.stream()
+                .map(pictureMap::get)
+                .filter(Objects::nonNull)
+                .map(PictureVO::objToVo)
                 .collect(Collectors.toList());
-        // 5. 返回结果
-        return sortedPictureList.stream()
+    }
+
+    @Override
+    public List<PictureVO> searchSimilarPicture(Long pictureId, User loginUser) {
+        ThrowUtils.throwIf(pictureId == null || pictureId <= 0, ErrorCode.PARAMS_ERROR);
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+        Picture picture = this.getById(pictureId);
+        ThrowUtils.throwIf(picture == null, ErrorCode.NOT_FOUND_ERROR);
+        // 历史图片和本地无法解码的图片没有感知哈希
+        if (picture.getPerceptualHash() == null) {
+            return new ArrayList<>();
+        }
+        List<Long> pictureIds = searchSimilarPictureIds(picture, SIMILAR_MAX_DISTANCE, SIMILAR_LIMIT);
+        return listVisiblePictures(pictureIds, picture.getSpaceId(), loginUser).stream()
                 .map(PictureVO::objToVo)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 查询同一空间中与上传图片疑似重复的图片
+     */
+    private List<Long> findDuplicatePictureIds(Picture picture, User loginUser) {
+        if (picture.getPerceptualHash() == null) {
+            return new ArrayList<>();
+        }
+        List<Long> pictureIds = searchSimilarPictureIds(picture, DUPLICATE_MAX_DISTANCE, DUPLICATE_LIMIT);
+        return listVisiblePictures(pictureIds, picture.getSpaceId(), loginUser).stream()
+                .map(Picture::getId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 按感知哈希查询同一空间（或公共图库）中的相似图片，索引未就绪时回退到数据库计算汉明距离
+     *
+     * @return 图片 id，按汉明距离从小到大排列，不包含图片本身
+     */
+    private List<Long> searchSimilarPictureIds(Picture picture, int maxDistance, int limit) {
+        long hash = picture.getPerceptualHash();
+        List<Long> pictureIds = pictureHashIndex.search(picture.getSpaceId(), hash, maxDistance, limit, picture.getId());
+        if (pictureIds != null) {
+            return pictureIds;
+        }
+        String distanceSql = "BIT_COUNT(perceptualHash ^ " + hash + ")";
+        return this.lambdaQuery()
+                .select(Picture::getId)
+                .isNull(picture.getSpaceId() == null, Picture::getSpaceId)
+                .eq(picture.getSpaceId() != null, Picture::getSpaceId, picture.getSpaceId())
+                .isNotNull(Picture::getPerceptualHash)
+                .ne(Picture::getId, picture.getId())
+                .apply(distanceSql + " <= {0}", maxDistance)
+                .last("order by " + distanceSql + " limit " + limit)
+                .list()
+                .stream()
+                .map(Picture::getId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 按 id 顺序加载图片，公共图库只返回审核通过或本人上传的图片
+     */
+    private List<Picture> listVisiblePictures(List<Long> pictureIds, Long spaceId, User loginUser) {
+        if (CollUtil.isEmpty(pictureIds)) {
+            return new ArrayList<>();
+        }
+        Map<Long, Picture> pictureMap = this.listByIds(pictureIds).stream()
+                .collect(Collectors.toMap(Picture::getId, picture -> picture));
+        return pictureIds.stream()
+                .map(pictureMap::get)
+                .filter(Objects::nonNull)
+                .filter(picture -> spaceId != null
+                        || Objects.equals(PictureReviewStatusEnum.PASS.getValue(), picture.getReviewStatus())
+                        || picture.getUserId().equals(loginUser.getId()))
+                .collect(Collectors.toList());
+    }
+
     @Override
 //    @Transactional(rollbackFor = Exception.class)
     public void editPictureByBatch(PictureEditByBatchRequest pictureEditByBatchRequest, User loginUser) {
@@ -1009,8 +1423,10 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         // 5. 操作数据库进行批量更新
         boolean result = this.updateBatchById(pictureList);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "批量编辑失败");
+        // 分类、标签、名称可能变化，刷新内存索引
+        this.refreshPictureIndex(pictureList.stream().map(Picture::getId).collect(Collectors.toList()));
         // 批量更新完成后清理缓存
-        this.clearPageCache();
+        this.clearPageCache(spaceId);
 
 //        // 分批处理避免长事务
 //        int batchSize = 100;
@@ -1087,27 +1503,83 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 //        }
     }
 
+    /**
+     * 按 id 查询图片，读穿实体缓存（需要数据库最新值时使用 getBaseMapper().selectById）
+     */
+    @Override
+    public Picture getById(Serializable id) {
+        if (id == null) {
+            return null;
+        }
+        Long pictureId;
+        try {
+            pictureId = Long.valueOf(id.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return entityCacheManager.getPictureCache().get(pictureId);
+    }
+
+    @Override
+    public boolean updateById(Picture entity) {
+        boolean result = super.updateById(entity);
+        entityCacheManager.getPictureCache().evict(entity.getId());
+        return result;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean updateBatchById(Collection<Picture> entityList, int batchSize) {
+        boolean result = super.updateBatchById(entityList, batchSize);
+        entityCacheManager.getPictureCache().evictAll(
+                entityList.stream().map(Picture::getId).collect(Collectors.toList()));
+        return result;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean result = super.removeById(id);
+        entityCacheManager.getPictureCache().evict(Long.valueOf(id.toString()));
+        return result;
+    }
+
+    @Override
+    public void refreshPictureIndex(Collection<Long> pictureIds) {
+        pictureSearchIndex.refresh(pictureIds);
+        pictureTagIndex.refresh(pictureIds);
+        pictureColorIndex.refresh(pictureIds);
+        pictureHashIndex.refresh(pictureIds);
+    }
+
+    /**
+     * 移除图片的内存索引
+     *
+     * @param picture 已删除的图片
+     */
+    private void removePictureIndex(Picture picture) {
+        pictureSearchIndex.remove(picture.getId());
+        pictureTagIndex.remove(picture.getId());
+        pictureColorIndex.remove(picture.getSpaceId(), picture.getId());
+        pictureHashIndex.remove(picture.getId());
+    }
+
     /**
      * 清理分页查询缓存 - Cache-Aside模式的核心
+     * 只递增该作用域（公共图库或指定空间）的缓存版本号，旧版本的缓存不再被读取，由 TTL 自然过期
+     *
+     * @param spaceId 空间 id，为 null 表示公共图库
      */
     private final ScheduledExecutorService scheduledExecutorService = Executors.newScheduledThreadPool(1);
-    public void clearPageCache() {
-        // 第一次删除所有分页查询相关的缓存
+    public void clearPageCache(Long spaceId) {
+        // 第一次使缓存失效
         try {
-            // 清理Redis缓存
-            Set<String> keys = stringRedisTemplate.keys("leopicture:listPictureVOByPage:*");
-            if (keys != null && !keys.isEmpty()) {
-                stringRedisTemplate.delete(keys);
-            }
-            // 第二次延迟删除
+            pageCacheVersionManager.bumpVersion(spaceId);
+            // 第二次延迟失效，覆盖写入期间读到旧数据并回填缓存的情况
             scheduledExecutorService.schedule(() -> {
                 try {
-                    Set<String> delayedKeys = stringRedisTemplate.keys("leopicture:listPictureVOByPage:*");
-                    if (delayedKeys != null && !delayedKeys.isEmpty()) {
-                        // Redis删除操作，执行很快，一个线程即可
-                        stringRedisTemplate.delete(delayedKeys);
-                        log.debug("延迟删除缓存完成");
-                    }
+                    // Redis INCR 操作，执行很快，一个线程即可
+                    pageCacheVersionManager.bumpVersion(spaceId);
+                    log.debug("延迟删除缓存完成");
                 } catch (Exception e) {
                     log.error("延迟删除缓存失败", e);
                 }
@@ -9,6 +9,7 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.leo.leopicturebackend.exception.BusinessException;
 import com.leo.leopicturebackend.exception.ErrorCode;
 import com.leo.leopicturebackend.exception.ThrowUtils;
+import com.leo.leopicturebackend.manager.cache.EntityCacheManager;
 import com.leo.leopicturebackend.manager.sharding.DynamicShardingManager;
 import com.leo.leopicturebackend.mapper.SpaceMapper;
 import com.leo.leopicturebackend.model.dto.space.SpaceAddRequest;
@@ -33,6 +34,9 @@ import com.leo.leopicturebackend.model.entity.Space;
 
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -62,6 +66,8 @@ public class SpaceServiceImpl extends ServiceImpl<SpaceMapper, Space>
     Map<Long, Object> lockMap = new ConcurrentHashMap<>();
     @Resource
     private RedissonClient redissonClient;
+    @Resource
+    private EntityCacheManager entityCacheManager;
 
 //    // 为了方便部署，注释掉分表
 //    @Resource
@@ -270,6 +276,51 @@ public class SpaceServiceImpl extends ServiceImpl<SpaceMapper, Space>
             throw new BusinessException(ErrorCode.NO_AUTH_ERROR);
         }
     }
+
+    /**
+     * 按 id 查询空间，读穿实体缓存（需要数据库最新值时使用 getBaseMapper().selectById）
+     */
+    @Override
+    public Space getById(Serializable id) {
+        if (id == null) {
+            return null;
+        }
+        Long spaceId;
+        try {
+            spaceId = Long.valueOf(id.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return entityCacheManager.getSpaceCache().get(spaceId);
+    }
+
+    /**
+     * 按 id 批量查询空间，读穿实体缓存
+     */
+    @Override
+    public List<Space> listByIds(Collection<? extends Serializable> idList) {
+        if (CollUtil.isEmpty(idList)) {
+            return new ArrayList<>();
+        }
+        List<Long> spaceIdList = idList.stream()
+                .map(id -> Long.valueOf(id.toString()))
+                .collect(Collectors.toList());
+        return new ArrayList<>(entityCacheManager.getSpaceCache().getAll(spaceIdList).values());
+    }
+
+    @Override
+    public boolean updateById(Space entity) {
+        boolean result = super.updateById(entity);
+        entityCacheManager.getSpaceCache().evict(entity.getId());
+        return result;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean result = super.removeById(id);
+        entityCacheManager.getSpaceCache().evict(Long.valueOf(id.toString()));
+        return result;
+    }
 }
 
 
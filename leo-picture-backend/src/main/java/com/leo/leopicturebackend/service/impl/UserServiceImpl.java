@@ -14,6 +14,7 @@ import com.leo.leopicturebackend.constant.UserConstant;
 import com.leo.leopicturebackend.exception.BusinessException;
 import com.leo.leopicturebackend.exception.ErrorCode;
 import com.leo.leopicturebackend.manager.auth.StpKit;
+import com.leo.leopicturebackend.manager.cache.EntityCacheManager;
 import com.leo.leopicturebackend.model.dto.user.UserQueryRequest;
 import com.leo.leopicturebackend.model.dto.user.UserRegisterRequest;
 import com.leo.leopicturebackend.model.dto.user.VipCode;
@@ -33,8 +34,10 @@ import org.springframework.util.DigestUtils;
 
 import jakarta.servlet.http.HttpServletRequest;
 import java.io.IOException;
+import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
@@ -56,6 +59,9 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private EntityCacheManager entityCacheManager;
+
     /**
      * 用户注册
      *
@@ -165,7 +171,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         if (currentUser == null || currentUser.getId() == null) {
             throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
         }
-        // 从数据库中查询（追求性能的话可以注释，直接返回上述结果）
+        // 从缓存中查询最新的用户信息（角色、会员等信息变更时缓存会主动失效）
         Long userId = currentUser.getId();
         currentUser = this.getById(userId);
         if (currentUser == null) {
@@ -370,6 +376,54 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
     }
 
     // endregion ------- 以下代码为用户兑换会员功能 --------
+
+    /**
+     * 按 id 查询用户，读穿实体缓存（缓存中不含密码）
+     */
+    @Override
+    public User getById(Serializable id) {
+        if (id == null) {
+            return null;
+        }
+        Long userId;
+        try {
+            userId = Long.valueOf(id.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return entityCacheManager.getUserCache().get(userId);
+    }
+
+    /**
+     * 按 id 批量查询用户，读穿实体缓存（缓存中不含密码）
+     */
+    @Override
+    public List<User> listByIds(Collection<? extends Serializable> idList) {
+        if (CollUtil.isEmpty(idList)) {
+            return new ArrayList<>();
+        }
+        List<Long> userIdList = idList.stream()
+                .map(id -> Long.valueOf(id.toString()))
+                .collect(Collectors.toList());
+        return new ArrayList<>(entityCacheManager.getUserCache().getAll(userIdList).values());
+    }
+
+    /**
+     * 更新用户（资料、角色、会员信息），同时使缓存失效
+     */
+    @Override
+    public boolean updateById(User entity) {
+        boolean result = super.updateById(entity);
+        entityCacheManager.getUserCache().evict(entity.getId());
+        return result;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean result = super.removeById(id);
+        entityCacheManager.getUserCache().evict(Long.valueOf(id.toString()));
+        return result;
+    }
 }
 
 
@@ -0,0 +1,101 @@
+package com.leo.leopicturebackend.utils;
+
+/**
+ * 工具类：图片色板编码
+ * 色板为图片中占比最高的若干种颜色及其占比，按占比从高到低排列，以二进制保存在 picPalette 列中：
+ * 第 1 个字节为颜色数，之后每种颜色 10 个字节：RGB（3 字节）、占比（1 字节，0-255）、L/a/b（各 2 字节，放大 LAB_SCALE 倍取整）
+ * Lab 在入库时计算好，查询时不需要再做颜色空间转换
+ */
+public class ColorPaletteUtils {
+
+    /**
+     * 色板最多包含的颜色数
+     */
+    public static final int MAX_COLORS = 5;
+
+    /**
+     * Lab 分量的放大倍数（精度 1/16 ΔE）
+     */
+    public static final int LAB_SCALE = 16;
+
+    private static final int ENTRY_BYTES = 10;
+
+    private ColorPaletteUtils() {
+        // 工具类不需要实例化
+    }
+
+    /**
+     * 编码色板
+     *
+     * @param rgbs    颜色（0xRRGGBB），按占比从高到低排列
+     * @param weights 占比（0-1）
+     * @param size    颜色数，超过 MAX_COLORS 的部分会被忽略
+     * @return 色板
+     */
+    public static byte[] encode(int[] rgbs, double[] weights, int size) {
+        size = Math.min(size, MAX_COLORS);
+        byte[] palette = new byte[1 + size * ENTRY_BYTES];
+        palette[0] = (byte) size;
+        for (int i = 0; i < size; i++) {
+            int offset = 1 + i * ENTRY_BYTES;
+            int rgb = rgbs[i];
+            palette[offset] = (byte) (rgb >> 16);
+            palette[offset + 1] = (byte) (rgb >> 8);
+            palette[offset + 2] = (byte) rgb;
+            palette[offset + 3] = (byte) Math.round(Math.max(0, Math.min(1, weights[i])) * 255);
+            double[] lab = ColorSimilarUtils.rgbToLab(rgb);
+            for (int j = 0; j < 3; j++) {
+                int value = (int) Math.round(lab[j] * LAB_SCALE);
+                palette[offset + 4 + j * 2] = (byte) (value >> 8);
+                palette[offset + 5 + j * 2] = (byte) value;
+            }
+        }
+        return palette;
+    }
+
+    /**
+     * 只有一种颜色（占比 100%）的色板，用于没有提取色板的图片
+     *
+     * @param hexColor 十六进制颜色（如 0xFF0000）
+     * @return 色板
+     */
+    public static byte[] fromColor(String hexColor) {
+        return encode(new int[]{ColorSimilarUtils.parseRgb(hexColor)}, new double[]{1}, 1);
+    }
+
+    /**
+     * 色板中的颜色数，格式错误时返回 0
+     */
+    public static int size(byte[] palette) {
+        if (palette == null || palette.length == 0) {
+            return 0;
+        }
+        int size = palette[0] & 0xFF;
+        return palette.length == 1 + size * ENTRY_BYTES ? size : 0;
+    }
+
+    /**
+     * 第 i 种颜色（0xRRGGBB）
+     */
+    public static int getRgb(byte[] palette, int i) {
+        int offset = 1 + i * ENTRY_BYTES;
+        return (palette[offset] & 0xFF) << 16 | (palette[offset + 1] & 0xFF) << 8 | (palette[offset + 2] & 0xFF);
+    }
+
+    /**
+     * 第 i 种颜色的占比（0-1）
+     */
+    public static float getWeight(byte[] palette, int i) {
+        return (palette[1 + i * ENTRY_BYTES + 3] & 0xFF) / 255f;
+    }
+
+    /**
+     * 第 i 种颜色的 Lab 分量
+     *
+     * @param component 0-L，1-a，2-b
+     */
+    public static float getLab(byte[] palette, int i, int component) {
+        int offset = 1 + i * ENTRY_BYTES + 4 + component * 2;
+        return (short) ((palette[offset] << 8) | (palette[offset + 1] & 0xFF)) / (float) LAB_SCALE;
+    }
+}
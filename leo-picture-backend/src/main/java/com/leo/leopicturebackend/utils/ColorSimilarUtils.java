@@ -7,10 +7,55 @@ import java.awt.*;
  */
 public class ColorSimilarUtils {
 
+    // sRGB 分量（0-255）到线性值的查表
+    private static final double[] SRGB_TO_LINEAR = new double[256];
+
+    // D65 白点
+    private static final double XN = 0.95047;
+    private static final double YN = 1.0;
+    private static final double ZN = 1.08883;
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            double c = i / 255.0;
+            SRGB_TO_LINEAR[i] = c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+        }
+    }
+
     private ColorSimilarUtils() {
         // 工具类不需要实例化
     }
 
+    /**
+     * 解析十六进制颜色
+     *
+     * @param hexColor 十六进制颜色（如 0xFF0000、#FF0000）
+     * @return RGB 值（0xRRGGBB）
+     */
+    public static int parseRgb(String hexColor) {
+        return Color.decode(hexColor.trim()).getRGB() & 0xFFFFFF;
+    }
+
+    /**
+     * RGB 转换为 CIELAB（D65），Lab 空间中的欧氏距离即 ΔE（CIE76），比 RGB 距离更接近人眼感知
+     *
+     * @param rgb RGB 值（0xRRGGBB）
+     * @return [L, a, b]，L 取值 0-100，a、b 约为 -128-127
+     */
+    public static double[] rgbToLab(int rgb) {
+        double r = SRGB_TO_LINEAR[(rgb >> 16) & 0xFF];
+        double g = SRGB_TO_LINEAR[(rgb >> 8) & 0xFF];
+        double b = SRGB_TO_LINEAR[rgb & 0xFF];
+        double fx = labF((0.4124564 * r + 0.3575761 * g + 0.1804375 * b) / XN);
+        double fy = labF((0.2126729 * r + 0.7151522 * g + 0.0721750 * b) / YN);
+        double fz = labF((0.0193339 * r + 0.1191920 * g + 0.9503041 * b) / ZN);
+        return new double[]{116 * fy - 16, 500 * (fx - fy), 200 * (fy - fz)};
+    }
+
+    private static double labF(double t) {
+        return t > 216.0 / 24389 ? Math.cbrt(t) : (24389.0 / 27 * t + 16) / 116;
+    }
+
     /**
      * 计算两个颜色的相似度
      *
@@ -0,0 +1,87 @@
+package com.leo.leopicturebackend.utils;
+
+import cn.hutool.core.util.StrUtil;
+import com.leo.leopicturebackend.exception.BusinessException;
+import com.leo.leopicturebackend.exception.ErrorCode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 游标编解码工具类
+ * 游标内容：排序字段|排序方向|排序字段值|id，再做 URL 安全的 Base64 编码，对前端不透明
+ */
+public class CursorUtils {
+
+    private CursorUtils() {
+        // 工具类不需要实例化
+    }
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * 编码游标
+     *
+     * @param sortField 排序字段
+     * @param isAsc     是否升序
+     * @param sortValue 最后一条记录的排序字段值（时间字段为毫秒时间戳）
+     * @param id        最后一条记录的 id
+     * @return
+     */
+    public static String encode(String sortField, boolean isAsc, long sortValue, long id) {
+        String raw = String.join(SEPARATOR, sortField, isAsc ? "asc" : "desc",
+                String.valueOf(sortValue), String.valueOf(id));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码游标，并校验与本次查询的排序条件一致
+     *
+     * @param cursor    游标
+     * @param sortField 本次查询的排序字段
+     * @param isAsc     本次查询是否升序
+     * @return
+     */
+    public static Cursor decode(String cursor, String sortField, boolean isAsc) {
+        List<String> parts;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            parts = StrUtil.split(raw, SEPARATOR);
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标格式错误");
+        }
+        if (parts.size() != 4) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标格式错误");
+        }
+        // 排序条件变化后，旧游标失效，需要从第一页重新加载
+        if (!parts.get(0).equals(sortField) || !parts.get(1).equals(isAsc ? "asc" : "desc")) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "排序条件已变化，请重新加载");
+        }
+        try {
+            return new Cursor(Long.parseLong(parts.get(2)), Long.parseLong(parts.get(3)));
+        } catch (NumberFormatException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标格式错误");
+        }
+    }
+
+    /**
+     * 解码后的游标
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Cursor {
+
+        /**
+         * 排序字段值
+         */
+        private long sortValue;
+
+        /**
+         * id
+         */
+        private long id;
+    }
+}
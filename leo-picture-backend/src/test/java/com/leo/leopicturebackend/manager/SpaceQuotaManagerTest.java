@@ -0,0 +1,77 @@
+package com.leo.leopicturebackend.manager;
+
+import com.leo.leopicturebackend.exception.BusinessException;
+import com.leo.leopicturebackend.mapper.SpaceMapper;
+import com.leo.leopicturebackend.model.entity.Space;
+import jakarta.annotation.Resource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * 空间额度预留：提交后的预留不再与数据库中的已用额度重复计算
+ */
+@SpringBootTest
+public class SpaceQuotaManagerTest {
+
+    private static final Long SPACE_ID = -1L;
+
+    @Resource
+    private SpaceQuotaManager spaceQuotaManager;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @MockitoBean
+    private SpaceMapper spaceMapper;
+
+    private final Space space = new Space();
+
+    @BeforeEach
+    public void setUp() {
+        space.setId(SPACE_ID);
+        space.setMaxCount(100L);
+        space.setMaxSize(100L * 1024 * 1024);
+        space.setTotalCount(98L);
+        space.setTotalSize(0L);
+        when(spaceMapper.selectById(SPACE_ID)).thenReturn(space);
+        stringRedisTemplate.delete("leopicture:spaceQuota:" + SPACE_ID);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        stringRedisTemplate.delete("leopicture:spaceQuota:" + SPACE_ID);
+    }
+
+    @Test
+    public void testSequentialUploadsNearLimit() {
+        // 依次上传，每次入库后已用条数加一，直到用满
+        for (long totalCount = 98; totalCount < 100; totalCount++) {
+            space.setTotalCount(totalCount);
+            String reservationId = spaceQuotaManager.reserve(SPACE_ID, 1, 1024);
+            assertNotNull(reservationId);
+            space.setTotalCount(totalCount + 1);
+            space.setTotalSize(space.getTotalSize() + 1024);
+            spaceQuotaManager.commit(SPACE_ID, reservationId);
+        }
+        BusinessException exception = assertThrows(BusinessException.class,
+                () -> spaceQuotaManager.reserve(SPACE_ID, 1, 1024));
+        assertEquals("空间条数不足", exception.getMessage());
+    }
+
+    @Test
+    public void testPendingReservationCounted() {
+        // 未提交的预留计入额度，释放后可以再次预留
+        space.setTotalCount(99L);
+        String reservationId = spaceQuotaManager.reserve(SPACE_ID, 1, 1024);
+        assertThrows(BusinessException.class, () -> spaceQuotaManager.reserve(SPACE_ID, 1, 1024));
+        spaceQuotaManager.release(SPACE_ID, reservationId);
+        assertNotNull(spaceQuotaManager.reserve(SPACE_ID, 1, 1024));
+    }
+}
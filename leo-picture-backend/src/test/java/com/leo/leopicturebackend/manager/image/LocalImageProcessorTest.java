@@ -0,0 +1,77 @@
+package com.leo.leopicturebackend.manager.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 感知哈希：缩放后的图片哈希接近，内容不同的图片哈希差异明显
+ */
+public class LocalImageProcessorTest {
+
+    @Test
+    public void testPerceptualHashStableUnderScaling() {
+        BufferedImage image = drawGradient(800, 600, false);
+        long hash = LocalImageProcessor.computePerceptualHash(image);
+        for (int width : new int[]{1600, 400, 90}) {
+            BufferedImage scaled = scale(image, width, width * 3 / 4);
+            long scaledHash = LocalImageProcessor.computePerceptualHash(scaled);
+            assertTrue(Long.bitCount(hash ^ scaledHash) <= 4,
+                    String.format("width = %d, distance = %d", width, Long.bitCount(hash ^ scaledHash)));
+        }
+    }
+
+    @Test
+    public void testPerceptualHashDiffersForDifferentImages() {
+        long hash = LocalImageProcessor.computePerceptualHash(drawGradient(800, 600, false));
+        long otherHash = LocalImageProcessor.computePerceptualHash(drawGradient(800, 600, true));
+        assertTrue(Long.bitCount(hash ^ otherHash) > 12);
+    }
+
+    @Test
+    public void testPerceptualHashLargeImageSampled() {
+        // 超过采样上限的大图按步长采样，结果与缩小后的图片接近
+        BufferedImage image = drawGradient(4000, 3000, false);
+        long hash = LocalImageProcessor.computePerceptualHash(image);
+        long smallHash = LocalImageProcessor.computePerceptualHash(scale(image, 400, 300));
+        assertTrue(Long.bitCount(hash ^ smallHash) <= 4);
+    }
+
+    /**
+     * 绘制带有几个色块的渐变图，mirror 为 true 时左右翻转
+     */
+    private static BufferedImage drawGradient(int width, int height, boolean mirror) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int fx = mirror ? width - 1 - x : x;
+                int r = fx * 255 / width;
+                int g = y * 255 / height;
+                int b = (int) (127 + 127 * Math.sin(fx * 6.0 / width + y * 3.0 / height));
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        int left = mirror ? width / 2 : width / 8;
+        graphics.fillRect(left, height / 4, width / 3, height / 3);
+        graphics.setColor(Color.BLACK);
+        graphics.fillOval(mirror ? width / 8 : width / 2, height / 2, width / 4, height / 3);
+        graphics.dispose();
+        return image;
+    }
+
+    private static BufferedImage scale(BufferedImage image, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(image, 0, 0, width, height, null);
+        graphics.dispose();
+        return scaled;
+    }
+}
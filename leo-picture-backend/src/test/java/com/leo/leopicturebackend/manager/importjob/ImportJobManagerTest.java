@@ -0,0 +1,137 @@
+package com.leo.leopicturebackend.manager.importjob;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.leo.leopicturebackend.config.ImportJobConfig;
+import com.leo.leopicturebackend.exception.BusinessException;
+import com.leo.leopicturebackend.exception.ErrorCode;
+import com.leo.leopicturebackend.exception.RetryableException;
+import com.leo.leopicturebackend.mapper.ImportJobItemMapper;
+import com.leo.leopicturebackend.mapper.ImportJobMapper;
+import com.leo.leopicturebackend.model.entity.ImportJob;
+import com.leo.leopicturebackend.model.entity.ImportJobItem;
+import com.leo.leopicturebackend.model.entity.User;
+import com.leo.leopicturebackend.model.enums.ImportJobItemStatusEnum;
+import com.leo.leopicturebackend.service.PictureService;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 导入任务项：临时错误按退避重试，业务校验失败直接失败
+ */
+public class ImportJobManagerTest {
+
+    private final ImportJobManager importJobManager = new ImportJobManager();
+
+    private final ImportJobItemMapper importJobItemMapper = mock(ImportJobItemMapper.class);
+
+    private final PictureService pictureService = mock(PictureService.class);
+
+    private final ImportJobConfig importJobConfig = new ImportJobConfig();
+
+    @BeforeAll
+    public static void initTableInfo() {
+        // 不启动 Spring 时，Lambda 条件构造器需要手动初始化实体的表信息
+        MybatisConfiguration configuration = new MybatisConfiguration();
+        configuration.setMapUnderscoreToCamelCase(false);
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(configuration, ""), ImportJob.class);
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(configuration, ""), ImportJobItem.class);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        when(importJobItemMapper.update(any(), any())).thenReturn(1);
+        when(importJobItemMapper.selectCount(any())).thenReturn(1L);
+        ReflectionTestUtils.setField(importJobManager, "importJobItemMapper", importJobItemMapper);
+        ReflectionTestUtils.setField(importJobManager, "importJobMapper", mock(ImportJobMapper.class));
+        ReflectionTestUtils.setField(importJobManager, "pictureService", pictureService);
+        ReflectionTestUtils.setField(importJobManager, "importJobConfig", importJobConfig);
+    }
+
+    @Test
+    public void testTransientFailureRetried() throws Exception {
+        when(pictureService.uploadPicture(any(), any(), any()))
+                .thenThrow(new RetryableException(ErrorCode.OPERATION_ERROR, "云存储服务异常: Read timed out"));
+        ImportJobItem item = buildItem(0);
+        ImportJobManager.HostPermit hostPermit = acquireHostPermit();
+        importJobManager.runItem(item, new User(), hostPermit);
+
+        LambdaUpdateWrapper<ImportJobItem> wrapper = captureItemUpdate();
+        assertTrue(wrapper.getParamNameValuePairs().containsValue(ImportJobItemStatusEnum.WAITING.getValue()));
+        assertTrue(wrapper.getSqlSet().contains("retryCount"));
+        assertTrue(wrapper.getSqlSet().contains("nextRetryTime"));
+        assertEquals(1, getCount("retriedCount"));
+        assertEquals(0, getCount("failedCount"));
+        assertTrue(hostPermit.isIdle());
+    }
+
+    @Test
+    public void testTransientFailureExhaustedFailed() throws Exception {
+        when(pictureService.uploadPicture(any(), any(), any()))
+                .thenThrow(new RetryableException(ErrorCode.SYSTEM_ERROR, "上传失败"));
+        importJobManager.runItem(buildItem(importJobConfig.getMaxRetries()), new User(), acquireHostPermit());
+
+        LambdaUpdateWrapper<ImportJobItem> wrapper = captureItemUpdate();
+        assertTrue(wrapper.getParamNameValuePairs().containsValue(ImportJobItemStatusEnum.FAILED.getValue()));
+        assertEquals(0, getCount("retriedCount"));
+        assertEquals(1, getCount("failedCount"));
+    }
+
+    @Test
+    public void testValidationFailureNotRetried() throws Exception {
+        when(pictureService.uploadPicture(any(), any(), any()))
+                .thenThrow(new BusinessException(ErrorCode.PARAMS_ERROR, "文件类型错误"));
+        importJobManager.runItem(buildItem(0), new User(), acquireHostPermit());
+
+        LambdaUpdateWrapper<ImportJobItem> wrapper = captureItemUpdate();
+        assertTrue(wrapper.getParamNameValuePairs().containsValue(ImportJobItemStatusEnum.FAILED.getValue()));
+        assertTrue(wrapper.getParamNameValuePairs().containsValue("文件类型错误"));
+        assertEquals(0, getCount("retriedCount"));
+        assertEquals(1, getCount("failedCount"));
+    }
+
+    private static ImportJobItem buildItem(int retryCount) {
+        ImportJobItem item = new ImportJobItem();
+        item.setId(1L);
+        item.setJobId(1L);
+        item.setSourceUrl("https://example.com/1.jpg");
+        item.setPicName("picture1");
+        item.setStatus(ImportJobItemStatusEnum.RUNNING.getValue());
+        item.setRetryCount(retryCount);
+        item.setNextRetryTime(new Date());
+        return item;
+    }
+
+    private static ImportJobManager.HostPermit acquireHostPermit() {
+        ImportJobManager.HostPermit hostPermit = new ImportJobManager.HostPermit();
+        assertTrue(hostPermit.tryAcquire(1, 0));
+        return hostPermit;
+    }
+
+    /**
+     * 任务项的第一次状态更新
+     */
+    @SuppressWarnings("unchecked")
+    private LambdaUpdateWrapper<ImportJobItem> captureItemUpdate() {
+        ArgumentCaptor<Wrapper<ImportJobItem>> captor = ArgumentCaptor.forClass(Wrapper.class);
+        verify(importJobItemMapper, atLeastOnce()).update(any(), captor.capture());
+        return (LambdaUpdateWrapper<ImportJobItem>) captor.getAllValues().get(0);
+    }
+
+    private long getCount(String fieldName) {
+        return ((LongAdder) ReflectionTestUtils.getField(importJobManager, fieldName)).sum();
+    }
+}
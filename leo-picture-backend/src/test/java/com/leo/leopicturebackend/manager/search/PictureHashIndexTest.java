@@ -0,0 +1,119 @@
+package com.leo.leopicturebackend.manager.search;
+
+import com.leo.leopicturebackend.model.entity.Picture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 感知哈希索引：多索引哈希的查询结果与逐个比较汉明距离的结果一致
+ */
+public class PictureHashIndexTest {
+
+    private static final Long[] SPACE_IDS = {null, 1L, 2L};
+
+    private final Random random = new Random(20251018L);
+
+    private final List<Picture> pictureList = new ArrayList<>();
+
+    private final PictureHashIndex pictureHashIndex = new PictureHashIndex();
+
+    @BeforeEach
+    public void setUp() {
+        // 以若干基准哈希为中心随机翻转若干位，保证各个半径内都有命中
+        long[] centers = random.longs(50).toArray();
+        long id = 1;
+        for (int i = 0; i < 20000; i++) {
+            long hash = centers[random.nextInt(centers.length)];
+            int flips = random.nextInt(24);
+            for (int j = 0; j < flips; j++) {
+                hash ^= 1L << random.nextInt(64);
+            }
+            pictureList.add(buildPicture(id++, SPACE_IDS[random.nextInt(SPACE_IDS.length)], hash));
+        }
+        // 没有感知哈希的图片不进入索引
+        pictureList.add(buildPicture(id, 1L, null));
+        pictureHashIndex.rebuild(pictureList);
+    }
+
+    @Test
+    public void testSearchMatchesBruteForce() {
+        for (int radius = 0; radius <= PictureHashIndex.MAX_DISTANCE; radius++) {
+            for (int q = 0; q < 20; q++) {
+                Picture queryPicture = pictureList.get(random.nextInt(pictureList.size() - 1));
+                long hash = queryPicture.getPerceptualHash();
+                if (q % 2 == 1) {
+                    // 不在索引中的查询哈希
+                    hash ^= 1L << random.nextInt(64);
+                }
+                Long spaceId = queryPicture.getSpaceId();
+                List<Long> expected = bruteForce(spaceId, hash, radius, Integer.MAX_VALUE, null);
+                List<Long> actual = pictureHashIndex.search(spaceId, hash, radius, Integer.MAX_VALUE, null);
+                assertEquals(expected, actual, String.format("radius = %d, hash = %x", radius, hash));
+            }
+        }
+    }
+
+    @Test
+    public void testSearchWithLimitAndExclude() {
+        Picture queryPicture = pictureList.get(0);
+        long hash = queryPicture.getPerceptualHash();
+        Long spaceId = queryPicture.getSpaceId();
+        List<Long> actual = pictureHashIndex.search(spaceId, hash, 12, 5, queryPicture.getId());
+        assertEquals(bruteForce(spaceId, hash, 12, 5, queryPicture.getId()), actual);
+        assertFalse(actual.contains(queryPicture.getId()));
+    }
+
+    @Test
+    public void testSearchAfterUpdateAndRemove() {
+        Picture movedPicture = pictureList.get(1);
+        Picture removedPicture = pictureList.get(2);
+        // 移动到其它空间并修改哈希
+        Long newSpaceId = Objects.equals(movedPicture.getSpaceId(), 1L) ? 2L : 1L;
+        movedPicture.setSpaceId(newSpaceId);
+        movedPicture.setPerceptualHash(~movedPicture.getPerceptualHash());
+        pictureHashIndex.index(movedPicture);
+        pictureHashIndex.remove(removedPicture.getId());
+        pictureList.remove(removedPicture);
+        for (Long spaceId : SPACE_IDS) {
+            for (Picture picture : Arrays.asList(movedPicture, removedPicture)) {
+                long hash = picture.getPerceptualHash();
+                assertEquals(bruteForce(spaceId, hash, 8, Integer.MAX_VALUE, null),
+                        pictureHashIndex.search(spaceId, hash, 8, Integer.MAX_VALUE, null));
+            }
+        }
+    }
+
+    @Test
+    public void testNotReady() {
+        assertNull(new PictureHashIndex().search(null, 0L, 4, 10, null));
+    }
+
+    /**
+     * 逐个比较汉明距离，按距离、id 排序
+     */
+    private List<Long> bruteForce(Long spaceId, long hash, int maxDistance, int limit, Long excludeId) {
+        return pictureList.stream()
+                .filter(picture -> picture.getPerceptualHash() != null)
+                .filter(picture -> Objects.equals(picture.getSpaceId(), spaceId))
+                .filter(picture -> !picture.getId().equals(excludeId))
+                .filter(picture -> Long.bitCount(picture.getPerceptualHash() ^ hash) <= maxDistance)
+                .sorted(Comparator.<Picture>comparingInt(picture -> Long.bitCount(picture.getPerceptualHash() ^ hash))
+                        .thenComparing(Picture::getId))
+                .limit(limit)
+                .map(Picture::getId)
+                .collect(Collectors.toList());
+    }
+
+    private static Picture buildPicture(long id, Long spaceId, Long perceptualHash) {
+        Picture picture = new Picture();
+        picture.setId(id);
+        picture.setSpaceId(spaceId);
+        picture.setPerceptualHash(perceptualHash);
+        return picture;
+    }
+}